@@ -0,0 +1,167 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinition;
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.data.UdtValue;
+import com.datastax.oss.driver.api.core.detach.AttachmentPoint;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinitions;
+import com.datastax.oss.driver.internal.core.cql.DefaultRow;
+import com.datastax.oss.driver.internal.core.type.UserDefinedTypeBuilder;
+
+/*
+ Driver rows shaped like nodesync_status results, serialized like the cluster sends them, for RowDecodingBenchmark.
+ */
+final class BenchmarkRows
+{
+    static final UserDefinedType VALIDATION = new UserDefinedTypeBuilder("system_distributed", "nodesync_validation")
+        .withField("started_at", DataTypes.TIMESTAMP)
+        .withField("outcome", DataTypes.TINYINT)
+        .withField("missing_nodes", DataTypes.setOf(DataTypes.INET))
+        .withField("was_incremental", DataTypes.BOOLEAN)
+        .frozen()
+        .build();
+
+    // Result metadata of SELECT *
+    static final ColumnDefinitions ALL_COLUMNS = columns(
+        "keyspace_name", DataTypes.TEXT,
+        "table_name", DataTypes.TEXT,
+        "range_group", DataTypes.BLOB,
+        "start_token", DataTypes.BIGINT,
+        "end_token", DataTypes.BIGINT,
+        "last_successful_validation", VALIDATION,
+        "last_unsuccessful_validation", VALIDATION,
+        "locked_by", DataTypes.INET);
+
+    // Result metadata of the queries of NodeSyncStatusTable
+    static final ColumnDefinitions PROJECTED_COLUMNS = columns(
+        "start_token", DataTypes.BIGINT,
+        "end_token", DataTypes.BIGINT,
+        "last_successful_validation", VALIDATION,
+        "last_unsuccessful_validation", VALIDATION);
+
+    private BenchmarkRows()
+    {
+    }
+
+    // Validations are null when the instant is null, the unsuccessful one has the outcome and the missing nodes
+    static Row row(ColumnDefinitions columns, String keyspace, String table, long startToken, long endToken,
+        Instant lastSuccess, Instant lastFailure, int outcome, Set<InetAddress> missingNodes)
+    {
+        List<ByteBuffer> values = new ArrayList<>();
+        for (ColumnDefinition column : columns)
+        {
+            switch (column.getName().asInternal())
+            {
+                case "keyspace_name":
+                    values.add(TypeCodecs.TEXT.encode(keyspace, ProtocolVersion.DEFAULT));
+                    break;
+                case "table_name":
+                    values.add(TypeCodecs.TEXT.encode(table, ProtocolVersion.DEFAULT));
+                    break;
+                case "range_group":
+                    values.add(NodeSyncStatusTable.rangeGroup((int) (startToken & 0xFF)));
+                    break;
+                case "start_token":
+                    values.add(TypeCodecs.BIGINT.encode(startToken, ProtocolVersion.DEFAULT));
+                    break;
+                case "end_token":
+                    values.add(TypeCodecs.BIGINT.encode(endToken, ProtocolVersion.DEFAULT));
+                    break;
+                case "last_successful_validation":
+                    values.add(validation(lastSuccess, 0, null));
+                    break;
+                case "last_unsuccessful_validation":
+                    values.add(validation(lastFailure, outcome, missingNodes));
+                    break;
+                default:
+                    values.add(null);
+            }
+        }
+        return new DefaultRow(columns, values, AttachmentPoint.NONE);
+    }
+
+    private static ByteBuffer validation(Instant startedAt, int outcome, Set<InetAddress> missingNodes)
+    {
+        if (startedAt == null)
+        {
+            return null;
+        }
+        UdtValue value = VALIDATION.newValue()
+            .setInstant("started_at", startedAt)
+            .setByte("outcome", (byte) outcome)
+            .setSet("missing_nodes", missingNodes, InetAddress.class)
+            .setBoolean("was_incremental", true);
+        return TypeCodecs.udtOf(VALIDATION).encode(value, ProtocolVersion.DEFAULT);
+    }
+
+    private static ColumnDefinitions columns(Object... namesAndTypes)
+    {
+        List<ColumnDefinition> columns = new ArrayList<>();
+        for (int i = 0; i < namesAndTypes.length; i += 2)
+        {
+            columns.add(new Column((String) namesAndTypes[i], (DataType) namesAndTypes[i + 1]));
+        }
+        return DefaultColumnDefinitions.valueOf(columns);
+    }
+
+    private static class Column implements ColumnDefinition
+    {
+        private final CqlIdentifier name;
+        private final DataType type;
+
+        Column(String name, DataType type)
+        {
+            this.name = CqlIdentifier.fromInternal(name);
+            this.type = type;
+        }
+
+        @Override
+        public CqlIdentifier getKeyspace()
+        {
+            return CqlIdentifier.fromInternal("system_distributed");
+        }
+
+        @Override
+        public CqlIdentifier getTable()
+        {
+            return CqlIdentifier.fromInternal("nodesync_status");
+        }
+
+        @Override
+        public CqlIdentifier getName()
+        {
+            return name;
+        }
+
+        @Override
+        public DataType getType()
+        {
+            return type;
+        }
+
+        @Override
+        public boolean isDetached()
+        {
+            return false;
+        }
+
+        @Override
+        public void attach(AttachmentPoint attachmentPoint)
+        {
+        }
+    }
+}
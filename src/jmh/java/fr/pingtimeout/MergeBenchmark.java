@@ -0,0 +1,171 @@
+package fr.pingtimeout;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ Merge of a whole table, as done by processTable, over synthetic rows: 256 range groups of contiguous ranges read in a
+ random group order, mixed outcomes, a few gaps and one wrap-around range.  treeSetMerge is the baseline, the TreeSet
+ of NodeSyncRecord and the merge loop that CoverageEngine replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms6g", "-Xmx6g" })
+public class MergeBenchmark
+{
+    private static final int GROUPS = 256;
+
+    @Param({ "10000", "1000000", "10000000" })
+    private int ranges;
+
+    private RecordColumns rows;
+    private NodeSets nodeSets;
+    // The same rows as records, the wrap-around range split in two
+    private List<NodeSyncRecord> records;
+
+    @Setup(Level.Trial)
+    public void generateRows()
+    {
+        Random random = new Random(42);
+        nodeSets = new NodeSets();
+        rows = new RecordColumns(ranges);
+        long width = -(Long.MIN_VALUE / ranges) * 2;
+        List<Integer> groupOrder = new ArrayList<>();
+        for (int group = 0; group < GROUPS; group++)
+        {
+            groupOrder.add(group);
+        }
+        Collections.shuffle(groupOrder, random);
+        long now = System.currentTimeMillis();
+        for (int group : groupOrder)
+        {
+            int first = (int) ((long) ranges * group / GROUPS);
+            int last = (int) ((long) ranges * (group + 1) / GROUPS);
+            for (int i = first; i < last; i++)
+            {
+                // 2% of gaps
+                if (random.nextInt(50) == 0)
+                {
+                    continue;
+                }
+                long start = Long.MIN_VALUE + i * width + width / 2;
+                // The last range wraps around the ring
+                long end = i == ranges - 1 ? Long.MIN_VALUE + width / 2 - 1 : start + width - 1;
+                long lastValidation = now - random.nextInt(10 * 24 * 3600) * 1000L;
+                rows.accept(start, end, lastValidation, lastValidation, outcome(random), NodeSets.EMPTY);
+            }
+        }
+        records = new ArrayList<>(rows.size() + 1);
+        rows.forEach((start, end, lastValidation, lastSuccess, outcome, missingNodes) -> {
+            Instant validation = Instant.ofEpochMilli(lastValidation);
+            Instant success = Instant.ofEpochMilli(lastSuccess);
+            if (start > end)
+            {
+                records.add(new NodeSyncRecord("ks", "tbl", new TokenRange(start, Long.MAX_VALUE), validation,
+                    outcome, success, Collections.emptySet()));
+                records.add(new NodeSyncRecord("ks", "tbl", new TokenRange(Long.MIN_VALUE, end), validation,
+                    outcome, success, Collections.emptySet()));
+            }
+            else
+            {
+                records.add(new NodeSyncRecord("ks", "tbl", new TokenRange(start, end), validation, outcome,
+                    success, Collections.emptySet()));
+            }
+        });
+    }
+
+    // Mostly in sync, with some repairs, partial and failed validations
+    private static int outcome(Random random)
+    {
+        int draw = random.nextInt(100);
+        return draw < 80 ? 0 : draw < 90 ? 1 : draw < 95 ? 2 + random.nextInt(2) : 4 + random.nextInt(2);
+    }
+
+    @Benchmark
+    public Coverage coverageEngine()
+    {
+        CoverageEngine engine = new CoverageEngine("ks", "tbl", nodeSets);
+        rows.forEach(engine);
+        return engine.merge();
+    }
+
+    @Benchmark
+    public Coverage parallelCoverageEngine()
+    {
+        CoverageEngine engine = new CoverageEngine("ks", "tbl", nodeSets);
+        rows.forEach(engine);
+        return engine.merge(ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public TreeSet<NodeSyncRecord> treeSetMerge()
+    {
+        TreeSet<NodeSyncRecord> nodeSyncRecords = new TreeSet<>(records);
+        TreeSet<NodeSyncRecord> tokenRangeValidationState = new TreeSet<>();
+        tokenRangeValidationState.add(NodeSyncRecord.createFullTokenRangeUncompletedRecord("ks", "tbl"));
+        for (NodeSyncRecord record : nodeSyncRecords)
+        {
+            NodeSyncRecord highestRecord = tokenRangeValidationState.last();
+            if (highestRecord.getTokenRange().intersectsWith(record.getTokenRange()))
+            {
+                if (highestRecord.getLastOutcome() <= 1 &&
+                    record.getLastOutcome() <= 1)
+                {
+                    tokenRangeValidationState.remove(highestRecord);
+                    tokenRangeValidationState.add(highestRecord.mergeWith(record));
+                }
+                else if (highestRecord.getLastOutcome() >= 2 &&
+                    record.getLastOutcome() >= 2)
+                {
+                    tokenRangeValidationState.remove(highestRecord);
+                    tokenRangeValidationState.add(highestRecord.mergeWith(record));
+                }
+                else
+                {
+                    if (highestRecord.getTokenRange().getLowerBound() == record.getTokenRange().getLowerBound())
+                    {
+                        tokenRangeValidationState.remove(highestRecord);
+                        tokenRangeValidationState.add(record);
+                    }
+                    else
+                    {
+                        tokenRangeValidationState.remove(highestRecord);
+                        tokenRangeValidationState
+                            .add(highestRecord.withUpperBound(record.getTokenRange().getLowerBound()));
+                        tokenRangeValidationState.add(record);
+                    }
+                }
+            }
+            else
+            {
+                // Gap in token ranges
+                tokenRangeValidationState.remove(highestRecord);
+                tokenRangeValidationState.add(highestRecord.withUpperBound(record.getTokenRange().getLowerBound()));
+                tokenRangeValidationState.add(record);
+            }
+        }
+        return tokenRangeValidationState;
+    }
+}
@@ -0,0 +1,95 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ Rows decoded per second: NodeSyncRecord.recordFromRow on SELECT * rows against RowDecoder on the projected rows that
+ the queries now return.  1% of the rows have missing nodes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowDecodingBenchmark
+{
+    private static final int ROWS = 10_000;
+
+    private Row[] rows;
+    private Row[] projectedRows;
+    private NodeSets nodeSets;
+    private RowDecoder decoder;
+
+    @Setup(Level.Trial)
+    public void generateRows() throws UnknownHostException
+    {
+        Random random = new Random(42);
+        Set<InetAddress> missingNodes = Collections.singleton(InetAddress.getByAddress(new byte[] { 10, 0, 0, 1 }));
+        rows = new Row[ROWS];
+        projectedRows = new Row[ROWS];
+        long width = -(Long.MIN_VALUE / ROWS) * 2;
+        for (int i = 0; i < ROWS; i++)
+        {
+            long start = Long.MIN_VALUE + i * width;
+            Instant lastSuccess = Instant.ofEpochMilli(1_600_000_000_000L + random.nextInt(1_000_000_000));
+            Instant lastFailure = Instant.ofEpochMilli(1_600_000_000_000L + random.nextInt(1_000_000_000));
+            int outcome = 2 + random.nextInt(4);
+            Set<InetAddress> missing = random.nextInt(100) == 0 ? missingNodes : null;
+            rows[i] = BenchmarkRows.row(BenchmarkRows.ALL_COLUMNS, "ks", "tbl", start, start + width - 1,
+                lastSuccess, lastFailure, outcome, missing);
+            projectedRows[i] = BenchmarkRows.row(BenchmarkRows.PROJECTED_COLUMNS, "ks", "tbl", start,
+                start + width - 1, lastSuccess, lastFailure, outcome, missing);
+        }
+        nodeSets = new NodeSets();
+        decoder = new RowDecoder(nodeSets);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void recordFromRow(Blackhole blackhole)
+    {
+        for (Row row : rows)
+        {
+            NodeSyncRecord.recordFromRow(row).forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void rowDecoder(Blackhole blackhole)
+    {
+        for (Row row : projectedRows)
+        {
+            decoder.decode(row, (startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) -> {
+                blackhole.consume(startToken);
+                blackhole.consume(endToken);
+                blackhole.consume(lastValidation);
+                blackhole.consume(lastSuccess);
+                blackhole.consume(outcome);
+                blackhole.consume(missingNodes);
+            });
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package fr.pingtimeout;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenRangeBenchmark
+{
+    // Fields rather than constants, so that the JIT cannot fold the results
+    private TokenRange range = new TokenRange(-1000, 1000);
+    private TokenRange overlapping = new TokenRange(500, 5000);
+    private TokenRange contiguous = new TokenRange(1001, 2000);
+    private TokenRange disjoint = new TokenRange(5000, 6000);
+    private long bound = 1001;
+
+    private NodeSyncRecord record = record(new TokenRange(-1000, 1000), 1_600_000_000_000L);
+    private NodeSyncRecord sameRangeRecord = record(new TokenRange(-1000, 1000), 1_600_000_001_000L);
+    private NodeSyncRecord otherRecord = record(new TokenRange(1001, 2000), 1_600_000_000_000L);
+
+    @Benchmark
+    public boolean intersectsWith()
+    {
+        return range.intersectsWith(overlapping);
+    }
+
+    @Benchmark
+    public boolean intersectsWithDisjoint()
+    {
+        return range.intersectsWith(disjoint);
+    }
+
+    @Benchmark
+    public boolean canIntersectWith()
+    {
+        return range.canIntersectWith(bound);
+    }
+
+    @Benchmark
+    public TokenRange mergeWith()
+    {
+        return range.mergeWith(contiguous);
+    }
+
+    @Benchmark
+    public int compareToOtherRange()
+    {
+        return record.compareTo(otherRecord);
+    }
+
+    @Benchmark
+    public int compareToSameRange()
+    {
+        return record.compareTo(sameRangeRecord);
+    }
+
+    private static NodeSyncRecord record(TokenRange range, long lastValidation)
+    {
+        return new NodeSyncRecord("ks", "tbl", range, Instant.ofEpochMilli(lastValidation), 0,
+            Instant.ofEpochMilli(lastValidation), Collections.emptySet());
+    }
+}
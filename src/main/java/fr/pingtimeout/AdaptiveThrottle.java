@@ -0,0 +1,139 @@
+package fr.pingtimeout;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.tracker.RequestTracker;
+
+/*
+ AIMD throttle of the status queries, driven by their latency as seen by the driver (each page is a request), so that
+ scans can keep running next to production traffic.
+
+ Latencies are collected over fixed windows.  At the end of a window, if its p99 is above the target or a request
+ failed, the in-flight limit and the page size are halved.  If the p99 is below half the target, the cluster is
+ considered idle and both grow by a step.  Otherwise nothing changes.  Scans start with a single query in flight and
+ small pages.  A lower limit is reached as running queries complete, and a page size applies to the queries started
+ afterwards.
+ */
+class AdaptiveThrottle implements RequestTracker
+{
+    static final int MIN_PAGE_SIZE = 100;
+
+    private final InFlightLimiter limiter;
+    private final long targetNanos;
+    private final long windowNanos;
+    private final int maxInFlight;
+    private final int maxPageSize;
+    private final int pageSizeStep;
+    private volatile int pageSize;
+    private int inFlightLimit = 1;
+
+    // Current window
+    private long windowStart;
+    private long[] latencies = new long[256];
+    private int latencyCount;
+    private boolean failed;
+
+    private long lastP99Nanos = -1;
+    private int decreases;
+    private int increases;
+
+    AdaptiveThrottle(long targetNanos, long windowNanos, int maxInFlight, int maxPageSize)
+    {
+        if (targetNanos <= 0 || windowNanos <= 0 || maxInFlight < 1)
+        {
+            throw new IllegalArgumentException("Latency target, window and in-flight limit must be positive");
+        }
+        this.targetNanos = targetNanos;
+        this.windowNanos = windowNanos;
+        this.maxInFlight = maxInFlight;
+        this.maxPageSize = Math.max(MIN_PAGE_SIZE, maxPageSize);
+        this.pageSizeStep = Math.max(MIN_PAGE_SIZE, this.maxPageSize / 10);
+        this.pageSize = pageSizeStep;
+        this.limiter = new InFlightLimiter(inFlightLimit);
+        this.windowStart = System.nanoTime();
+    }
+
+    InFlightLimiter getLimiter()
+    {
+        return limiter;
+    }
+
+    int getPageSize()
+    {
+        return pageSize;
+    }
+
+    @Override
+    public void onNodeSuccess(Request request, long latencyNanos, DriverExecutionProfile executionProfile, Node node,
+        String requestLogPrefix)
+    {
+        record(latencyNanos, false, System.nanoTime());
+    }
+
+    @Override
+    public void onNodeError(Request request, Throwable error, long latencyNanos,
+        DriverExecutionProfile executionProfile, Node node, String requestLogPrefix)
+    {
+        record(latencyNanos, true, System.nanoTime());
+    }
+
+    void record(long latencyNanos, boolean error, long nowNanos)
+    {
+        int limit;
+        synchronized (this)
+        {
+            if (latencyCount == latencies.length)
+            {
+                latencies = Arrays.copyOf(latencies, latencyCount * 2);
+            }
+            latencies[latencyCount++] = latencyNanos;
+            failed |= error;
+            if (nowNanos - windowStart < windowNanos)
+            {
+                return;
+            }
+            adjust();
+            limit = inFlightLimit;
+            windowStart = nowNanos;
+            latencyCount = 0;
+            failed = false;
+        }
+        // Outside of the lock, since a higher limit starts queued queries right away
+        limiter.setLimit(limit);
+    }
+
+    private void adjust()
+    {
+        Arrays.sort(latencies, 0, latencyCount);
+        lastP99Nanos = latencies[(int) Math.ceil(latencyCount * 0.99) - 1];
+        if (failed || lastP99Nanos > targetNanos)
+        {
+            decreases++;
+            inFlightLimit = Math.max(1, inFlightLimit / 2);
+            pageSize = Math.max(MIN_PAGE_SIZE, pageSize / 2);
+        }
+        else if (lastP99Nanos < targetNanos / 2)
+        {
+            increases++;
+            inFlightLimit = Math.min(maxInFlight, inFlightLimit + 1);
+            pageSize = Math.min(maxPageSize, pageSize + pageSizeStep);
+        }
+    }
+
+    synchronized void print()
+    {
+        System.out.printf(Locale.ROOT, "Throttle: %d slowdowns, %d speedups, now %d queries in flight with %d rows "
+                + "per page, last p99 %s%n", decreases, increases, inFlightLimit, pageSize,
+            lastP99Nanos < 0 ? "unknown" : TimeUnit.NANOSECONDS.toMillis(lastP99Nanos) + " ms");
+    }
+
+    @Override
+    public void close()
+    {
+    }
+}
@@ -1,112 +1,611 @@
 package fr.pingtimeout;
 
+import java.io.BufferedOutputStream;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-import java.util.TreeSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.stream.Stream;
 
 import com.datastax.oss.driver.api.core.CqlSession;
-import com.datastax.oss.driver.api.core.cql.ResultSet;
+import com.datastax.oss.driver.api.core.tracker.RequestTracker;
 
 public class App
 {
-    public static void main(String[] args)
+    public static void main(String[] args) throws InterruptedException
     {
-        String host = args.length < 1 ? "localhost" : args[0];
-        int port = args.length < 2 ? 9042 : Integer.parseInt(args[1]);
-        String dc = args.length < 3 ? "DC1" : args[2];
+        Options options = Options.parse(args);
+        String host = options.positional(0, "localhost");
+        int port = Integer.parseInt(options.positional(1, "9042"));
+        String dc = options.positional(2, "DC1");
+        ScanMode scanMode = ScanMode.fromName(options.get("scan", "filtering"));
+        List<TableReport> reports = new ArrayList<>();
+        if (options.isSet("staleness"))
+        {
+            reports.add(new StalenessReport(System.currentTimeMillis()));
+        }
+        if (options.isSet("missing-nodes"))
+        {
+            reports.add(new MissingNodesReport());
+        }
+        if (options.isSet("ring-algebra"))
+        {
+            reports.add(new RingAlgebraReport(options.getInt("ring-bits", RingBitmap.DEFAULT_BITS)));
+        }
+
+        RunTimer timer = options.isSet("timing") ? new RunTimer() : null;
+        ScanProfile profile = new ScanProfile(options.isSet("profile"));
+        if (options.isSet("snapshot") || options.isSet("synthetic"))
+        {
+            if (options.isSet("replica-sets"))
+            {
+                throw new IllegalArgumentException("--replica-sets needs the cluster topology, not recorded rows");
+            }
+            rejectOptions(options, options.isSet("snapshot") ? "snapshot" : "synthetic", "checkpoint");
+            try (RecordSource source = offlineSource(options, timer);
+                 SnapshotWriter snapshotWriter = options.isSet("dump")
+                     ? new SnapshotWriter(Paths.get(options.get("dump", null)))
+                     : null;
+                 SegmentWriter segmentWriter = openSegmentWriter(options);
+                 SnapshotReader baseline = openBaseline(options))
+            {
+                if (options.isSet("lookup"))
+                {
+                    QualifiedTable table = QualifiedTable.parse(options.get("lookup", null));
+                    lookup(readTable(source, table, snapshotWriter, null, profile.table(table)), options);
+                    return;
+                }
+                if (baseline != null)
+                {
+                    reports.add(new DiffReport(baseline));
+                }
+                if (options.isSet("eta"))
+                {
+                    // No schema without a cluster, every table gets --gc-grace
+                    reports.add(validationRates(options, Collections.emptyMap()));
+                }
+                processSource(source, keyspaces(options), snapshotWriter, TableReport.of(reports), segmentWriter,
+                    profile, null);
+            }
+            if (timer != null)
+            {
+                timer.print();
+            }
+            return;
+        }
+
+        if (options.isSet("clusters"))
+        {
+            rejectOptions(options, "clusters", "replica-sets", "diff", "dump", "lookup", "throttle", "checkpoint");
+            processClusters(FleetScan.Cluster.parse(Paths.get(options.get("clusters", null))), options, scanMode,
+                reports);
+            return;
+        }
+
+        if (options.isSet("checkpoint"))
+        {
+            // Only the sequential scan goes through the tables in order, discovered tables included
+            rejectOptions(options, "checkpoint", "lookup", "metrics-port", "watch", "stream", "reactive");
+            // Tables done in a previous run are skipped, they would be missing from the totals of these reports
+            rejectOptions(options, "checkpoint", "staleness", "missing-nodes", "ring-algebra", "eta", "diff",
+                "replica-sets");
+        }
+        if (options.isSet("throttle"))
+        {
+            // The sequential scans, --checkpoint and --lookup included, run one query at a time at the default page
+            // size: nothing there would follow the throttle
+            rejectOptions(options, "throttle", "checkpoint", "lookup");
+            if (Stream.of("discover", "reactive", "stream", "watch", "metrics-port").noneMatch(options::isSet))
+            {
+                throw new IllegalArgumentException(
+                    "--throttle needs --discover, --reactive, --stream, --watch or --metrics-port");
+            }
+        }
+        CoordinatorLatencies latencies = new CoordinatorLatencies();
+        RequestTrackers tracker = new RequestTrackers();
+        tracker.add(latencies);
+        int concurrency = options.getInt("concurrency", 32);
+        AdaptiveThrottle throttle = null;
+        if (options.isSet("throttle"))
+        {
+            // --concurrency and --page-size become upper bounds, reached only while the cluster keeps up
+            int maxPageSize = options.getInt("page-size", 5000);
+            throttle = new AdaptiveThrottle(TimeUnit.MILLISECONDS.toNanos(options.getInt("throttle", 0)),
+                options.getDuration("throttle-window", Duration.ofSeconds(1)).toNanos(), concurrency, maxPageSize);
+            tracker.add(throttle);
+            System.out.printf("Throttling to a p99 of %s ms, with up to %d queries in flight and %d rows per page%n",
+                options.get("throttle", null), concurrency, maxPageSize);
+        }
+        InFlightLimiter limiter = throttle == null ? new InFlightLimiter(concurrency) : throttle.getLimiter();
+        IntSupplier pageSize = throttle == null ? () -> 0 : throttle::getPageSize;
+        try (CqlSession session = connectToNode(host, port, dc, tracker);
+             SnapshotWriter snapshotWriter = options.isSet("dump")
+                 ? new SnapshotWriter(Paths.get(options.get("dump", null)))
+                 : null;
+             SegmentWriter segmentWriter = openSegmentWriter(options);
+             SnapshotReader baseline = openBaseline(options))
+        {
+            if (options.isSet("replica-sets"))
+            {
+                // Needs the cluster topology, hence a session
+                reports.add(new ReplicaSetsReport(keyspace -> VnodeOwnership.of(session.getMetadata().getTokenMap()
+                    .orElseThrow(() -> new IllegalStateException("Token metadata is disabled")), keyspace)));
+            }
+            if (baseline != null)
+            {
+                reports.add(new DiffReport(baseline));
+            }
+            if (options.isSet("eta"))
+            {
+                reports.add(validationRates(options, SchemaDiscovery.gcGraces(session)));
+            }
+            TableReport report = TableReport.of(reports);
+            if (options.isSet("lookup"))
+            {
+                QualifiedTable table = QualifiedTable.parse(options.get("lookup", null));
+                lookup(readTable(new LiveSource(session, scanMode, Collections.singletonList(table)), table,
+                    snapshotWriter, null, profile.table(table)), options);
+                return;
+            }
+            List<QualifiedTable> tables = selectTables(session, options);
+            if (options.isSet("metrics-port"))
+            {
+                new MetricsExporter(session, tables, scanMode, limiter, pageSize, options.getInt("metrics-port", 0))
+                    .run(options.getDuration("metrics-interval", Duration.ofMinutes(5)));
+            }
+            else if (options.isSet("watch"))
+            {
+                new WatchMode(session, tables, limiter, pageSize,
+                    options.getInt("watch-groups", NodeSyncStatusTable.RANGE_GROUP_COUNT))
+                    .run(options.getDuration("watch", null));
+            }
+            else if (options.isSet("stream"))
+            {
+                for (QualifiedTable table : tables)
+                {
+                    System.out.printf("Checking %s...%n", table);
+                    // Under --throttle, the page size of the throttle when the table starts
+                    processTableStreaming(session, table, limiter,
+                        throttle == null ? options.getInt("page-size", 1000) : pageSize.getAsInt(), segmentWriter);
+                }
+            }
+            else if (options.isSet("reactive"))
+            {
+                processTablesReactive(session, tables, scanMode, limiter, pageSize, options.getInt("batch-size", 500),
+                    options.getInt("threads", 4), options.getInt("max-tables", 4), snapshotWriter, report,
+                    segmentWriter);
+            }
+            else if (options.isSet("checkpoint"))
+            {
+                Path path = Paths.get(options.get("checkpoint", null));
+                try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, scanMode))
+                {
+                    if (checkpoint.getDoneCount() > 0)
+                    {
+                        System.out.printf("Resuming from %s, skipping %d tables already checked%n", path,
+                            checkpoint.getDoneCount());
+                    }
+                    RecordSource source = new CheckpointedSource(session, scanMode, tables, checkpoint);
+                    processSource(timer == null ? source : timer.count(source), Collections.emptySet(),
+                        snapshotWriter, report, segmentWriter, profile, checkpoint);
+                    // Every table is done, the next run starts over
+                    checkpoint.delete();
+                }
+                if (timer != null)
+                {
+                    timer.print();
+                }
+            }
+            else if (options.isSet("discover"))
+            {
+                processTablesAsync(session, tables, scanMode, limiter, pageSize, snapshotWriter, report,
+                    segmentWriter);
+            }
+            else
+            {
+                RecordSource source = new LiveSource(session, scanMode, tables);
+                processSource(timer == null ? source : timer.count(source), Collections.emptySet(), snapshotWriter,
+                    report, segmentWriter, profile, null);
+                if (timer != null)
+                {
+                    timer.print();
+                }
+            }
+            if (scanMode == ScanMode.REPLICAS)
+            {
+                latencies.print();
+            }
+            if (throttle != null)
+            {
+                throttle.print();
+            }
+        }
+    }
+
+    private static Set<String> keyspaces(Options options)
+    {
+        return options.isSet("keyspaces")
+            ? new HashSet<>(Arrays.asList(options.get("keyspaces", "").split(",")))
+            : Collections.emptySet();
+    }
+
+    // Rows from a snapshot or a synthetic workload, counted when timing the run
+    private static RecordSource offlineSource(Options options, RunTimer timer)
+    {
+        RecordSource source = options.isSet("snapshot")
+            ? new SnapshotReader(Paths.get(options.get("snapshot", null)))
+            : new SyntheticSource(syntheticWorkload(options), System.currentTimeMillis());
+        return timer == null ? source : timer.count(source);
+    }
+
+    private static SyntheticSource.Workload syntheticWorkload(Options options)
+    {
+        SyntheticSource.Workload workload = new SyntheticSource.Workload();
+        workload.tables = options.getInt("synthetic", workload.tables);
+        workload.nodes = options.getInt("nodes", workload.nodes);
+        workload.vnodesPerNode = options.getInt("vnodes", workload.vnodesPerNode);
+        workload.segmentsPerVnode = options.getInt("segments", workload.segmentsPerVnode);
+        workload.replicationFactor = options.getInt("rf", workload.replicationFactor);
+        workload.maxAge = options.getDuration("max-age", workload.maxAge);
+        workload.seed = Long.parseLong(options.get("seed", String.valueOf(workload.seed)));
+        if (options.isSet("outcomes"))
+        {
+            workload.outcomeWeights = Arrays.stream(options.get("outcomes", null).split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        }
+        return workload;
+    }
+
+    // Every table of the source in order, optionally restricted to some keyspaces and recorded in the checkpoint
+    private static void processSource(RecordSource source, Set<String> keyspaces, SnapshotWriter snapshotWriter,
+        TableReport report, SegmentWriter segmentWriter, ScanProfile profile, ScanCheckpoint checkpoint)
+    {
+        for (QualifiedTable table : source.getTables())
+        {
+            if (!keyspaces.isEmpty() && !keyspaces.contains(table.getKeyspace()))
+            {
+                continue;
+            }
+            System.out.printf("Checking %s...%n", table);
+            ScanProfile.Table tableProfile = profile.table(table);
+            Coverage coverage = readTable(source, table, snapshotWriter, report, tableProfile);
+            tableProfile.begin(ScanProfile.Phase.OUTPUT);
+            printCoverage(coverage, segmentWriter);
+            tableProfile.end(coverage.size(), 0);
+            tableProfile.finish();
+            if (checkpoint != null)
+            {
+                checkpoint.tableDone(table);
+            }
+        }
+        if (report != null)
+        {
+            report.print();
+        }
+        profile.print();
+    }
+
+    // Finds the segments that contain a token (--token), a partition key (--key) or every key of a file (--keys-file)
+    private static void lookup(Coverage coverage, Options options)
+    {
+        CoverageIndex index = new CoverageIndex(coverage);
+        if (options.isSet("token"))
+        {
+            long token = Long.parseLong(options.get("token", null));
+            printLookup(index, String.valueOf(token), token, System.out);
+            return;
+        }
+        PartitionKeys keys = new PartitionKeys(options.get("key-type", "text"));
+        if (options.isSet("key"))
+        {
+            String key = options.get("key", null);
+            printLookup(index, key, keys.token(key), System.out);
+            return;
+        }
+        if (!options.isSet("keys-file"))
+        {
+            throw new IllegalArgumentException("--lookup needs --token, --key or --keys-file");
+        }
+        // One key per line, results are buffered since there can be many of them
+        PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16));
+        try (Stream<String> lines = Files.lines(Paths.get(options.get("keys-file", null))))
+        {
+            lines
+                .filter(line -> !line.isEmpty())
+                .forEach(key -> printLookup(index, key, keys.token(key), out));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        finally
+        {
+            out.flush();
+        }
+    }
+
+    private static void printLookup(CoverageIndex index, String key, long token, PrintStream out)
+    {
+        NodeSyncRecord segment = index.lookup(token);
+        if (segment == null)
+        {
+            out.printf("%s (token %d): not covered%n", key, token);
+        }
+        else
+        {
+            out.printf("%s (token %d): %s, lastSuccess=%s%n", key, token, segment, segment.getLastSuccess());
+        }
+    }
+
+    private static List<QualifiedTable> selectTables(CqlSession session, Options options)
+    {
+        if (options.isSet("discover"))
+        {
+            return SchemaDiscovery.discoverTables(session, keyspaces(options));
+        }
         String keyspace = "domain_1300";
         List<String> tables = Arrays
             .asList("xml_doc_1300", "xml_doc_1305", "xml_doc_1307", "xml_idx_1300_1", "xml_idx_1300_2",
                 "xml_idx_1300_3", "xml_idx_1300_4", "xml_idx_1300_5", "xml_idx_1301_1", "xml_idx_1305_1");
 //        tables = Collections.singletonList("xml_idx_1300_2");
+        return tables.stream()
+            .map(table -> new QualifiedTable(keyspace, table))
+            .collect(Collectors.toList());
+    }
+
+    private static void processTablesAsync(CqlSession session, List<QualifiedTable> tables, ScanMode scanMode,
+        InFlightLimiter limiter, IntSupplier pageSize, SnapshotWriter snapshotWriter, TableReport report,
+        SegmentWriter segmentWriter)
+    {
+        System.out.printf("Checking %d tables with up to %d queries in flight%n", tables.size(), limiter.getLimit());
+        AsyncTableScanner scanner = new AsyncTableScanner(session, scanMode, limiter, pageSize,
+            ForkJoinPool.commonPool(), snapshotWriter,
+            (statement, consumer) -> AsyncPaging.forEachPage(session, statement, consumer));
+        printInTableOrder(scanner, tables, new InFlightLimiter(Integer.MAX_VALUE), report, segmentWriter);
+    }
 
-        try (CqlSession session = connectToNode(host, port, dc))
+    /*
+     Rows are decoded and merged by a small pool, each query only asks for more rows when its last batch is decoded.
+     The rows of a table are kept until it is merged, so only maxTables tables are read at the same time.
+     */
+    private static void processTablesReactive(CqlSession session, List<QualifiedTable> tables, ScanMode scanMode,
+        InFlightLimiter limiter, IntSupplier pageSize, int batchSize, int threads, int maxTables,
+        SnapshotWriter snapshotWriter, TableReport report, SegmentWriter segmentWriter)
+    {
+        System.out.printf("Checking %d tables, %d at a time, with up to %d reactive queries in flight, %d rows per "
+            + "batch and %d threads%n", tables.size(), maxTables, limiter.getLimit(), batchSize, threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try
         {
-            for (String table : tables)
-            {
-                System.out.printf("Checking %s.%s...%n", keyspace, table);
-                processTable(keyspace, session, table).forEach(System.out::println);
-            }
+            AsyncTableScanner scanner = new AsyncTableScanner(session, scanMode, limiter, pageSize, executor,
+                snapshotWriter,
+                (statement, consumer) -> ReactivePaging.forEachBatch(session, statement, batchSize, executor,
+                    consumer));
+            printInTableOrder(scanner, tables, new InFlightLimiter(maxTables), report, segmentWriter);
+        }
+        finally
+        {
+            executor.shutdown();
         }
     }
 
-    private static CqlSession connectToNode(String host, int port, String localDc)
+    // Tables are scanned in order, as the table limiter allows, and the query limiter decides when queries are sent
+    private static void printInTableOrder(AsyncTableScanner scanner, List<QualifiedTable> tables,
+        InFlightLimiter tableLimiter, TableReport report, SegmentWriter segmentWriter)
     {
-        System.out.printf("Connecting to %s:%d and using %s as local Datacenter%n", host, port, localDc);
-        return CqlSession.builder()
-            .addContactPoint(new InetSocketAddress(host, port))
-            .withLocalDatacenter(localDc)
-            .build();
+        List<CompletableFuture<Coverage>> results = tables.stream()
+            .map(table -> tableLimiter.submit(() -> scanner.scan(table, report)))
+            .collect(Collectors.toList());
+        // Results are printed in table order, each one as soon as it and all the previous ones are available
+        for (int i = 0; i < tables.size(); i++)
+        {
+            System.out.printf("Checking %s...%n", tables.get(i));
+            try
+            {
+                printCoverage(results.get(i).join(), segmentWriter);
+            }
+            catch (CompletionException e)
+            {
+                System.out.printf("Could not check %s: %s%n", tables.get(i), e.getCause());
+            }
+        }
+        if (report != null)
+        {
+            report.print();
+        }
     }
 
-    private static TreeSet<NodeSyncRecord> processTable(String keyspace, CqlSession session, String table)
+    // Clusters are printed in file order, each one once it and all the previous ones are checked
+    private static void processClusters(List<FleetScan.Cluster> clusters, Options options, ScanMode scanMode,
+        List<TableReport> reports)
     {
-        ResultSet resultSet = session.execute("" +
-            "SELECT * " +
-            "FROM system_distributed.nodesync_status " +
-            "WHERE keyspace_name = '" + keyspace + "' " +
-            "AND table_name = '" + table + "' " +
-            "ALLOW FILTERING");
-        TreeSet<NodeSyncRecord> nodeSyncRecords = StreamSupport
-            .stream(resultSet.spliterator(), false)
-            .flatMap(NodeSyncRecord::recordFromRow)
-            .collect(Collectors.toCollection(TreeSet::new));
-
-        TreeSet<NodeSyncRecord> tokenRangeValidationState = new TreeSet<>();
-        tokenRangeValidationState.add(NodeSyncRecord.createFullTokenRangeUncompletedRecord(keyspace, table));
-        for (NodeSyncRecord record : nodeSyncRecords)
+        int maxSessions = options.getInt("max-sessions", 4);
+        int concurrency = options.getInt("concurrency", 32);
+        System.out.printf("Checking %d clusters with up to %d sessions and %d queries in flight per cluster%n",
+            clusters.size(), maxSessions, concurrency);
+        long start = System.nanoTime();
+        // Filled by every cluster before its tables are checked
+        Map<QualifiedTable, Duration> gcGraces = options.isSet("eta") ? new ConcurrentHashMap<>() : null;
+        if (gcGraces != null)
+        {
+            reports.add(validationRates(options, gcGraces));
+        }
+        TableReport report = TableReport.of(reports);
+        ExecutorService sessionPool = Executors.newFixedThreadPool(maxSessions);
+        int tables = 0;
+        int failures = 0;
+        try (SharedEventLoops eventLoops = new SharedEventLoops(options.getInt("io-threads", 0));
+             SegmentWriter segmentWriter = openSegmentWriter(options))
         {
-            NodeSyncRecord highestRecord = tokenRangeValidationState.last();
-            //System.out.println("Highest record : " + highestRecord);
-            //System.out.println("Current record : " + record);
-            if (highestRecord.getTokenRange().intersectsWith(record.getTokenRange()))
+            FleetScan fleet = new FleetScan(eventLoops, sessionPool, ForkJoinPool.commonPool(), scanMode,
+                concurrency);
+            List<CompletableFuture<List<FleetScan.TableResult>>> results = clusters.stream()
+                .map(cluster -> fleet.scan(cluster, report, gcGraces))
+                .collect(Collectors.toList());
+            for (int i = 0; i < clusters.size(); i++)
             {
-                if (highestRecord.getLastOutcome() <= 1 &&
-                    record.getLastOutcome() <= 1)
+                List<FleetScan.TableResult> clusterResults;
+                try
                 {
-                    //System.out.println("Intersect and match successful outcome");
-                    tokenRangeValidationState.remove(highestRecord);
-                    tokenRangeValidationState.add(highestRecord.mergeWith(record));
+                    clusterResults = results.get(i).join();
                 }
-                else if (highestRecord.getLastOutcome() >= 2 &&
-                    record.getLastOutcome() >= 2)
+                catch (CompletionException e)
                 {
-                    //System.out.println("Intersect and match unsuccessful outcome");
-                    tokenRangeValidationState.remove(highestRecord);
-                    tokenRangeValidationState.add(highestRecord.mergeWith(record));
+                    failures++;
+                    System.out.printf("Could not check cluster %s: %s%n", clusters.get(i), e.getCause());
+                    continue;
                 }
-                else
+                for (FleetScan.TableResult result : clusterResults)
                 {
-                    if (highestRecord.getTokenRange().getLowerBound() == record.getTokenRange().getLowerBound())
+                    tables++;
+                    System.out.printf("Checking %s...%n", result.table);
+                    if (result.error == null)
                     {
-                        //System.out.println("Intersect with different outcome starting at the same token");
-                        tokenRangeValidationState.remove(highestRecord);
-                        tokenRangeValidationState.add(record);
+                        printCoverage(result.coverage, result.table.getKeyspace(), segmentWriter);
                     }
                     else
                     {
-                        //System.out.println("Intersect with different outcome");
-                        tokenRangeValidationState.remove(highestRecord);
-                        tokenRangeValidationState
-                            .add(highestRecord.withUpperBound(record.getTokenRange().getLowerBound()));
-                        tokenRangeValidationState.add(record);
+                        System.out.printf("Could not check %s: %s%n", result.table, result.error);
                     }
                 }
             }
-            else
+        }
+        finally
+        {
+            sessionPool.shutdown();
+        }
+        if (report != null)
+        {
+            report.print();
+        }
+        System.out.printf(Locale.ROOT, "Checked %d tables of %d clusters (%d failed) in %.1f s%n", tables,
+            clusters.size(), failures, (System.nanoTime() - start) / 1e9);
+    }
+
+    private static void rejectOptions(Options options, String mode, String... unsupported)
+    {
+        for (String option : unsupported)
+        {
+            if (options.isSet(option))
             {
-                //System.out.println("Does not intersect");
-                // Gap in token ranges
-                tokenRangeValidationState.remove(highestRecord);
-                tokenRangeValidationState.add(highestRecord.withUpperBound(record.getTokenRange().getLowerBound()));
-                tokenRangeValidationState.add(record);
+                throw new IllegalArgumentException("--" + option + " cannot be used with --" + mode);
             }
-            //System.out.println();
         }
-        return tokenRangeValidationState;
+    }
+
+    // Null without --output
+    private static SegmentWriter openSegmentWriter(Options options)
+    {
+        return options.isSet("output")
+            ? SegmentWriter.open(Paths.get(options.get("output", null)), options.get("format", null))
+            : null;
+    }
+
+    // Tables missing from gcGraces get --gc-grace, 10 days by default like in Cassandra
+    private static ValidationRateReport validationRates(Options options, Map<QualifiedTable, Duration> gcGraces)
+    {
+        Duration defaultGcGrace = options.getDuration("gc-grace", Duration.ofDays(10));
+        return new ValidationRateReport(System.currentTimeMillis(),
+            options.getDuration("rate-window", Duration.ofDays(1)),
+            table -> gcGraces.getOrDefault(table, defaultGcGrace));
+    }
+
+    // Snapshot the current run is compared with, null without --diff
+    private static SnapshotReader openBaseline(Options options)
+    {
+        return options.isSet("diff") ? new SnapshotReader(Paths.get(options.get("diff", null))) : null;
+    }
+
+    // Segments go to the output file when there is one, to the console otherwise
+    private static void printCoverage(Coverage coverage, SegmentWriter segmentWriter)
+    {
+        printCoverage(coverage, coverage.getKeyspace(), segmentWriter);
+    }
+
+    // The keyspace written to the output file can differ from the one of the coverage, e.g. to tell clusters apart
+    private static void printCoverage(Coverage coverage, String keyspace, SegmentWriter segmentWriter)
+    {
+        if (segmentWriter == null)
+        {
+            coverage.toRecords().forEach(System.out::println);
+        }
+        else
+        {
+            coverage.forEach(segmentWriter.forTable(keyspace, coverage.getTable(),
+                coverage.getNodeSets()));
+        }
+    }
+
+    private static CqlSession connectToNode(String host, int port, String localDc, RequestTracker tracker)
+    {
+        System.out.printf("Connecting to %s:%d and using %s as local Datacenter%n", host, port, localDc);
+        return CqlSession.builder()
+            .addContactPoint(new InetSocketAddress(host, port))
+            .withLocalDatacenter(localDc)
+            .withRequestTracker(tracker)
+            .build();
+    }
+
+    // Segments are printed or written as soon as they are merged, nothing is kept per row
+    private static void processTableStreaming(CqlSession session, QualifiedTable table, InFlightLimiter limiter,
+        int pageSize, SegmentWriter segmentWriter)
+    {
+        NodeSets nodeSets = new NodeSets();
+        RecordSink output = segmentWriter != null
+            ? segmentWriter.forTable(table.getKeyspace(), table.getTable(), nodeSets)
+            : (lowerBound, upperBound, lastValidation, lastSuccess, outcome, missingNodes) -> System.out.println(
+                NodeSyncRecord.fromSegment(table.getKeyspace(), table.getTable(), nodeSets, lowerBound, upperBound,
+                    lastValidation, lastSuccess, outcome, missingNodes));
+        StreamingScan.scan(session, table.getKeyspace(), table.getTable(), limiter, pageSize, nodeSets, output);
+    }
+
+    // The optional report also receives every row, the optional snapshot writer keeps them
+    private static Coverage readTable(RecordSource source, QualifiedTable table, SnapshotWriter snapshotWriter,
+        TableReport report, ScanProfile.Table profile)
+    {
+        CoverageEngine engine = new CoverageEngine(table.getKeyspace(), table.getTable());
+        RecordColumns rows = new RecordColumns(snapshotWriter == null ? 0 : 1024);
+        RecordSink stored = snapshotWriter == null ? engine : engine.andThen(rows);
+        RecordSink sink = report == null ? stored : stored.andThen(report.forTable(table, engine.getNodeSets()));
+        source.read(table, engine.getNodeSets(), sink, profile);
+        profile.setRows(engine.size());
+        if (snapshotWriter != null)
+        {
+            profile.begin(ScanProfile.Phase.OUTPUT);
+            snapshotWriter.writeTable(table.getKeyspace(), table.getTable(), rows, engine.getNodeSets());
+            profile.end(rows.size(), 0);
+        }
+        profile.begin(ScanProfile.Phase.MERGE);
+        Coverage coverage = engine.merge(ForkJoinPool.commonPool());
+        if (report != null)
+        {
+            report.merged(table, coverage);
+        }
+        profile.end(engine.size(), 0);
+        return coverage;
     }
 }
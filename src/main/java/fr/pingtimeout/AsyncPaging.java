@@ -0,0 +1,34 @@
+package fr.pingtimeout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+final class AsyncPaging
+{
+    private AsyncPaging()
+    {
+    }
+
+    // Pages are consumed on driver threads, one after the other, as soon as they arrive
+    static CompletionStage<Void> forEachPage(CqlSession session, Statement<?> statement,
+        Consumer<Iterable<Row>> consumer)
+    {
+        return session.executeAsync(statement).thenCompose(page -> readPages(page, consumer));
+    }
+
+    private static CompletionStage<Void> readPages(AsyncResultSet page, Consumer<Iterable<Row>> consumer)
+    {
+        consumer.accept(page.currentPage());
+        if (page.hasMorePages())
+        {
+            return page.fetchNextPage().thenCompose(nextPage -> readPages(nextPage, consumer));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -0,0 +1,100 @@
+package fr.pingtimeout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+/*
+ Reads the status of many tables concurrently with executeAsync, or executeReactive given a ReactivePaging fetcher.
+ Every query (and all of its pages) holds one slot of the shared limiter, and gets its page size when it starts.  Rows
+ are decoded as soon as their page arrives and a table is merged as soon as its last page has been decoded.
+ */
+class AsyncTableScanner
+{
+    private final CqlSession session;
+    private final ScanMode scanMode;
+    private final InFlightLimiter limiter;
+    private final Executor mergeExecutor;
+    private final RowFetcher rowFetcher;
+    // 0 keeps the page size of the driver configuration
+    private final IntSupplier pageSize;
+    // Optional, receives the rows of every table scanned
+    private final SnapshotWriter snapshotWriter;
+
+    AsyncTableScanner(CqlSession session, ScanMode scanMode, InFlightLimiter limiter, Executor mergeExecutor,
+        SnapshotWriter snapshotWriter)
+    {
+        this(session, scanMode, limiter, () -> 0, mergeExecutor, snapshotWriter,
+            (statement, consumer) -> AsyncPaging.forEachPage(session, statement, consumer));
+    }
+
+    AsyncTableScanner(CqlSession session, ScanMode scanMode, InFlightLimiter limiter, IntSupplier pageSize,
+        Executor mergeExecutor, SnapshotWriter snapshotWriter, RowFetcher rowFetcher)
+    {
+        this.session = session;
+        this.scanMode = scanMode;
+        this.limiter = limiter;
+        this.pageSize = pageSize;
+        this.mergeExecutor = mergeExecutor;
+        this.snapshotWriter = snapshotWriter;
+        this.rowFetcher = rowFetcher;
+    }
+
+    CompletableFuture<Coverage> scan(QualifiedTable table)
+    {
+        return scan(table, null);
+    }
+
+    // The optional report also receives every decoded row, never from two threads at once
+    CompletableFuture<Coverage> scan(QualifiedTable table, TableReport report)
+    {
+        CoverageEngine engine = new CoverageEngine(table.getKeyspace(), table.getTable());
+        RecordColumns rows = new RecordColumns(snapshotWriter == null ? 0 : 1024);
+        RecordSink stored = snapshotWriter == null ? engine : engine.andThen(rows);
+        RecordSink sink = report == null ? stored : stored.andThen(report.forTable(table, engine.getNodeSets()));
+        CompletableFuture<?>[] fetches = scanMode
+            .statements(session, table.getKeyspace(), table.getTable())
+            .map(statement -> limiter.submit(() -> fetchAllPages(statement.setPageSize(pageSize.getAsInt()), engine,
+                new RowDecoder(engine.getNodeSets()), sink)))
+            .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(fetches).thenApplyAsync(ignored -> {
+            if (snapshotWriter != null)
+            {
+                snapshotWriter.writeTable(table.getKeyspace(), table.getTable(), rows, engine.getNodeSets());
+            }
+            Coverage coverage = engine.merge();
+            if (report != null)
+            {
+                report.merged(table, coverage);
+            }
+            return coverage;
+        }, mergeExecutor);
+    }
+
+    private CompletionStage<Void> fetchAllPages(Statement<?> statement, CoverageEngine engine, RowDecoder decoder,
+        RecordSink sink)
+    {
+        return rowFetcher.fetch(statement, page -> {
+            // Pages of different range groups of the same table can be decoded concurrently
+            synchronized (engine)
+            {
+                for (Row row : page)
+                {
+                    decoder.decode(row, sink);
+                }
+            }
+        });
+    }
+
+    // Reads all the rows of a statement, a page or a batch at a time, one after the other
+    interface RowFetcher
+    {
+        CompletionStage<Void> fetch(Statement<?> statement, Consumer<Iterable<Row>> consumer);
+    }
+}
@@ -0,0 +1,91 @@
+package fr.pingtimeout;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PagingState;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+/*
+ Same as LiveSource, recording every page in a checkpoint.  Tables done in a previous run are not read again, and the
+ table that was being read goes on from its last page: its rows are taken from the checkpoint and the query that was
+ running is resumed with its paging state.  The paging state is checked by the driver against the query, it cannot be
+ applied to another table or range group.
+ */
+class CheckpointedSource implements RecordSource
+{
+    private final CqlSession session;
+    private final ScanMode scanMode;
+    private final List<QualifiedTable> tables;
+    private final ScanCheckpoint checkpoint;
+
+    CheckpointedSource(CqlSession session, ScanMode scanMode, List<QualifiedTable> tables, ScanCheckpoint checkpoint)
+    {
+        this.session = session;
+        this.scanMode = scanMode;
+        this.tables = tables.stream()
+            .filter(table -> !checkpoint.isDone(table))
+            .collect(Collectors.toList());
+        this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public List<QualifiedTable> getTables()
+    {
+        return tables;
+    }
+
+    @Override
+    public void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink)
+    {
+        read(table, nodeSets, sink, new ScanProfile(false).table(table));
+    }
+
+    @Override
+    public void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink, ScanProfile.Table profile)
+    {
+        profile.begin(ScanProfile.Phase.DECODE);
+        ScanCheckpoint.Position position = checkpoint.resume(table, nodeSets, sink);
+        profile.end(position.rows, 0);
+        if (position.rows > 0 || position.statement > 0)
+        {
+            System.out.printf("Resuming %s from the checkpoint, %d rows already read%n", table, position.rows);
+        }
+        List<? extends Statement<?>> statements = scanMode.statements(session, table.getKeyspace(), table.getTable())
+            .collect(Collectors.toList());
+        RowDecoder decoder = new RowDecoder(nodeSets);
+        RecordColumns page = new RecordColumns(1024);
+        for (int i = position.statement; i < statements.size(); i++)
+        {
+            Statement<?> statement = statements.get(i);
+            if (i == position.statement && position.pagingState != null)
+            {
+                statement = statement.setPagingState(PagingState.fromBytes(position.pagingState), session);
+            }
+            int statementIndex = i;
+            LiveSource.readPages(session, statement, profile, result -> {
+                profile.begin(ScanProfile.Phase.DECODE);
+                int rows = result.remaining();
+                page.clear();
+                for (Row row : result.currentPage())
+                {
+                    decoder.decode(row, page);
+                }
+                page.forEach(sink);
+                profile.end(rows, 0);
+                // Not profiled, the phases are the ones of a scan without checkpoint
+                boolean more = result.hasMorePages();
+                checkpoint.page(page, nodeSets, more ? statementIndex : statementIndex + 1,
+                    more ? result.getExecutionInfo().getSafePagingState().toBytes() : null);
+            });
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        checkpoint.close();
+    }
+}
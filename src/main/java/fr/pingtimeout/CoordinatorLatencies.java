@@ -0,0 +1,78 @@
+package fr.pingtimeout;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.tracker.RequestTracker;
+
+/*
+ Latency of every request (each page is a request) per coordinator, as seen by the driver, to spot the nodes that slow
+ a scan down.
+ */
+class CoordinatorLatencies implements RequestTracker
+{
+    private final Map<Node, Latencies> latencies = new ConcurrentHashMap<>();
+
+    @Override
+    public void onNodeSuccess(Request request, long latencyNanos, DriverExecutionProfile executionProfile, Node node,
+        String requestLogPrefix)
+    {
+        latencies.computeIfAbsent(node, ignored -> new Latencies()).record(latencyNanos, false);
+    }
+
+    @Override
+    public void onNodeError(Request request, Throwable error, long latencyNanos,
+        DriverExecutionProfile executionProfile, Node node, String requestLogPrefix)
+    {
+        latencies.computeIfAbsent(node, ignored -> new Latencies()).record(latencyNanos, true);
+    }
+
+    void print()
+    {
+        System.out.println("Requests per coordinator:");
+        latencies.entrySet().stream()
+            .sorted(Comparator.comparing(entry -> entry.getKey().getEndPoint().toString()))
+            .forEach(entry -> System.out.printf("  %s (%s): %s%n", entry.getKey().getEndPoint(),
+                entry.getKey().getDatacenter(), entry.getValue()));
+    }
+
+    @Override
+    public void close()
+    {
+    }
+
+    private static class Latencies
+    {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long latencyNanos, boolean error)
+        {
+            count.increment();
+            if (error)
+            {
+                errors.increment();
+            }
+            totalNanos.add(latencyNanos);
+            maxNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        @Override
+        public String toString()
+        {
+            long requests = count.sum();
+            return String.format("%d requests, %d errors, mean %d ms, max %d ms", requests, errors.sum(),
+                requests == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / requests),
+                TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+        }
+    }
+}
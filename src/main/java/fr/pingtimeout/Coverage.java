@@ -0,0 +1,118 @@
+package fr.pingtimeout;
+
+import java.util.TreeSet;
+
+/*
+ Merged validation state of a table: non-wrapping segments sorted by token, stored as primitive columns.  Segments are
+ appended by a CoverageMerger, NodeSyncRecord instances are only created on demand as a view over them.
+ */
+class Coverage implements RecordSink
+{
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String keyspace;
+    private final String table;
+    private final NodeSets nodeSets;
+    private final RecordColumns segments = new RecordColumns(INITIAL_CAPACITY);
+
+    Coverage(String keyspace, String table, NodeSets nodeSets)
+    {
+        this.keyspace = keyspace;
+        this.table = table;
+        this.nodeSets = nodeSets;
+    }
+
+    @Override
+    public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        segments.accept(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+    }
+
+    // Replays every segment, in token order
+    void forEach(RecordSink sink)
+    {
+        segments.forEach(sink);
+    }
+
+    void forEach(int from, int to, RecordSink sink)
+    {
+        for (int i = from; i < to; i++)
+        {
+            segments.send(i, sink);
+        }
+    }
+
+    // Appends segments [from;to[ to another coverage
+    void copyTo(Coverage that, int from, int to)
+    {
+        that.segments.append(segments, from, to);
+    }
+
+    String getKeyspace()
+    {
+        return keyspace;
+    }
+
+    String getTable()
+    {
+        return table;
+    }
+
+    NodeSets getNodeSets()
+    {
+        return nodeSets;
+    }
+
+    int size()
+    {
+        return segments.size();
+    }
+
+    long lowerBound(int index)
+    {
+        return segments.startToken(index);
+    }
+
+    long upperBound(int index)
+    {
+        return segments.endToken(index);
+    }
+
+    long lastValidation(int index)
+    {
+        return segments.lastValidation(index);
+    }
+
+    long lastSuccess(int index)
+    {
+        return segments.lastSuccess(index);
+    }
+
+    int outcome(int index)
+    {
+        return segments.outcome(index);
+    }
+
+    int missingNodes(int index)
+    {
+        return segments.missingNodes(index);
+    }
+
+    NodeSyncRecord record(int index)
+    {
+        return NodeSyncRecord.fromSegment(keyspace, table, nodeSets, segments.startToken(index),
+            segments.endToken(index), segments.lastValidation(index), segments.lastSuccess(index),
+            segments.outcome(index), segments.missingNodes(index));
+    }
+
+    TreeSet<NodeSyncRecord> toRecords()
+    {
+        TreeSet<NodeSyncRecord> records = new TreeSet<>();
+        for (int i = 0; i < size(); i++)
+        {
+            records.add(record(i));
+        }
+        return records;
+    }
+}
@@ -0,0 +1,193 @@
+package fr.pingtimeout;
+
+/*
+ Token-weighted comparison of two merged coverages of a table, e.g. last night's and now: how many tokens went from
+ each outcome to each other one, with parts of the ring covered by no segment as an extra state.  Both coverages are
+ sorted, so they are compared in a single walk over their bounds.
+ */
+class CoverageDiff
+{
+    static final int NOT_COVERED = CoverageMetrics.OUTCOME_COUNT;
+    static final int STATE_COUNT = NOT_COVERED + 1;
+    private static final String[] STATE_NAMES = {
+        "fully in sync", "fully repaired", "partially in sync", "partially repaired", "uncompleted", "failed",
+        "not covered" };
+
+    // Tokens per state before and state after
+    private final double[][] transitions = new double[STATE_COUNT][STATE_COUNT];
+    // Tokens validated again since the first coverage, whatever the outcome
+    private double revalidatedTokens;
+
+    static CoverageDiff of(Coverage before, Coverage after, SpanSink changedSpans)
+    {
+        CoverageDiff diff = new CoverageDiff();
+        Span pending = new Span();
+        int i = 0;
+        int j = 0;
+        long position = Long.MIN_VALUE;
+        while (position != Long.MAX_VALUE)
+        {
+            // Segments are (lowerBound;upperBound], skip the ones that end before the current part of the ring
+            while (i < before.size() && before.upperBound(i) <= position)
+            {
+                i++;
+            }
+            while (j < after.size() && after.upperBound(j) <= position)
+            {
+                j++;
+            }
+            boolean inBefore = i < before.size() && before.lowerBound(i) <= position;
+            boolean inAfter = j < after.size() && after.lowerBound(j) <= position;
+            long next = Math.min(nextBound(before, i, inBefore), nextBound(after, j, inAfter));
+            int stateBefore = inBefore ? state(before.outcome(i)) : NOT_COVERED;
+            int stateAfter = inAfter ? state(after.outcome(j)) : NOT_COVERED;
+
+            double tokens = TokenRange.tokenCount(position, next);
+            diff.transitions[stateBefore][stateAfter] += tokens;
+            if (inAfter && after.lastValidation(j) > (inBefore ? before.lastValidation(i) : 0))
+            {
+                diff.revalidatedTokens += tokens;
+            }
+            if (stateBefore != stateAfter)
+            {
+                pending.extendOrFlush(position, next, stateBefore, stateAfter, changedSpans);
+            }
+            position = next;
+        }
+        pending.flush(changedSpans);
+        return diff;
+    }
+
+    // Where the state of the ring may change next, for a coverage at its index-th segment
+    private static long nextBound(Coverage coverage, int index, boolean inSegment)
+    {
+        if (index == coverage.size())
+        {
+            return Long.MAX_VALUE;
+        }
+        return inSegment ? coverage.upperBound(index) : coverage.lowerBound(index);
+    }
+
+    private static int state(int outcome)
+    {
+        // Invalid outcome codes are counted as not covered, no validation can be trusted for them
+        return outcome >= 0 && outcome < CoverageMetrics.OUTCOME_COUNT ? outcome : NOT_COVERED;
+    }
+
+    static String stateName(int state)
+    {
+        return STATE_NAMES[state];
+    }
+
+    static boolean isValidated(int state)
+    {
+        return state <= 1;
+    }
+
+    void merge(CoverageDiff that)
+    {
+        for (int before = 0; before < STATE_COUNT; before++)
+        {
+            for (int after = 0; after < STATE_COUNT; after++)
+            {
+                transitions[before][after] += that.transitions[before][after];
+            }
+        }
+        revalidatedTokens += that.revalidatedTokens;
+    }
+
+    double tokens(int before, int after)
+    {
+        return transitions[before][after];
+    }
+
+    double getRevalidatedTokens()
+    {
+        return revalidatedTokens;
+    }
+
+    double changedTokens()
+    {
+        return sum((before, after) -> before != after);
+    }
+
+    // Tokens now validated that were not before
+    double newlyValidatedTokens()
+    {
+        return sum((before, after) -> !isValidated(before) && isValidated(after));
+    }
+
+    double regressedTokens()
+    {
+        return sum((before, after) -> isValidated(before) && !isValidated(after));
+    }
+
+    // Tokens in the given state after, minus the ones in that state before
+    double delta(int state)
+    {
+        double delta = 0;
+        for (int other = 0; other < STATE_COUNT; other++)
+        {
+            delta += transitions[other][state] - transitions[state][other];
+        }
+        return delta;
+    }
+
+    private double sum(TransitionFilter filter)
+    {
+        double tokens = 0;
+        for (int before = 0; before < STATE_COUNT; before++)
+        {
+            for (int after = 0; after < STATE_COUNT; after++)
+            {
+                tokens += filter.test(before, after) ? transitions[before][after] : 0;
+            }
+        }
+        return tokens;
+    }
+
+    private interface TransitionFilter
+    {
+        boolean test(int before, int after);
+    }
+
+    interface SpanSink
+    {
+        // The range (lowerBound;upperBound] went from one state to another
+        void accept(long lowerBound, long upperBound, int before, int after);
+    }
+
+    // Contiguous parts of the ring with the same transition are reported as one span
+    private static class Span
+    {
+        private boolean pending;
+        private long lowerBound;
+        private long upperBound;
+        private int before;
+        private int after;
+
+        void extendOrFlush(long lowerBound, long upperBound, int before, int after, SpanSink sink)
+        {
+            if (pending && this.upperBound == lowerBound && this.before == before && this.after == after)
+            {
+                this.upperBound = upperBound;
+                return;
+            }
+            flush(sink);
+            this.pending = true;
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+            this.before = before;
+            this.after = after;
+        }
+
+        void flush(SpanSink sink)
+        {
+            if (pending)
+            {
+                sink.accept(lowerBound, upperBound, before, after);
+                pending = false;
+            }
+        }
+    }
+}
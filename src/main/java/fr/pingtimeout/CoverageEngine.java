@@ -0,0 +1,107 @@
+package fr.pingtimeout;
+
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ Collects the records of a table, in any order, into primitive columns, then sorts them once and runs them through a
+ CoverageMerger in a single linear pass.  Apart from column growth and the sort buffers, nothing is allocated per
+ record.
+
+ The result is the same as sorting NodeSyncRecord instances in a TreeSet and merging them: wrap-around ranges are split
+ in two and records with the same token range and last validation are only kept once (the first one received wins).
+ */
+class CoverageEngine implements RecordSink
+{
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String keyspace;
+    private final String table;
+    private final NodeSets nodeSets;
+    private final RecordColumns records = new RecordColumns(INITIAL_CAPACITY);
+
+    CoverageEngine(String keyspace, String table)
+    {
+        this(keyspace, table, new NodeSets());
+    }
+
+    CoverageEngine(String keyspace, String table, NodeSets nodeSets)
+    {
+        this.keyspace = keyspace;
+        this.table = table;
+        this.nodeSets = nodeSets;
+    }
+
+    NodeSets getNodeSets()
+    {
+        return nodeSets;
+    }
+
+    int size()
+    {
+        return records.size();
+    }
+
+    @Override
+    public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        splitWrapAround(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes, records);
+    }
+
+    Coverage merge()
+    {
+        Coverage coverage = new Coverage(keyspace, table, nodeSets);
+        mergeInto(coverage);
+        return coverage;
+    }
+
+    // Same result as merge(), sorted and merged on the pool when the table is large enough for it to pay off
+    Coverage merge(ForkJoinPool pool)
+    {
+        return merge(pool, ParallelMerge.MIN_CHUNK_SIZE);
+    }
+
+    Coverage merge(ForkJoinPool pool, int minChunkSize)
+    {
+        if (records.size() < 2 * minChunkSize || pool.getParallelism() == 1)
+        {
+            return merge();
+        }
+        Coverage coverage = new Coverage(keyspace, table, nodeSets);
+        ParallelMerge.mergeInto(records, pool, minChunkSize, coverage);
+        return coverage;
+    }
+
+    // Sends the merged segments downstream in token order
+    void mergeInto(RecordSink output)
+    {
+        CoverageMerger merger = new CoverageMerger(output);
+        int previous = -1;
+        for (int index : records.sortedOrder())
+        {
+            if (previous >= 0 && records.compare(previous, index) == 0)
+            {
+                continue;
+            }
+            records.send(index, merger);
+            previous = index;
+        }
+        merger.finish();
+    }
+
+    static void splitWrapAround(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes, RecordSink sink)
+    {
+        if (startToken > endToken)
+        {
+            // Two token ranges: the first one is from start_token to Long.MAX_VALUE, the second one is from
+            // Long.MIN_VALUE to end_token
+            sink.accept(startToken, Long.MAX_VALUE, lastValidation, lastSuccess, outcome, missingNodes);
+            sink.accept(Long.MIN_VALUE, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+        }
+        else
+        {
+            sink.accept(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package fr.pingtimeout;
+
+/*
+ Point lookups over a merged coverage.  Segments do not wrap and are sorted, so the segment that contains a token is
+ found with a binary search over a copy of their upper bounds.  Contiguous segments share a bound: as in Cassandra,
+ where a range does not include its start token, a shared bound belongs to the segment that ends there.
+ */
+class CoverageIndex
+{
+    static final int NOT_COVERED = -1;
+
+    private final Coverage coverage;
+    private final long[] upperBounds;
+
+    CoverageIndex(Coverage coverage)
+    {
+        this.coverage = coverage;
+        this.upperBounds = new long[coverage.size()];
+        for (int i = 0; i < upperBounds.length; i++)
+        {
+            upperBounds[i] = coverage.upperBound(i);
+        }
+    }
+
+    // Index in the coverage of the segment that contains the token, NOT_COVERED if the token falls in a gap
+    int find(long token)
+    {
+        // First segment that ends at or after the token
+        int low = 0;
+        int high = upperBounds.length;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (upperBounds[middle] < token)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low < upperBounds.length && coverage.lowerBound(low) <= token ? low : NOT_COVERED;
+    }
+
+    // Segment that contains the token, null if the token falls in a gap
+    NodeSyncRecord lookup(long token)
+    {
+        int index = find(token);
+        return index == NOT_COVERED ? null : coverage.record(index);
+    }
+
+    Coverage getCoverage()
+    {
+        return coverage;
+    }
+}
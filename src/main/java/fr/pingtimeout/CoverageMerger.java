@@ -0,0 +1,102 @@
+package fr.pingtimeout;
+
+/*
+ The outcome-merging state machine.  Records must be received sorted by token range then last validation, without
+ duplicates and without wrap-around.  The state starts as the full token ring with an uncompleted validation, and only
+ its highest segment can change: every other segment is final and is sent downstream as soon as it is pushed down.
+ */
+class CoverageMerger implements RecordSink
+{
+    private final RecordSink output;
+
+    // Highest segment
+    private long lowerBound = Long.MIN_VALUE;
+    private long upperBound = Long.MAX_VALUE;
+    private long lastValidation = 0;
+    private long lastSuccess = 0;
+    private int outcome = 4;
+    private int missingNodes = NodeSets.EMPTY;
+
+    // Whether the last record accepted became the highest segment as is, in which case the state does not depend on
+    // the records accepted before it
+    private boolean replacedHighest;
+
+    CoverageMerger(RecordSink output)
+    {
+        this.output = output;
+    }
+
+    // Resumes a merge right after the given record replaced the highest segment
+    CoverageMerger(RecordSink output, long lowerBound, long upperBound, long lastValidation, long lastSuccess,
+        int outcome, int missingNodes)
+    {
+        this.output = output;
+        replaceHighest(lowerBound, upperBound, lastValidation, lastSuccess, outcome, missingNodes);
+    }
+
+    @Override
+    public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        if (TokenRange.intersects(this.lowerBound, this.upperBound, startToken, endToken))
+        {
+            if ((this.outcome <= 1 && outcome <= 1) || (this.outcome >= 2 && outcome >= 2))
+            {
+                // Intersect and match (un)successful outcome, same rules as NodeSyncRecord.mergeWith
+                this.lowerBound = Math.min(this.lowerBound, startToken);
+                this.upperBound = Math.max(this.upperBound, endToken);
+                this.lastValidation = this.lastValidation < lastSuccess ? this.lastValidation : lastValidation;
+                this.outcome = Math.max(this.outcome, outcome);
+                if (this.lastSuccess <= lastSuccess)
+                {
+                    this.lastSuccess = lastSuccess;
+                    this.missingNodes = missingNodes;
+                }
+                this.replacedHighest = false;
+                return;
+            }
+            if (this.lowerBound == startToken)
+            {
+                // Intersect with different outcome starting at the same token
+                replaceHighest(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+                return;
+            }
+        }
+        // Intersect with different outcome, or gap in token ranges
+        output.accept(this.lowerBound, startToken, this.lastValidation, this.lastSuccess, this.outcome,
+            this.missingNodes);
+        replaceHighest(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+    }
+
+    boolean hasReplacedHighest()
+    {
+        return replacedHighest;
+    }
+
+    // Continues from the state of another merger, that received the same records since the last time both replaced
+    // their highest segment
+    void takeOver(CoverageMerger that)
+    {
+        replaceHighest(that.lowerBound, that.upperBound, that.lastValidation, that.lastSuccess, that.outcome,
+            that.missingNodes);
+        replacedHighest = that.replacedHighest;
+    }
+
+    // Sends the highest segment downstream, no record can be accepted afterwards
+    void finish()
+    {
+        output.accept(lowerBound, upperBound, lastValidation, lastSuccess, outcome, missingNodes);
+    }
+
+    private void replaceHighest(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        this.lowerBound = startToken;
+        this.upperBound = endToken;
+        this.lastValidation = lastValidation;
+        this.lastSuccess = lastSuccess;
+        this.outcome = outcome;
+        this.missingNodes = missingNodes;
+        this.replacedHighest = true;
+    }
+}
@@ -0,0 +1,101 @@
+package fr.pingtimeout;
+
+/*
+ Health indicators of a merged coverage, weighted by the number of tokens of each segment: the fraction of the ring per
+ last outcome, the mean age of the last success and the number of gaps, i.e. parts of the ring that were never
+ validated.  The mean age only covers segments that succeeded at least once: the others have no age, and are already
+ counted by the outcome fractions and the gaps.
+ */
+class CoverageMetrics
+{
+    static final int OUTCOME_COUNT = 6;
+
+    private final double[] outcomeFractions;
+    private final double lastSuccessAgeSeconds;
+    private final int gaps;
+
+    private CoverageMetrics(double[] outcomeFractions, double lastSuccessAgeSeconds, int gaps)
+    {
+        this.outcomeFractions = outcomeFractions;
+        this.lastSuccessAgeSeconds = lastSuccessAgeSeconds;
+        this.gaps = gaps;
+    }
+
+    static CoverageMetrics of(Coverage coverage, long nowMillis)
+    {
+        double[] outcomeTokens = new double[OUTCOME_COUNT];
+        double succeededTokens = 0;
+        double weightedAge = 0;
+        int gaps = 0;
+        boolean inGap = false;
+        for (int i = 0; i < coverage.size(); i++)
+        {
+            long lowerBound = coverage.lowerBound(i);
+            long upperBound = coverage.upperBound(i);
+            // Contiguous segments share their bound
+            boolean holeBefore = i == 0
+                ? lowerBound > Long.MIN_VALUE
+                : coverage.upperBound(i - 1) < Long.MAX_VALUE && lowerBound > coverage.upperBound(i - 1) + 1;
+            if (holeBefore)
+            {
+                if (!inGap)
+                {
+                    gaps++;
+                }
+                inGap = true;
+            }
+            if (coverage.lastValidation(i) == 0)
+            {
+                if (!inGap)
+                {
+                    gaps++;
+                }
+                inGap = true;
+            }
+            else
+            {
+                inGap = false;
+            }
+
+            // Computed on doubles, a segment can span more than Long.MAX_VALUE tokens
+            double tokens = (double) upperBound - (double) lowerBound;
+            int outcome = coverage.outcome(i);
+            if (outcome >= 0 && outcome < OUTCOME_COUNT)
+            {
+                outcomeTokens[outcome] += tokens;
+            }
+            if (coverage.lastSuccess(i) != 0)
+            {
+                succeededTokens += tokens;
+                weightedAge += tokens * (nowMillis - coverage.lastSuccess(i)) / 1000.0;
+            }
+        }
+        boolean holeAfter = coverage.size() == 0 || coverage.upperBound(coverage.size() - 1) < Long.MAX_VALUE;
+        if (holeAfter && !inGap)
+        {
+            gaps++;
+        }
+
+        double[] outcomeFractions = new double[OUTCOME_COUNT];
+        for (int outcome = 0; outcome < OUTCOME_COUNT; outcome++)
+        {
+            outcomeFractions[outcome] = outcomeTokens[outcome] / TokenRange.RING_SIZE;
+        }
+        return new CoverageMetrics(outcomeFractions, succeededTokens == 0 ? 0 : weightedAge / succeededTokens, gaps);
+    }
+
+    double outcomeFraction(int outcome)
+    {
+        return outcomeFractions[outcome];
+    }
+
+    double getLastSuccessAgeSeconds()
+    {
+        return lastSuccessAgeSeconds;
+    }
+
+    int getGaps()
+    {
+        return gaps;
+    }
+}
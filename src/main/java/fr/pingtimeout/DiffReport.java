@@ -0,0 +1,118 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/*
+ Progress since a baseline snapshot: for each table checked, the share of the ring that changed outcome, the spans that
+ changed and the change per outcome, then the tokens of all tables per transition.  Tables missing from the baseline
+ are compared with an empty coverage.
+ */
+class DiffReport implements TableReport
+{
+    // Changed spans that are listed per table, in token order
+    private static final int MAX_SPANS = 10;
+
+    private final SnapshotReader baseline;
+    private final SortedMap<QualifiedTable, TableDiff> diffs = new TreeMap<>();
+
+    DiffReport(SnapshotReader baseline)
+    {
+        this.baseline = baseline;
+    }
+
+    @Override
+    public RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+    {
+        return (startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) -> {
+        };
+    }
+
+    @Override
+    public void merged(QualifiedTable table, Coverage coverage)
+    {
+        // Built outside of the lock, tables can be merged concurrently and the snapshot can be read concurrently
+        CoverageEngine engine = new CoverageEngine(table.getKeyspace(), table.getTable());
+        if (baseline.getTables().contains(table))
+        {
+            baseline.read(table, engine.getNodeSets(), engine);
+        }
+        TableDiff tableDiff = new TableDiff();
+        tableDiff.diff = CoverageDiff.of(engine.merge(), coverage, tableDiff::addSpan);
+        synchronized (this)
+        {
+            diffs.put(table, tableDiff);
+        }
+    }
+
+    @Override
+    public synchronized void print()
+    {
+        System.out.println("Changes since the baseline:");
+        CoverageDiff all = new CoverageDiff();
+        for (Map.Entry<QualifiedTable, TableDiff> entry : diffs.entrySet())
+        {
+            CoverageDiff diff = entry.getValue().diff;
+            all.merge(diff);
+            System.out.printf(Locale.ROOT, "  %s: %s of the ring changed outcome (%s newly validated, %s regressed), "
+                    + "%s validated again%n", entry.getKey(), percent(diff.changedTokens()),
+                percent(diff.newlyValidatedTokens()), percent(diff.regressedTokens()),
+                percent(diff.getRevalidatedTokens()));
+            List<String> deltas = new ArrayList<>();
+            for (int state = 0; state < CoverageDiff.STATE_COUNT; state++)
+            {
+                if (diff.delta(state) != 0)
+                {
+                    deltas.add(String.format(Locale.ROOT, "%s %+.3f%%", CoverageDiff.stateName(state),
+                        100 * diff.delta(state) / TokenRange.RING_SIZE));
+                }
+            }
+            if (!deltas.isEmpty())
+            {
+                System.out.printf("    %s%n", String.join(", ", deltas));
+            }
+            entry.getValue().spans.forEach(span -> System.out.printf("    %s%n", span));
+            if (entry.getValue().spanCount > MAX_SPANS)
+            {
+                System.out.printf("    ... and %d more changed spans%n", entry.getValue().spanCount - MAX_SPANS);
+            }
+        }
+        System.out.printf("  all tables (%d tables):%n", diffs.size());
+        for (int before = 0; before < CoverageDiff.STATE_COUNT; before++)
+        {
+            for (int after = 0; after < CoverageDiff.STATE_COUNT; after++)
+            {
+                if (before != after && all.tokens(before, after) > 0)
+                {
+                    System.out.printf(Locale.ROOT, "    %s -> %s: %.3f rings%n", CoverageDiff.stateName(before),
+                        CoverageDiff.stateName(after), all.tokens(before, after) / TokenRange.RING_SIZE);
+                }
+            }
+        }
+    }
+
+    private static String percent(double tokens)
+    {
+        return String.format(Locale.ROOT, "%.3f%%", 100 * tokens / TokenRange.RING_SIZE);
+    }
+
+    private static class TableDiff
+    {
+        private CoverageDiff diff;
+        private final List<String> spans = new ArrayList<>();
+        private int spanCount;
+
+        void addSpan(long lowerBound, long upperBound, int before, int after)
+        {
+            if (spanCount++ < MAX_SPANS)
+            {
+                spans.add(String.format("[%d;%d] %s -> %s", lowerBound, upperBound, CoverageDiff.stateName(before),
+                    CoverageDiff.stateName(after)));
+            }
+        }
+    }
+}
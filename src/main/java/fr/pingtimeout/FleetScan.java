@@ -0,0 +1,174 @@
+package fr.pingtimeout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+
+/*
+ Checks many clusters from one process.  Every cluster gets its own session, connected only while it is checked: a
+ fixed pool of threads, one per session, bounds how many clusters are connected at the same time, and all sessions share
+ the same Netty event loops.  Tables of a cluster are checked concurrently like with --discover.
+
+ Reports see the tables of a cluster as <cluster>/<keyspace>.<table>, so that the same table in two clusters is not
+ mixed up and per keyspace results are per cluster.
+ */
+class FleetScan
+{
+    private final SharedEventLoops eventLoops;
+    private final ExecutorService sessionPool;
+    private final Executor mergeExecutor;
+    private final ScanMode scanMode;
+    private final int concurrency;
+
+    FleetScan(SharedEventLoops eventLoops, ExecutorService sessionPool, Executor mergeExecutor, ScanMode scanMode,
+        int concurrency)
+    {
+        this.eventLoops = eventLoops;
+        this.sessionPool = sessionPool;
+        this.mergeExecutor = mergeExecutor;
+        this.scanMode = scanMode;
+        this.concurrency = concurrency;
+    }
+
+    // Completes once the session is closed.  gcGraces, if not null, receives the gc_grace_seconds of every table first.
+    CompletableFuture<List<TableResult>> scan(Cluster cluster, TableReport report,
+        Map<QualifiedTable, Duration> gcGraces)
+    {
+        return CompletableFuture.supplyAsync(() -> {
+            try (CqlSession session = eventLoops.sessionBuilder()
+                .addContactPoints(cluster.contactPoints)
+                .withLocalDatacenter(cluster.localDc)
+                .build())
+            {
+                if (gcGraces != null)
+                {
+                    SchemaDiscovery.gcGraces(session).forEach((table, gcGrace) ->
+                        gcGraces.put(cluster.qualify(table), gcGrace));
+                }
+                List<QualifiedTable> tables = SchemaDiscovery.discoverTables(session, cluster.keyspaces);
+                AsyncTableScanner scanner = new AsyncTableScanner(session, scanMode,
+                    new InFlightLimiter(concurrency), () -> 0, mergeExecutor, null,
+                    (statement, consumer) -> AsyncPaging.forEachPage(session, statement, consumer));
+                TableReport clusterReport = report == null ? null : report.renamed(cluster::qualify);
+                List<CompletableFuture<TableResult>> results = tables.stream()
+                    .map(table -> scanner.scan(table, clusterReport).handle((coverage, error) ->
+                        new TableResult(cluster.qualify(table), coverage,
+                            error instanceof CompletionException ? error.getCause() : error)))
+                    .collect(Collectors.toList());
+                return results.stream().map(CompletableFuture::join).collect(Collectors.toList());
+            }
+        }, sessionPool);
+    }
+
+    static class TableResult
+    {
+        final QualifiedTable table;
+        // Null if the table could not be checked
+        final Coverage coverage;
+        final Throwable error;
+
+        TableResult(QualifiedTable table, Coverage coverage, Throwable error)
+        {
+            this.table = table;
+            this.coverage = coverage;
+            this.error = error;
+        }
+    }
+
+    /*
+     A line of the --clusters file: <name> <host>[,<host>...] <port> <local datacenter> [<keyspace>[,<keyspace>...]]
+     Without keyspaces, every table of the cluster is checked.
+     */
+    static class Cluster
+    {
+        final String name;
+        final List<InetSocketAddress> contactPoints;
+        final String localDc;
+        final Set<String> keyspaces;
+
+        Cluster(String name, List<InetSocketAddress> contactPoints, String localDc, Set<String> keyspaces)
+        {
+            this.name = name;
+            this.contactPoints = contactPoints;
+            this.localDc = localDc;
+            this.keyspaces = keyspaces;
+        }
+
+        QualifiedTable qualify(QualifiedTable table)
+        {
+            return new QualifiedTable(name + "/" + table.getKeyspace(), table.getTable());
+        }
+
+        // Blank lines and lines starting with # are ignored
+        static List<Cluster> parse(Path file)
+        {
+            List<String> lines;
+            try
+            {
+                lines = Files.readAllLines(file);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("Cannot read clusters from " + file, e);
+            }
+            List<Cluster> clusters = new ArrayList<>();
+            Set<String> names = new HashSet<>();
+            for (String line : lines)
+            {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#"))
+                {
+                    continue;
+                }
+                Cluster cluster = parseLine(trimmed);
+                if (!names.add(cluster.name))
+                {
+                    throw new IllegalArgumentException("Cluster " + cluster.name + " is listed twice in " + file);
+                }
+                clusters.add(cluster);
+            }
+            return clusters;
+        }
+
+        static Cluster parseLine(String line)
+        {
+            String[] fields = line.split("\\s+");
+            if (fields.length < 4 || fields.length > 5)
+            {
+                throw new IllegalArgumentException("Expected <name> <hosts> <port> <local dc> [<keyspaces>], got "
+                    + line);
+            }
+            int port = Integer.parseInt(fields[2]);
+            List<InetSocketAddress> contactPoints = Arrays.stream(fields[1].split(","))
+                .map(host -> InetSocketAddress.createUnresolved(host, port))
+                .collect(Collectors.toList());
+            Set<String> keyspaces = fields.length == 5
+                ? new HashSet<>(Arrays.asList(fields[4].split(",")))
+                : Collections.emptySet();
+            return new Cluster(fields[0], contactPoints, fields[3], keyspaces);
+        }
+
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+    }
+}
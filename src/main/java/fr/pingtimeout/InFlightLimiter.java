@@ -0,0 +1,120 @@
+package fr.pingtimeout;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+/*
+ Bounds the number of asynchronous tasks running at the same time.  Tasks that exceed the limit are queued and started
+ when a running one completes, so callers (including driver I/O threads) never block.  The limit can change at any
+ time: a higher one starts queued tasks right away, a lower one is reached as running tasks complete.
+ */
+class InFlightLimiter
+{
+    private final Queue<Runnable> pending = new ArrayDeque<>();
+    private int limit;
+    private int inFlight;
+
+    InFlightLimiter(int limit)
+    {
+        checkLimit(limit);
+        this.limit = limit;
+    }
+
+    private static void checkLimit(int limit)
+    {
+        if (limit < 1)
+        {
+            throw new IllegalArgumentException("In-flight limit must be positive, got " + limit);
+        }
+    }
+
+    <T> CompletableFuture<T> submit(Supplier<? extends CompletionStage<T>> task)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable start = () -> start(task, result);
+        synchronized (this)
+        {
+            if (inFlight >= limit)
+            {
+                pending.add(start);
+                return result;
+            }
+            inFlight++;
+        }
+        start.run();
+        return result;
+    }
+
+    synchronized int getInFlight()
+    {
+        return inFlight;
+    }
+
+    synchronized int getLimit()
+    {
+        return limit;
+    }
+
+    void setLimit(int limit)
+    {
+        checkLimit(limit);
+        Queue<Runnable> started = new ArrayDeque<>();
+        synchronized (this)
+        {
+            this.limit = limit;
+            while (inFlight < limit && !pending.isEmpty())
+            {
+                started.add(pending.poll());
+                inFlight++;
+            }
+        }
+        started.forEach(Runnable::run);
+    }
+
+    private <T> void start(Supplier<? extends CompletionStage<T>> task, CompletableFuture<T> result)
+    {
+        CompletionStage<T> stage;
+        try
+        {
+            stage = task.get();
+        }
+        catch (RuntimeException e)
+        {
+            release();
+            result.completeExceptionally(e);
+            return;
+        }
+        stage.whenComplete((value, error) -> {
+            release();
+            if (error == null)
+            {
+                result.complete(value);
+            }
+            else
+            {
+                result.completeExceptionally(error);
+            }
+        });
+    }
+
+    private void release()
+    {
+        Runnable next;
+        synchronized (this)
+        {
+            // The slot is handed over to the next task, unless the limit was lowered in the meantime
+            next = inFlight > limit ? null : pending.poll();
+            if (next == null)
+            {
+                inFlight--;
+            }
+        }
+        if (next != null)
+        {
+            next.run();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/*
+ Coverage of a table that is kept up to date one range_group at a time.
+
+ Every time a record becomes the highest segment of the merge as is, the state of the merge no longer depends on the
+ records before it.  Those records are remembered, so that when some groups change, the merge resumes from the last of
+ them that comes before the first changed token instead of starting over.  Past the last changed token, the merge stops
+ as soon as it goes through one of them again: the rest of the previous result is still valid and is reused.
+ */
+class IncrementalCoverage
+{
+    private final String keyspace;
+    private final String table;
+    private final NodeSets nodeSets;
+
+    // Sorted records of each range group, wrap-around ranges already split
+    private final RecordColumns[] groups;
+
+    private Coverage coverage;
+    // Records that replaced the highest segment during the merges, and the number of segments emitted before them
+    private RecordColumns resets = new RecordColumns(0);
+    private int[] resetEmitted = new int[0];
+
+    private int recomputedFrom;
+    private int recomputedTo;
+    private long mergedRecords;
+
+    IncrementalCoverage(String keyspace, String table, NodeSets nodeSets, int groupCount)
+    {
+        this.keyspace = keyspace;
+        this.table = table;
+        this.nodeSets = nodeSets;
+        this.groups = new RecordColumns[groupCount];
+        for (int group = 0; group < groupCount; group++)
+        {
+            groups[group] = new RecordColumns(0);
+        }
+    }
+
+    // Replaces the rows of the given groups, as read from their partition, and merges again what they affect
+    void update(Map<Integer, RecordColumns> changedRows)
+    {
+        long firstChangedToken = Long.MAX_VALUE;
+        long lastChangedToken = Long.MIN_VALUE;
+        for (Map.Entry<Integer, RecordColumns> changed : changedRows.entrySet())
+        {
+            RecordColumns records = new RecordColumns(changed.getValue().size() + 1);
+            changed.getValue().forEach((startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) ->
+                CoverageEngine.splitWrapAround(startToken, endToken, lastValidation, lastSuccess, outcome,
+                    missingNodes, records));
+            records.sort();
+            for (RecordColumns columns : Arrays.asList(groups[changed.getKey()], records))
+            {
+                if (columns.size() > 0)
+                {
+                    firstChangedToken = Math.min(firstChangedToken, columns.startToken(0));
+                    lastChangedToken = Math.max(lastChangedToken, columns.startToken(columns.size() - 1));
+                }
+            }
+            groups[changed.getKey()] = records;
+        }
+        if (coverage != null && firstChangedToken > lastChangedToken)
+        {
+            // Only empty groups changed
+            recomputedFrom = recomputedTo = 0;
+            mergedRecords = 0;
+            return;
+        }
+        merge(firstChangedToken, lastChangedToken);
+    }
+
+    private void merge(long firstChangedToken, long lastChangedToken)
+    {
+        Coverage previous = coverage;
+        RecordColumns previousResets = resets;
+        int[] previousResetEmitted = resetEmitted;
+
+        coverage = new Coverage(keyspace, table, nodeSets);
+        resets = new RecordColumns(previousResets.size());
+        resetEmitted = new int[Math.max(16, previousResets.size())];
+
+        // Resume from the last record that replaced the highest segment before the first change
+        int resume = -1;
+        if (previous != null && firstChangedToken > Long.MIN_VALUE)
+        {
+            resume = previousResets.indexAfter(firstChangedToken - 1, Long.MAX_VALUE, Long.MAX_VALUE) - 1;
+        }
+        CoverageMerger merger;
+        List<RecordCursor> cursors = new ArrayList<>();
+        if (resume >= 0)
+        {
+            previous.copyTo(coverage, 0, previousResetEmitted[resume]);
+            resets.append(previousResets, 0, resume + 1);
+            System.arraycopy(previousResetEmitted, 0, resetEmitted, 0, resume + 1);
+            merger = new CoverageMerger(coverage, previousResets.startToken(resume),
+                previousResets.endToken(resume), previousResets.lastValidation(resume),
+                previousResets.lastSuccess(resume), previousResets.outcome(resume),
+                previousResets.missingNodes(resume));
+            for (RecordColumns group : groups)
+            {
+                cursors.add(group.cursor(group.indexAfter(previousResets.startToken(resume),
+                    previousResets.endToken(resume), previousResets.lastValidation(resume))));
+            }
+        }
+        else
+        {
+            merger = new CoverageMerger(coverage);
+            for (RecordColumns group : groups)
+            {
+                cursors.add(group.cursor(0));
+            }
+        }
+        recomputedFrom = coverage.size();
+        mergedRecords = 0;
+
+        KWayMerge records = new KWayMerge(cursors);
+        while (records.next())
+        {
+            merger.accept(records.startToken(), records.endToken(), records.lastValidation(), records.lastSuccess(),
+                records.outcome(), records.missingNodes());
+            mergedRecords++;
+            if (!merger.hasReplacedHighest())
+            {
+                continue;
+            }
+            if (previous != null && records.startToken() > lastChangedToken)
+            {
+                int converged = previousResets.indexAfter(records.startToken(), records.endToken(),
+                    records.lastValidation()) - 1;
+                if (converged >= 0 && previousResets.compare(converged, records.startToken(), records.endToken(),
+                    records.lastValidation()) == 0)
+                {
+                    // Same record, same state, and nothing changes after it: reuse the end of the previous merge
+                    recomputedTo = coverage.size();
+                    int shift = coverage.size() - previousResetEmitted[converged];
+                    previous.copyTo(coverage, previousResetEmitted[converged], previous.size());
+                    for (int i = converged; i < previousResets.size(); i++)
+                    {
+                        addReset(previousResets, i, previousResetEmitted[i] + shift);
+                    }
+                    return;
+                }
+            }
+            addReset(records, coverage.size());
+        }
+        merger.finish();
+        recomputedTo = coverage.size();
+    }
+
+    private void addReset(RecordColumns records, int index, int emitted)
+    {
+        ensureResetCapacity();
+        resetEmitted[resets.size()] = emitted;
+        resets.append(records, index, index + 1);
+    }
+
+    private void addReset(RecordCursor record, int emitted)
+    {
+        ensureResetCapacity();
+        resetEmitted[resets.size()] = emitted;
+        resets.accept(record.startToken(), record.endToken(), record.lastValidation(), record.lastSuccess(),
+            record.outcome(), record.missingNodes());
+    }
+
+    private void ensureResetCapacity()
+    {
+        if (resets.size() == resetEmitted.length)
+        {
+            resetEmitted = Arrays.copyOf(resetEmitted, Math.max(16, resetEmitted.length * 2));
+        }
+    }
+
+    Coverage getCoverage()
+    {
+        return coverage;
+    }
+
+    // Segments [from;to[ of the current coverage were merged again during the last update, the others were reused
+    int getRecomputedFrom()
+    {
+        return recomputedFrom;
+    }
+
+    int getRecomputedTo()
+    {
+        return recomputedTo;
+    }
+
+    // Number of records that went through the merge during the last update
+    long getMergedRecords()
+    {
+        return mergedRecords;
+    }
+}
@@ -0,0 +1,163 @@
+package fr.pingtimeout;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/*
+ Flight recorder events of a scan.  Only ScanProfile uses this class, and only after checking that the JVM has the
+ jdk.jfr API (JDK 8u262 and later), so that older JVMs never load it.  Events are cheap when no recording is running:
+ they are created but never committed.
+ */
+final class JfrEvents
+{
+    private JfrEvents()
+    {
+    }
+
+    @Name("fr.pingtimeout.PageFetch")
+    @Label("Page Fetch")
+    @Category({ "NodeSync Status", "Scan" })
+    @Description("Wait for a page of nodesync_status rows")
+    @StackTrace(false)
+    static class PageFetchEvent extends Event
+    {
+        @Label("Table")
+        String table;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Response Size")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("fr.pingtimeout.ScanPhase")
+    @Label("Scan Phase")
+    @Category({ "NodeSync Status", "Scan" })
+    @Description("Decoding, merging or output of the rows of a table")
+    @StackTrace(false)
+    static class ScanPhaseEvent extends Event
+    {
+        @Label("Table")
+        String table;
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+    }
+
+    @Name("fr.pingtimeout.TableScan")
+    @Label("Table Scan")
+    @Category({ "NodeSync Status", "Scan" })
+    @Description("Check of a table, from its first query to its output")
+    @StackTrace(false)
+    static class TableScanEvent extends Event
+    {
+        @Label("Table")
+        String table;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Pages")
+        long pages;
+
+        @Label("Bytes Read")
+        @DataAmount
+        long bytes;
+
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+
+        @Label("Fetch Time")
+        @Timespan
+        long fetchNanos;
+
+        @Label("Decode Time")
+        @Timespan
+        long decodeNanos;
+
+        @Label("Merge Time")
+        @Timespan
+        long mergeNanos;
+
+        @Label("Output Time")
+        @Timespan
+        long outputNanos;
+    }
+
+    static Object begin(ScanProfile.Phase phase)
+    {
+        Event event = phase == ScanProfile.Phase.FETCH ? new PageFetchEvent() : new ScanPhaseEvent();
+        event.begin();
+        return event;
+    }
+
+    static void end(Object started, String table, ScanProfile.Phase phase, long rows, long bytes, long allocated)
+    {
+        Event event = (Event) started;
+        event.end();
+        if (!event.shouldCommit())
+        {
+            return;
+        }
+        if (event instanceof PageFetchEvent)
+        {
+            PageFetchEvent fetch = (PageFetchEvent) event;
+            fetch.table = table;
+            fetch.rows = rows;
+            fetch.bytes = bytes;
+        }
+        else
+        {
+            ScanPhaseEvent scanPhase = (ScanPhaseEvent) event;
+            scanPhase.table = table;
+            scanPhase.phase = phase.getLabel();
+            scanPhase.rows = rows;
+            scanPhase.allocated = allocated;
+        }
+        event.commit();
+    }
+
+    static Object beginTable()
+    {
+        TableScanEvent event = new TableScanEvent();
+        event.begin();
+        return event;
+    }
+
+    static void endTable(Object started, String table, long rows, long pages, long bytes, long allocated,
+        long[] phaseNanos)
+    {
+        TableScanEvent event = (TableScanEvent) started;
+        event.end();
+        if (!event.shouldCommit())
+        {
+            return;
+        }
+        event.table = table;
+        event.rows = rows;
+        event.pages = pages;
+        event.bytes = bytes;
+        event.allocated = allocated;
+        event.fetchNanos = phaseNanos[ScanProfile.Phase.FETCH.ordinal()];
+        event.decodeNanos = phaseNanos[ScanProfile.Phase.DECODE.ordinal()];
+        event.mergeNanos = phaseNanos[ScanProfile.Phase.MERGE.ordinal()];
+        event.outputNanos = phaseNanos[ScanProfile.Phase.OUTPUT.ordinal()];
+        event.commit();
+    }
+}
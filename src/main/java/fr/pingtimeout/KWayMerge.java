@@ -0,0 +1,195 @@
+package fr.pingtimeout;
+
+import java.util.List;
+
+/*
+ Merges sorted cursors with a binary heap, so only the current record of each cursor is looked at.  Equal records are
+ only returned once; on ties, the cursor that comes first in the list wins, which is what happens when the same cursors
+ are read one after the other into a CoverageEngine.
+ */
+class KWayMerge implements RecordCursor
+{
+    private final RecordCursor[] heapCursors;
+    private final int[] heapIndexes;
+    private int heapSize;
+
+    // Cursor the current record comes from, it has been removed from the heap until next() is called
+    private RecordCursor current;
+    private boolean first = true;
+    private long startToken, endToken, lastValidation;
+
+    KWayMerge(List<? extends RecordCursor> cursors)
+    {
+        heapCursors = new RecordCursor[cursors.size()];
+        heapIndexes = new int[cursors.size()];
+        for (int i = 0; i < cursors.size(); i++)
+        {
+            if (cursors.get(i).next())
+            {
+                heapCursors[heapSize] = cursors.get(i);
+                heapIndexes[heapSize] = i;
+                siftUp(heapSize);
+                heapSize++;
+            }
+        }
+    }
+
+    static void merge(List<? extends RecordCursor> cursors, RecordSink output)
+    {
+        KWayMerge records = new KWayMerge(cursors);
+        CoverageMerger merger = new CoverageMerger(output);
+        while (records.next())
+        {
+            merger.accept(records.startToken(), records.endToken(), records.lastValidation(), records.lastSuccess(),
+                records.outcome(), records.missingNodes());
+        }
+        merger.finish();
+    }
+
+    @Override
+    public boolean next()
+    {
+        while (heapSize > 0)
+        {
+            if (current != null)
+            {
+                advanceHead();
+                if (heapSize == 0)
+                {
+                    break;
+                }
+            }
+            current = heapCursors[0];
+            if (first || current.startToken() != startToken || current.endToken() != endToken
+                || current.lastValidation() != lastValidation)
+            {
+                startToken = current.startToken();
+                endToken = current.endToken();
+                lastValidation = current.lastValidation();
+                first = false;
+                return true;
+            }
+        }
+        current = null;
+        return false;
+    }
+
+    // Moves the cursor at the top of the heap to its next record
+    private void advanceHead()
+    {
+        if (!heapCursors[0].next())
+        {
+            heapSize--;
+            heapCursors[0] = heapCursors[heapSize];
+            heapIndexes[0] = heapIndexes[heapSize];
+            heapCursors[heapSize] = null;
+        }
+        siftDown();
+    }
+
+    @Override
+    public long startToken()
+    {
+        return startToken;
+    }
+
+    @Override
+    public long endToken()
+    {
+        return endToken;
+    }
+
+    @Override
+    public long lastValidation()
+    {
+        return lastValidation;
+    }
+
+    @Override
+    public long lastSuccess()
+    {
+        return current.lastSuccess();
+    }
+
+    @Override
+    public int outcome()
+    {
+        return current.outcome();
+    }
+
+    @Override
+    public int missingNodes()
+    {
+        return current.missingNodes();
+    }
+
+    private void siftUp(int position)
+    {
+        while (position > 0)
+        {
+            int parent = (position - 1) / 2;
+            if (compare(parent, position) <= 0)
+            {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+    private void siftDown()
+    {
+        int position = 0;
+        while (true)
+        {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < heapSize && compare(left, smallest) < 0)
+            {
+                smallest = left;
+            }
+            if (right < heapSize && compare(right, smallest) < 0)
+            {
+                smallest = right;
+            }
+            if (smallest == position)
+            {
+                return;
+            }
+            swap(smallest, position);
+            position = smallest;
+        }
+    }
+
+    // Same order as NodeSyncRecord.compareTo, then cursor position in the list
+    private int compare(int left, int right)
+    {
+        RecordCursor a = heapCursors[left];
+        RecordCursor b = heapCursors[right];
+        int result = Long.compare(a.startToken(), b.startToken());
+        if (result == 0)
+        {
+            result = Long.compare(a.endToken(), b.endToken());
+        }
+        if (result == 0)
+        {
+            result = Long.compare(a.lastValidation(), b.lastValidation());
+        }
+        if (result == 0)
+        {
+            result = Integer.compare(heapIndexes[left], heapIndexes[right]);
+        }
+        return result;
+    }
+
+    private void swap(int i, int j)
+    {
+        RecordCursor cursor = heapCursors[i];
+        heapCursors[i] = heapCursors[j];
+        heapCursors[j] = cursor;
+        int index = heapIndexes[i];
+        heapIndexes[i] = heapIndexes[j];
+        heapIndexes[j] = index;
+    }
+}
@@ -0,0 +1,77 @@
+package fr.pingtimeout;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+/*
+ Rows of nodesync_status read from the cluster, one table at a time, with the queries of a scan mode.
+ */
+class LiveSource implements RecordSource
+{
+    private final CqlSession session;
+    private final ScanMode scanMode;
+    private final List<QualifiedTable> tables;
+
+    LiveSource(CqlSession session, ScanMode scanMode, List<QualifiedTable> tables)
+    {
+        this.session = session;
+        this.scanMode = scanMode;
+        this.tables = tables;
+    }
+
+    @Override
+    public List<QualifiedTable> getTables()
+    {
+        return tables;
+    }
+
+    @Override
+    public void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink)
+    {
+        RowDecoder decoder = new RowDecoder(nodeSets);
+        scanMode
+            .fetchRows(session, table.getKeyspace(), table.getTable())
+            .forEach(row -> decoder.decode(row, sink));
+    }
+
+    // Same queries as fetchRows, paged explicitly to tell the wait for each page from its decoding
+    @Override
+    public void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink, ScanProfile.Table profile)
+    {
+        RowDecoder decoder = new RowDecoder(nodeSets);
+        scanMode.statements(session, table.getKeyspace(), table.getTable()).forEach(statement ->
+            readPages(session, statement, profile, page -> {
+                profile.begin(ScanProfile.Phase.DECODE);
+                int rows = page.remaining();
+                for (Row row : page.currentPage())
+                {
+                    decoder.decode(row, sink);
+                }
+                profile.end(rows, 0);
+            }));
+    }
+
+    // Sends every page of the statement to the consumer, one after the other, profiling the wait for each one
+    static void readPages(CqlSession session, Statement<?> statement, ScanProfile.Table profile,
+        Consumer<AsyncResultSet> consumer)
+    {
+        profile.begin(ScanProfile.Phase.FETCH);
+        AsyncResultSet page = session.executeAsync(statement).toCompletableFuture().join();
+        while (true)
+        {
+            profile.end(page.remaining(), page.getExecutionInfo().getResponseSizeInBytes());
+            consumer.accept(page);
+            if (!page.hasMorePages())
+            {
+                return;
+            }
+            profile.begin(ScanProfile.Phase.FETCH);
+            page = page.fetchNextPage().toCompletableFuture().join();
+        }
+    }
+}
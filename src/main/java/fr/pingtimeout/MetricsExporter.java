@@ -0,0 +1,183 @@
+package fr.pingtimeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/*
+ Serves the metrics of every table in the Prometheus text format.  Tables are checked again on every refresh, in the
+ background, and the response is rendered once per refresh: a scrape only sends the last rendered bytes and never
+ queries Cassandra.  A table that cannot be checked keeps its previous metrics.
+ */
+class MetricsExporter
+{
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final List<QualifiedTable> tables;
+    private final AsyncTableScanner scanner;
+    private final HttpServer server;
+    private final SortedMap<QualifiedTable, CoverageMetrics> metrics = new TreeMap<>();
+    private final SortedMap<QualifiedTable, Long> refreshTimes = new TreeMap<>();
+    private final SortedMap<QualifiedTable, Long> failures = new TreeMap<>();
+    private volatile byte[] response = new byte[0];
+
+    MetricsExporter(CqlSession session, List<QualifiedTable> tables, ScanMode scanMode, InFlightLimiter limiter,
+        IntSupplier pageSize, int port)
+    {
+        this.tables = tables;
+        this.scanner = new AsyncTableScanner(session, scanMode, limiter, pageSize, ForkJoinPool.commonPool(), null,
+            (statement, consumer) -> AsyncPaging.forEachPage(session, statement, consumer));
+        try
+        {
+            this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        server.createContext("/metrics", this::scrape);
+    }
+
+    void run(Duration interval) throws InterruptedException
+    {
+        server.start();
+        System.out.printf("Serving metrics on port %d%n", server.getAddress().getPort());
+        try
+        {
+            while (!Thread.currentThread().isInterrupted())
+            {
+                long start = System.nanoTime();
+                try
+                {
+                    refresh();
+                }
+                catch (RuntimeException e)
+                {
+                    // The previous metrics keep being served
+                    System.out.printf("Could not refresh metrics: %s%n", e);
+                }
+                long elapsed = System.nanoTime() - start;
+                TimeUnit.NANOSECONDS.sleep(Math.max(0, interval.toNanos() - elapsed));
+            }
+        }
+        finally
+        {
+            server.stop(0);
+        }
+    }
+
+    void refresh()
+    {
+        long start = System.nanoTime();
+        List<CompletableFuture<Coverage>> results = new ArrayList<>();
+        for (QualifiedTable table : tables)
+        {
+            CompletableFuture<Coverage> result;
+            try
+            {
+                result = scanner.scan(table);
+            }
+            catch (RuntimeException e)
+            {
+                result = new CompletableFuture<>();
+                result.completeExceptionally(e);
+            }
+            results.add(result);
+        }
+        for (int i = 0; i < tables.size(); i++)
+        {
+            QualifiedTable table = tables.get(i);
+            try
+            {
+                Coverage coverage = results.get(i).join();
+                long now = System.currentTimeMillis();
+                metrics.put(table, CoverageMetrics.of(coverage, now));
+                refreshTimes.put(table, now);
+            }
+            catch (RuntimeException e)
+            {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                System.out.printf("Could not check %s: %s%n", table, cause);
+                failures.merge(table, 1L, Long::sum);
+            }
+        }
+        response = render(metrics, refreshTimes, failures).getBytes(StandardCharsets.UTF_8);
+        System.out.printf("Metrics of %d tables refreshed in %d ms%n", tables.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void scrape(HttpExchange exchange) throws IOException
+    {
+        byte[] body = response;
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(body);
+        }
+    }
+
+    static String render(SortedMap<QualifiedTable, CoverageMetrics> metrics, Map<QualifiedTable, Long> refreshTimes,
+        Map<QualifiedTable, Long> failures)
+    {
+        StringBuilder out = new StringBuilder();
+        header(out, "nodesync_ring_fraction", "gauge", "Fraction of the token ring by last validation outcome");
+        metrics.forEach((table, tableMetrics) -> {
+            for (int outcome = 0; outcome < CoverageMetrics.OUTCOME_COUNT; outcome++)
+            {
+                sample(out, "nodesync_ring_fraction", table, ",outcome=\"" + outcome + "\"",
+                    tableMetrics.outcomeFraction(outcome));
+            }
+        });
+        header(out, "nodesync_last_success_age_seconds", "gauge",
+            "Mean age of the last successful validation, weighted by the number of tokens that succeeded once");
+        metrics.forEach((table, tableMetrics) -> sample(out, "nodesync_last_success_age_seconds", table, "",
+            tableMetrics.getLastSuccessAgeSeconds()));
+        header(out, "nodesync_gaps", "gauge", "Number of parts of the token ring that were never validated");
+        metrics.forEach((table, tableMetrics) -> sample(out, "nodesync_gaps", table, "", tableMetrics.getGaps()));
+        header(out, "nodesync_last_refresh_timestamp_seconds", "gauge", "Time of the last successful check");
+        metrics.keySet().forEach(table -> sample(out, "nodesync_last_refresh_timestamp_seconds", table, "",
+            refreshTimes.get(table) / 1000.0));
+        header(out, "nodesync_refresh_failures_total", "counter", "Number of checks that failed");
+        new TreeMap<>(failures).forEach((table, count) -> sample(out, "nodesync_refresh_failures_total", table, "",
+            count));
+        return out.toString();
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help)
+    {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    // Keyspace and table names are plain identifiers, they never need to be escaped
+    private static void sample(StringBuilder out, String name, QualifiedTable table, String extraLabels, double value)
+    {
+        out.append(name)
+            .append("{keyspace=\"").append(table.getKeyspace())
+            .append("\",table=\"").append(table.getTable()).append('"')
+            .append(extraLabels)
+            .append("} ")
+            .append(value == Math.rint(value) && Math.abs(value) < 1e15
+                ? String.valueOf((long) value)
+                : Double.toString(value))
+            .append('\n');
+    }
+}
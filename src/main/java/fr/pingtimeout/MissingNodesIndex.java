@@ -0,0 +1,101 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+
+/*
+ For each node, the ranges of a table where it was missing from the last validation: how many tokens in total, in how
+ many ranges, and the most recently validated of these ranges.  Filled with the decoded rows, in fixed memory per node.
+ */
+class MissingNodesIndex implements RecordSink
+{
+    private final NodeSets nodeSets;
+
+    // Indexed by node number in the dictionary
+    private double[] missingTokens = new double[0];
+    private int[] rangeCounts = new int[0];
+    private long[] newestStartTokens = new long[0];
+    private long[] newestEndTokens = new long[0];
+    private long[] newestValidations = new long[0];
+
+    MissingNodesIndex(NodeSets nodeSets)
+    {
+        this.nodeSets = nodeSets;
+    }
+
+    @Override
+    public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        if (missingNodes == NodeSets.EMPTY)
+        {
+            return;
+        }
+        double tokens = TokenRange.tokenCount(startToken, endToken);
+        long[] bits = nodeSets.bits(missingNodes);
+        for (int word = 0; word < bits.length; word++)
+        {
+            for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1)
+            {
+                int node = word * 64 + Long.numberOfTrailingZeros(remaining);
+                ensureCapacity(node + 1);
+                missingTokens[node] += tokens;
+                if (rangeCounts[node]++ == 0 || lastValidation > newestValidations[node])
+                {
+                    newestStartTokens[node] = startToken;
+                    newestEndTokens[node] = endToken;
+                    newestValidations[node] = lastValidation;
+                }
+            }
+        }
+    }
+
+    private void ensureCapacity(int nodeCount)
+    {
+        if (nodeCount > rangeCounts.length)
+        {
+            int capacity = Math.max(nodeCount, rangeCounts.length * 2);
+            missingTokens = Arrays.copyOf(missingTokens, capacity);
+            rangeCounts = Arrays.copyOf(rangeCounts, capacity);
+            newestStartTokens = Arrays.copyOf(newestStartTokens, capacity);
+            newestEndTokens = Arrays.copyOf(newestEndTokens, capacity);
+            newestValidations = Arrays.copyOf(newestValidations, capacity);
+        }
+    }
+
+    // Nodes are numbered from 0 to nodeCount() excluded, some of them may never have been missing
+    int nodeCount()
+    {
+        return rangeCounts.length;
+    }
+
+    InetAddress node(int node)
+    {
+        return nodeSets.node(node);
+    }
+
+    double missingTokens(int node)
+    {
+        return missingTokens[node];
+    }
+
+    int rangeCount(int node)
+    {
+        return rangeCounts[node];
+    }
+
+    long newestStartToken(int node)
+    {
+        return newestStartTokens[node];
+    }
+
+    long newestEndToken(int node)
+    {
+        return newestEndTokens[node];
+    }
+
+    long newestValidation(int node)
+    {
+        return newestValidations[node];
+    }
+}
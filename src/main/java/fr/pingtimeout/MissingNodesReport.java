@@ -0,0 +1,74 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/*
+ Nodes that were missing from validations, per table and for all tables, the nodes missing from the largest part of
+ the ring first.
+ */
+class MissingNodesReport implements TableReport
+{
+    private final SortedMap<QualifiedTable, MissingNodesIndex> indexes = new TreeMap<>();
+
+    @Override
+    public synchronized RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+    {
+        return indexes.computeIfAbsent(table, ignored -> new MissingNodesIndex(nodeSets));
+    }
+
+    @Override
+    public synchronized void print()
+    {
+        System.out.println("Nodes missing from the last validations:");
+        Map<InetAddress, NodeTotal> totals = new HashMap<>();
+        indexes.forEach((table, index) -> {
+            for (int node : byMissingTokens(index))
+            {
+                System.out.printf(Locale.ROOT, "  %s, %s: %.3f%% of the ring in %d ranges, newest [%d;%d] validated "
+                        + "at %s%n", table, index.node(node).getHostAddress(),
+                    100 * index.missingTokens(node) / TokenRange.RING_SIZE, index.rangeCount(node),
+                    index.newestStartToken(node), index.newestEndToken(node),
+                    Instant.ofEpochMilli(index.newestValidation(node)));
+                NodeTotal total = totals.computeIfAbsent(index.node(node), ignored -> new NodeTotal());
+                total.tables++;
+                total.ranges += index.rangeCount(node);
+                total.rings += index.missingTokens(node) / TokenRange.RING_SIZE;
+            }
+        });
+        totals.entrySet().stream()
+            .sorted(Comparator.comparing((Map.Entry<InetAddress, NodeTotal> entry) -> -entry.getValue().rings))
+            .forEach(entry -> System.out.printf(Locale.ROOT, "  all tables, %s: %d tables, %d ranges, %.3f rings%n",
+                entry.getKey().getHostAddress(), entry.getValue().tables, entry.getValue().ranges,
+                entry.getValue().rings));
+    }
+
+    private static List<Integer> byMissingTokens(MissingNodesIndex index)
+    {
+        List<Integer> nodes = new ArrayList<>();
+        for (int node = 0; node < index.nodeCount(); node++)
+        {
+            if (index.rangeCount(node) > 0)
+            {
+                nodes.add(node);
+            }
+        }
+        nodes.sort(Comparator.comparing(node -> -index.missingTokens(node)));
+        return nodes;
+    }
+
+    private static class NodeTotal
+    {
+        private int tables;
+        private long ranges;
+        private double rings;
+    }
+}
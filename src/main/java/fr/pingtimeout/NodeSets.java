@@ -0,0 +1,158 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ Interns sets of missing nodes so that records only carry an int.  Nodes are numbered in a dictionary and each set is
+ kept once, as a bitmask over node numbers: a few longs even on clusters of hundreds of nodes.  Id 0 is always the
+ empty set.  Rows of the same table can be decoded concurrently, hence the synchronization.
+ */
+class NodeSets
+{
+    static final int EMPTY = 0;
+
+    private static final long[] NO_NODES = new long[0];
+
+    private final List<InetAddress> nodes = new ArrayList<>();
+    private final Map<InetAddress, Integer> nodeIndexes = new HashMap<>();
+    private final List<long[]> sets = new ArrayList<>();
+    private final Map<Bitmask, Integer> ids = new HashMap<>();
+
+    NodeSets()
+    {
+        sets.add(NO_NODES);
+        ids.put(new Bitmask(NO_NODES), EMPTY);
+    }
+
+    synchronized int intern(Set<InetAddress> nodes)
+    {
+        if (nodes == null || nodes.isEmpty())
+        {
+            return EMPTY;
+        }
+        long[] bits = emptyBits();
+        for (InetAddress node : nodes)
+        {
+            bits = withNode(bits, nodeIndex(node));
+        }
+        return intern(bits);
+    }
+
+    // Same as intern(Set), from a bitmask over node numbers
+    synchronized int intern(long[] bits)
+    {
+        int length = bits.length;
+        while (length > 0 && bits[length - 1] == 0)
+        {
+            length--;
+        }
+        if (length < bits.length)
+        {
+            bits = Arrays.copyOf(bits, length);
+        }
+        Integer id = ids.get(new Bitmask(bits));
+        if (id == null)
+        {
+            id = sets.size();
+            sets.add(bits);
+            ids.put(new Bitmask(bits), id);
+        }
+        return id;
+    }
+
+    // Number of a node in the dictionary, a new node gets the next number
+    synchronized int nodeIndex(InetAddress node)
+    {
+        Integer index = nodeIndexes.get(node);
+        if (index == null)
+        {
+            index = nodes.size();
+            nodes.add(node);
+            nodeIndexes.put(node, index);
+        }
+        return index;
+    }
+
+    static long[] emptyBits()
+    {
+        return NO_NODES;
+    }
+
+    // Copy of a bitmask with one more node
+    static long[] withNode(long[] bits, int nodeIndex)
+    {
+        long[] result = Arrays.copyOf(bits, Math.max(bits.length, (nodeIndex >>> 6) + 1));
+        result[nodeIndex >>> 6] |= 1L << nodeIndex;
+        return result;
+    }
+
+    synchronized Set<InetAddress> get(int id)
+    {
+        long[] bits = sets.get(id);
+        if (bits.length == 0)
+        {
+            return Collections.emptySet();
+        }
+        Set<InetAddress> set = new LinkedHashSet<>();
+        for (int word = 0; word < bits.length; word++)
+        {
+            for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1)
+            {
+                set.add(nodes.get(word * 64 + Long.numberOfTrailingZeros(remaining)));
+            }
+        }
+        return Collections.unmodifiableSet(set);
+    }
+
+    // Bitmask of a set, indexed by node number.  Must not be modified.
+    synchronized long[] bits(int id)
+    {
+        return sets.get(id);
+    }
+
+    synchronized InetAddress node(int nodeIndex)
+    {
+        return nodes.get(nodeIndex);
+    }
+
+    synchronized int nodeCount()
+    {
+        return nodes.size();
+    }
+
+    synchronized int size()
+    {
+        return sets.size();
+    }
+
+    // Trailing zero words are never stored, so equal sets have equal arrays
+    private static class Bitmask
+    {
+        private final long[] bits;
+
+        Bitmask(long[] bits)
+        {
+            this.bits = bits;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            return o instanceof Bitmask && Arrays.equals(bits, ((Bitmask) o).bits);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Arrays.hashCode(bits);
+        }
+    }
+}
@@ -31,7 +31,7 @@ public class NodeSyncRecord implements Comparable<NodeSyncRecord>
     private Set<InetAddress> missingNodes;
     private int lastOutcome;
 
-    private NodeSyncRecord(String keyspace, String table, TokenRange tokenRange, Instant lastValidation,
+    NodeSyncRecord(String keyspace, String table, TokenRange tokenRange, Instant lastValidation,
         int lastOutcome, Instant lastSuccess, Set<InetAddress> missingNodes)
     {
         this.keyspace = keyspace;
@@ -94,6 +94,19 @@ public class NodeSyncRecord implements Comparable<NodeSyncRecord>
         }
     }
 
+    static NodeSyncRecord fromSegment(String keyspace, String table, NodeSets nodeSets, long lowerBound,
+        long upperBound, long lastValidation, long lastSuccess, int outcome, int missingNodes)
+    {
+        return new NodeSyncRecord(
+            keyspace,
+            table,
+            new TokenRange(lowerBound, upperBound),
+            Instant.ofEpochMilli(lastValidation),
+            outcome,
+            Instant.ofEpochMilli(lastSuccess),
+            nodeSets.get(missingNodes));
+    }
+
     static NodeSyncRecord createFullTokenRangeUncompletedRecord(String keyspace, String table)
     {
         return new NodeSyncRecord(
@@ -160,6 +173,16 @@ public class NodeSyncRecord implements Comparable<NodeSyncRecord>
         return lastOutcome;
     }
 
+    Instant getLastSuccess()
+    {
+        return lastSuccess;
+    }
+
+    Set<InetAddress> getMissingNodes()
+    {
+        return missingNodes;
+    }
+
     private String lastOutcomeToString()
     {
         switch (lastOutcome)
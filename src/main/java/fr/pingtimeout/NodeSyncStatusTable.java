@@ -0,0 +1,67 @@
+package fr.pingtimeout;
+
+import java.nio.ByteBuffer;
+
+/*
+ CREATE TABLE system_distributed.nodesync_status (
+     keyspace_name text,
+     table_name text,
+     range_group blob,
+     start_token bigint,
+     end_token bigint,
+     last_successful_validation frozen<nodesync_validation>,
+     last_unsuccessful_validation frozen<nodesync_validation>,
+     locked_by inet,
+     PRIMARY KEY ((keyspace_name, table_name, range_group), start_token)
+ )
+
+ range_group is a single byte, so the status of a table is spread over 256 partitions.
+ */
+final class NodeSyncStatusTable
+{
+    static final int RANGE_GROUP_COUNT = 256;
+
+    // Only the columns that RowDecoder reads, keyspace and table are known from the query parameters
+    private static final String COLUMNS = "start_token, end_token, last_successful_validation, " +
+        "last_unsuccessful_validation ";
+
+    static final String SELECT_TABLE_ALLOW_FILTERING = "" +
+        "SELECT " + COLUMNS +
+        "FROM system_distributed.nodesync_status " +
+        "WHERE keyspace_name = ? " +
+        "AND table_name = ? " +
+        "ALLOW FILTERING";
+
+    static final String SELECT_RANGE_GROUP = "" +
+        "SELECT " + COLUMNS +
+        "FROM system_distributed.nodesync_status " +
+        "WHERE keyspace_name = ? " +
+        "AND table_name = ? " +
+        "AND range_group = ?";
+
+    // Fingerprint of a partition: each status update rewrites one of the (frozen) validation columns.  Every row of the
+    // partition is still read, only the bytes sent back are fewer than with SELECT_RANGE_GROUP.
+    static final String SELECT_RANGE_GROUP_WRITETIMES = "" +
+        "SELECT start_token, WRITETIME(last_successful_validation), WRITETIME(last_unsuccessful_validation) " +
+        "FROM system_distributed.nodesync_status " +
+        "WHERE keyspace_name = ? " +
+        "AND table_name = ? " +
+        "AND range_group = ?";
+
+    static final String SELECT_RANGE_GROUP_LAST_ROW = SELECT_RANGE_GROUP + " " +
+        "ORDER BY start_token DESC " +
+        "LIMIT 1";
+
+    private NodeSyncStatusTable()
+    {
+    }
+
+    static ByteBuffer rangeGroup(int group)
+    {
+        if (group < 0 || group >= RANGE_GROUP_COUNT)
+        {
+            throw new IllegalArgumentException("Range group " + group + " is not in [0;" + RANGE_GROUP_COUNT + "[");
+        }
+        return ByteBuffer.wrap(new byte[] { (byte) group });
+    }
+}
@@ -0,0 +1,108 @@
+package fr.pingtimeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ Minimal command line parser: "--name value" options, "--name" switches and positional arguments, in any order.
+ */
+class Options
+{
+    // Options that do not take a value
+    private static final Set<String> SWITCHES = new HashSet<>(Arrays.asList("discover", "eta", "missing-nodes",
+        "profile", "reactive", "replica-sets", "ring-algebra", "staleness", "stream", "timing"));
+
+    private final Map<String, String> values;
+    private final List<String> positionals;
+
+    private Options(Map<String, String> values, List<String> positionals)
+    {
+        this.values = values;
+        this.positionals = positionals;
+    }
+
+    static Options parse(String... args)
+    {
+        Map<String, String> values = new HashMap<>();
+        List<String> positionals = new ArrayList<>();
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].startsWith("--"))
+            {
+                String name = args[i].substring(2);
+                if (SWITCHES.contains(name))
+                {
+                    values.put(name, "true");
+                }
+                else if (i + 1 < args.length)
+                {
+                    values.put(name, args[++i]);
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Missing value for option " + args[i]);
+                }
+            }
+            else
+            {
+                positionals.add(args[i]);
+            }
+        }
+        return new Options(values, positionals);
+    }
+
+    String positional(int index, String defaultValue)
+    {
+        return index < positionals.size() ? positionals.get(index) : defaultValue;
+    }
+
+    String get(String name, String defaultValue)
+    {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    int getInt(String name, int defaultValue)
+    {
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : defaultValue;
+    }
+
+    // Durations are given as a number of seconds, optionally followed by a unit: 30s, 5m, 1h, 2d
+    Duration getDuration(String name, Duration defaultValue)
+    {
+        return values.containsKey(name) ? parseDuration(values.get(name)) : defaultValue;
+    }
+
+    static Duration parseDuration(String value)
+    {
+        char unit = value.charAt(value.length() - 1);
+        if (Character.isDigit(unit))
+        {
+            return Duration.ofSeconds(Long.parseLong(value));
+        }
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        switch (unit)
+        {
+            case 's':
+                return Duration.ofSeconds(amount);
+            case 'm':
+                return Duration.ofMinutes(amount);
+            case 'h':
+                return Duration.ofHours(amount);
+            case 'd':
+                return Duration.ofDays(amount);
+            default:
+                throw new IllegalArgumentException("Invalid duration " + value);
+        }
+    }
+
+    boolean isSet(String name)
+    {
+        return values.containsKey(name);
+    }
+}
@@ -0,0 +1,89 @@
+package fr.pingtimeout;
+
+/*
+ Cursor over a source that delivers records one page at a time.  Only the current page is kept in memory, in primitive
+ columns that are reused from one page to the next.
+ */
+abstract class PagedRecordCursor implements RecordCursor, RecordSink
+{
+    private final RecordColumns page = new RecordColumns(0);
+    private int position = -1;
+    private boolean lastPage;
+
+    // Sends every record of the next page to accept(), returns false if no other page follows
+    protected abstract boolean fetchPage();
+
+    @Override
+    public boolean next()
+    {
+        position++;
+        while (position >= page.size())
+        {
+            if (lastPage)
+            {
+                return false;
+            }
+            page.clear();
+            position = 0;
+            lastPage = !fetchPage();
+        }
+        return true;
+    }
+
+    // Loads the first page without moving the cursor, so that it can be inspected before the first call to next()
+    void open()
+    {
+        if (position == -1 && page.size() == 0 && !lastPage)
+        {
+            lastPage = !fetchPage();
+        }
+    }
+
+    boolean isLastPage()
+    {
+        return lastPage;
+    }
+
+    @Override
+    public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        page.accept(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+    }
+
+    @Override
+    public long startToken()
+    {
+        return page.startToken(position);
+    }
+
+    @Override
+    public long endToken()
+    {
+        return page.endToken(position);
+    }
+
+    @Override
+    public long lastValidation()
+    {
+        return page.lastValidation(position);
+    }
+
+    @Override
+    public long lastSuccess()
+    {
+        return page.lastSuccess(position);
+    }
+
+    @Override
+    public int outcome()
+    {
+        return page.outcome(position);
+    }
+
+    @Override
+    public int missingNodes()
+    {
+        return page.missingNodes(position);
+    }
+}
@@ -0,0 +1,155 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ Same merge as CoverageEngine.mergeInto, on several cores.  The sorted records are cut into contiguous chunks of the
+ ring, and every chunk but the first is merged on its own as if its first record had replaced the highest segment.
+
+ These speculative merges are then stitched in token order: the merge of the previous chunks carries on into the next
+ one, record by record, until both merges replace their highest segment with the same record.  From there on, both
+ have the same state and receive the same records, so the segments of the speculative merge are the ones the
+ sequential merge would have produced.  When they never meet, the chunk is merged sequentially, and the result is
+ always the same as the sequential merge.
+ */
+final class ParallelMerge
+{
+    // Below this number of records per chunk, splitting costs more than it saves
+    static final int MIN_CHUNK_SIZE = 1 << 16;
+
+    private ParallelMerge()
+    {
+    }
+
+    static void mergeInto(RecordColumns records, ForkJoinPool pool, int minChunkSize, RecordSink output)
+    {
+        int[] order = records.sortedOrder(pool, minChunkSize);
+        int chunks = (int) Math.max(1, Math.min(4L * pool.getParallelism(), order.length / minChunkSize));
+        int[] starts = new int[chunks + 1];
+        for (int chunk = 0; chunk <= chunks; chunk++)
+        {
+            starts[chunk] = (int) ((long) order.length * chunk / chunks);
+        }
+        List<ForkJoinTask<Chunk>> speculative = new ArrayList<>();
+        for (int chunk = 1; chunk < chunks; chunk++)
+        {
+            int from = starts[chunk];
+            int to = starts[chunk + 1];
+            speculative.add(pool.submit(() -> Chunk.merge(records, order, from, to)));
+        }
+
+        CoverageMerger merger = new CoverageMerger(output);
+        for (int position = 0; position < starts[1]; position++)
+        {
+            accept(records, order, position, merger);
+        }
+        for (int chunk = 1; chunk < chunks; chunk++)
+        {
+            Chunk merged = speculative.get(chunk - 1).join();
+            int position = starts[chunk];
+            boolean converged = false;
+            while (position < starts[chunk + 1] && !converged)
+            {
+                converged = accept(records, order, position, merger) && merger.hasReplacedHighest()
+                    && merged.replacedHighest(position);
+                position++;
+            }
+            if (converged)
+            {
+                merged.sendFrom(position, output);
+                merger.takeOver(merged.merger);
+            }
+        }
+        merger.finish();
+    }
+
+    // Sends the record at the given position of the sorted order, unless it is the same as the previous one
+    private static boolean accept(RecordColumns records, int[] order, int position, CoverageMerger merger)
+    {
+        if (position > 0 && records.compare(order[position - 1], order[position]) == 0)
+        {
+            return false;
+        }
+        records.send(order[position], merger);
+        return true;
+    }
+
+    private static class Chunk implements RecordSink
+    {
+        private final int from;
+        // Positions whose record replaced the highest segment
+        private final BitSet replacedHighest = new BitSet();
+        private final RecordColumns segments = new RecordColumns(1024);
+        // Position of the record that pushed each segment down
+        private int[] emittedAt = new int[1024];
+        private int position;
+        private CoverageMerger merger;
+
+        private Chunk(int from)
+        {
+            this.from = from;
+        }
+
+        static Chunk merge(RecordColumns records, int[] order, int from, int to)
+        {
+            Chunk chunk = new Chunk(from);
+            for (chunk.position = from; chunk.position < to; chunk.position++)
+            {
+                int index = order[chunk.position];
+                if (chunk.position > 0 && records.compare(order[chunk.position - 1], index) == 0)
+                {
+                    continue;
+                }
+                if (chunk.merger == null)
+                {
+                    chunk.merger = new CoverageMerger(chunk, records.startToken(index), records.endToken(index),
+                        records.lastValidation(index), records.lastSuccess(index), records.outcome(index),
+                        records.missingNodes(index));
+                }
+                else
+                {
+                    records.send(index, chunk.merger);
+                }
+                if (chunk.merger.hasReplacedHighest())
+                {
+                    chunk.replacedHighest.set(chunk.position - from);
+                }
+            }
+            return chunk;
+        }
+
+        boolean replacedHighest(int position)
+        {
+            return replacedHighest.get(position - from);
+        }
+
+        @Override
+        public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+            int missingNodes)
+        {
+            if (segments.size() == emittedAt.length)
+            {
+                emittedAt = Arrays.copyOf(emittedAt, 2 * emittedAt.length);
+            }
+            emittedAt[segments.size()] = position;
+            segments.accept(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+        }
+
+        // Sends the segments pushed down by the records from the given position on
+        void sendFrom(int position, RecordSink output)
+        {
+            for (int i = 0; i < segments.size(); i++)
+            {
+                if (emittedAt[i] >= position)
+                {
+                    segments.send(i, output);
+                }
+            }
+        }
+    }
+}
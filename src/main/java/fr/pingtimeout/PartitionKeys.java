@@ -0,0 +1,152 @@
+package fr.pingtimeout;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodec;
+import com.datastax.oss.driver.api.core.type.codec.registry.CodecRegistry;
+
+/*
+ Computes the token of a single column partition key the way Murmur3Partitioner does, from its string form.  Text keys
+ are taken as is, other types are given as CQL literals (42, 0xcafe, 123e4567-e89b-12d3-a456-426614174000...).
+
+ The hash is the first half of MurmurHash3 x64 128 as Cassandra implements it: the bytes of the last, partial block are
+ sign-extended, and Long.MIN_VALUE becomes Long.MAX_VALUE.  It is done here rather than with a session's TokenMap, that
+ offline lookups do not have.
+ */
+class PartitionKeys
+{
+    private static final Map<String, DataType> TYPES = new HashMap<>();
+
+    static
+    {
+        TYPES.put("ascii", DataTypes.ASCII);
+        TYPES.put("bigint", DataTypes.BIGINT);
+        TYPES.put("blob", DataTypes.BLOB);
+        TYPES.put("boolean", DataTypes.BOOLEAN);
+        TYPES.put("date", DataTypes.DATE);
+        TYPES.put("decimal", DataTypes.DECIMAL);
+        TYPES.put("double", DataTypes.DOUBLE);
+        TYPES.put("float", DataTypes.FLOAT);
+        TYPES.put("inet", DataTypes.INET);
+        TYPES.put("int", DataTypes.INT);
+        TYPES.put("smallint", DataTypes.SMALLINT);
+        TYPES.put("text", DataTypes.TEXT);
+        TYPES.put("timestamp", DataTypes.TIMESTAMP);
+        TYPES.put("timeuuid", DataTypes.TIMEUUID);
+        TYPES.put("tinyint", DataTypes.TINYINT);
+        TYPES.put("uuid", DataTypes.UUID);
+        TYPES.put("varchar", DataTypes.TEXT);
+        TYPES.put("varint", DataTypes.VARINT);
+    }
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private final DataType type;
+    private final TypeCodec<Object> codec;
+
+    PartitionKeys(String typeName)
+    {
+        type = TYPES.get(typeName.toLowerCase(Locale.ROOT));
+        if (type == null)
+        {
+            throw new IllegalArgumentException("Unsupported partition key type " + typeName);
+        }
+        codec = CodecRegistry.DEFAULT.codecFor(type);
+    }
+
+    long token(String key)
+    {
+        Object value = type == DataTypes.TEXT || type == DataTypes.ASCII ? key : codec.parse(key);
+        if (value == null)
+        {
+            throw new IllegalArgumentException("Invalid partition key " + key);
+        }
+        return token(codec.encode(value, ProtocolVersion.DEFAULT));
+    }
+
+    static long token(ByteBuffer serializedKey)
+    {
+        int offset = serializedKey.position();
+        int length = serializedKey.remaining();
+        long h1 = 0;
+        long h2 = 0;
+        for (int block = 0; block < length / 16; block++)
+        {
+            long k1 = serializedKey.getLong(offset + block * 16);
+            long k2 = serializedKey.getLong(offset + block * 16 + 8);
+            if (serializedKey.order() == ByteOrder.BIG_ENDIAN)
+            {
+                k1 = Long.reverseBytes(k1);
+                k2 = Long.reverseBytes(k2);
+            }
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        int tail = offset + length / 16 * 16;
+        long k1 = 0;
+        long k2 = 0;
+        for (int i = length % 16 - 1; i >= 0; i--)
+        {
+            // Sign-extended, like Cassandra does
+            long value = (long) serializedKey.get(tail + i) << (8 * (i % 8));
+            if (i >= 8)
+            {
+                k2 ^= value;
+            }
+            else
+            {
+                k1 ^= value;
+            }
+        }
+        if (length % 16 > 8)
+        {
+            h2 ^= mixK2(k2);
+        }
+        if (length % 16 > 0)
+        {
+            h1 ^= mixK1(k1);
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        return h1 == Long.MIN_VALUE ? Long.MAX_VALUE : h1;
+    }
+
+    private static long mixK1(long k1)
+    {
+        return Long.rotateLeft(k1 * C1, 31) * C2;
+    }
+
+    private static long mixK2(long k2)
+    {
+        return Long.rotateLeft(k2 * C2, 33) * C1;
+    }
+
+    private static long fmix(long k)
+    {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,75 @@
+package fr.pingtimeout;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+public class QualifiedTable implements Comparable<QualifiedTable>
+{
+    private static final Comparator<QualifiedTable> COMPARATOR = Comparator
+        .comparing(QualifiedTable::getKeyspace)
+        .thenComparing(QualifiedTable::getTable);
+
+    private final String keyspace;
+    private final String table;
+
+    public QualifiedTable(String keyspace, String table)
+    {
+        this.keyspace = keyspace;
+        this.table = table;
+    }
+
+    // Parses "keyspace.table"
+    static QualifiedTable parse(String name)
+    {
+        int dot = name.indexOf('.');
+        if (dot <= 0 || dot == name.length() - 1)
+        {
+            throw new IllegalArgumentException("Expected keyspace.table, got " + name);
+        }
+        return new QualifiedTable(name.substring(0, dot), name.substring(dot + 1));
+    }
+
+    String getKeyspace()
+    {
+        return keyspace;
+    }
+
+    String getTable()
+    {
+        return table;
+    }
+
+    @Override
+    public String toString()
+    {
+        return keyspace + "." + table;
+    }
+
+    @Override
+    public int compareTo(QualifiedTable that)
+    {
+        return COMPARATOR.compare(this, that);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o)
+        {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass())
+        {
+            return false;
+        }
+        QualifiedTable that = (QualifiedTable) o;
+        return keyspace.equals(that.keyspace) &&
+            table.equals(that.table);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(keyspace, table);
+    }
+}
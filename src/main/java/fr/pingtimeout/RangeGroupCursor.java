@@ -0,0 +1,86 @@
+package fr.pingtimeout;
+
+import java.util.concurrent.CompletionStage;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+/*
+ Cursor over the rows of a single range_group partition, which Cassandra returns sorted by start_token.  The first page
+ is requested as soon as the cursor is created, the following ones when the current page has been consumed.  Requests
+ go through the limiter shared by the cursors of a scan.
+
+ A wrap-around row can only be the last row of its partition: its upper part (start_token to Long.MAX_VALUE) is
+ returned in order, its lower part is not returned at all but remembered, as it has to be merged before everything
+ else.
+ */
+class RangeGroupCursor extends PagedRecordCursor
+{
+    private final InFlightLimiter limiter;
+    private final RowDecoder decoder;
+    private CompletionStage<AsyncResultSet> nextPage;
+
+    private boolean wrapAround;
+    private long wrapAroundEndToken;
+    private long wrapAroundLastValidation;
+    private long wrapAroundLastSuccess;
+    private int wrapAroundOutcome;
+    private int wrapAroundMissingNodes;
+
+    RangeGroupCursor(CqlSession session, Statement<?> statement, InFlightLimiter limiter, NodeSets nodeSets)
+    {
+        this.limiter = limiter;
+        this.decoder = new RowDecoder(nodeSets);
+        this.nextPage = limiter.submit(() -> session.executeAsync(statement));
+    }
+
+    @Override
+    protected boolean fetchPage()
+    {
+        AsyncResultSet page = nextPage.toCompletableFuture().join();
+        for (Row row : page.currentPage())
+        {
+            decoder.decode(row, this::acceptRow);
+        }
+        if (page.hasMorePages())
+        {
+            nextPage = limiter.submit(page::fetchNextPage);
+            return true;
+        }
+        nextPage = null;
+        return false;
+    }
+
+    private void acceptRow(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        if (startToken > endToken)
+        {
+            wrapAround = true;
+            wrapAroundEndToken = endToken;
+            wrapAroundLastValidation = lastValidation;
+            wrapAroundLastSuccess = lastSuccess;
+            wrapAroundOutcome = outcome;
+            wrapAroundMissingNodes = missingNodes;
+            accept(startToken, Long.MAX_VALUE, lastValidation, lastSuccess, outcome, missingNodes);
+        }
+        else
+        {
+            accept(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+        }
+    }
+
+    boolean hasWrapAround()
+    {
+        return wrapAround;
+    }
+
+    // Sends the lower part of the wrap-around row found so far
+    void wrapAroundLowerPart(RecordSink sink)
+    {
+        sink.accept(Long.MIN_VALUE, wrapAroundEndToken, wrapAroundLastValidation, wrapAroundLastSuccess,
+            wrapAroundOutcome, wrapAroundMissingNodes);
+    }
+}
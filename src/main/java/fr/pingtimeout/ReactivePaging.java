@@ -0,0 +1,118 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/*
+ Reads a statement with executeReactive and hands its rows over in batches.  A batch of rows is requested, consumed on
+ the given executor, and only then is the next batch requested: no thread waits for a page, and a statement never holds
+ more than one batch in memory however slow the consumer is.
+ */
+final class ReactivePaging
+{
+    private ReactivePaging()
+    {
+    }
+
+    // Batches are consumed one after the other, in order
+    static CompletableFuture<Void> forEachBatch(CqlSession session, Statement<?> statement, int batchSize,
+        Executor executor, Consumer<Iterable<Row>> consumer)
+    {
+        return forEachBatch(session.executeReactive(statement), batchSize, executor, consumer);
+    }
+
+    static CompletableFuture<Void> forEachBatch(Publisher<? extends Row> rows, int batchSize, Executor executor,
+        Consumer<Iterable<Row>> consumer)
+    {
+        BatchSubscriber subscriber = new BatchSubscriber(batchSize, executor, consumer);
+        rows.subscribe(subscriber);
+        return subscriber.done;
+    }
+
+    // Signals are serialized by the publisher, the consumption of batches by the chain of futures
+    private static class BatchSubscriber implements Subscriber<Row>
+    {
+        private final int batchSize;
+        private final Executor executor;
+        private final Consumer<Iterable<Row>> consumer;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Subscription subscription;
+        private List<Row> batch;
+        private CompletableFuture<Void> consumed = CompletableFuture.completedFuture(null);
+
+        BatchSubscriber(int batchSize, Executor executor, Consumer<Iterable<Row>> consumer)
+        {
+            this.batchSize = batchSize;
+            this.executor = executor;
+            this.consumer = consumer;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription)
+        {
+            this.subscription = subscription;
+            subscription.request(batchSize);
+        }
+
+        @Override
+        public void onNext(Row row)
+        {
+            batch.add(row);
+            if (batch.size() == batchSize)
+            {
+                consumed = consume(batch).thenRun(() -> subscription.request(batchSize));
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+
+        @Override
+        public void onError(Throwable error)
+        {
+            consumed.whenComplete((ignored, consumeError) -> done.completeExceptionally(error));
+        }
+
+        @Override
+        public void onComplete()
+        {
+            consume(batch).whenComplete((ignored, error) -> {
+                if (error == null)
+                {
+                    done.complete(null);
+                }
+                else
+                {
+                    done.completeExceptionally(error);
+                }
+            });
+        }
+
+        private CompletableFuture<Void> consume(List<Row> rows)
+        {
+            return consumed.thenRunAsync(() -> {
+                try
+                {
+                    consumer.accept(rows);
+                }
+                catch (RuntimeException e)
+                {
+                    // Once cancelled, the publisher may not signal anything anymore
+                    subscription.cancel();
+                    done.completeExceptionally(e);
+                    throw e;
+                }
+            }, executor);
+        }
+    }
+}
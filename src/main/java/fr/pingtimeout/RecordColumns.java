@@ -0,0 +1,376 @@
+package fr.pingtimeout;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ Growable primitive columns of records, in the order they were received.  Instants are epoch millis and missing nodes
+ are ids from a NodeSets dictionary.
+ */
+class RecordColumns implements RecordSink
+{
+    private int size;
+    private long[] startTokens;
+    private long[] endTokens;
+    private long[] lastValidations;
+    private long[] lastSuccesses;
+    private byte[] outcomes;
+    private int[] missingNodes;
+
+    RecordColumns(int initialCapacity)
+    {
+        startTokens = new long[initialCapacity];
+        endTokens = new long[initialCapacity];
+        lastValidations = new long[initialCapacity];
+        lastSuccesses = new long[initialCapacity];
+        outcomes = new byte[initialCapacity];
+        missingNodes = new int[initialCapacity];
+    }
+
+    @Override
+    public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        if (size == startTokens.length)
+        {
+            int capacity = Math.max(16, size * 2);
+            startTokens = Arrays.copyOf(startTokens, capacity);
+            endTokens = Arrays.copyOf(endTokens, capacity);
+            lastValidations = Arrays.copyOf(lastValidations, capacity);
+            lastSuccesses = Arrays.copyOf(lastSuccesses, capacity);
+            outcomes = Arrays.copyOf(outcomes, capacity);
+            this.missingNodes = Arrays.copyOf(this.missingNodes, capacity);
+        }
+        startTokens[size] = startToken;
+        endTokens[size] = endToken;
+        lastValidations[size] = lastValidation;
+        lastSuccesses[size] = lastSuccess;
+        outcomes[size] = (byte) outcome;
+        this.missingNodes[size] = missingNodes;
+        size++;
+    }
+
+    void send(int index, RecordSink sink)
+    {
+        sink.accept(startTokens[index], endTokens[index], lastValidations[index], lastSuccesses[index],
+            outcomes[index], missingNodes[index]);
+    }
+
+    // Appends records [from;to[ of the given columns
+    void append(RecordColumns that, int from, int to)
+    {
+        int count = to - from;
+        if (size + count > startTokens.length)
+        {
+            int capacity = Math.max(size + count, size * 2);
+            startTokens = Arrays.copyOf(startTokens, capacity);
+            endTokens = Arrays.copyOf(endTokens, capacity);
+            lastValidations = Arrays.copyOf(lastValidations, capacity);
+            lastSuccesses = Arrays.copyOf(lastSuccesses, capacity);
+            outcomes = Arrays.copyOf(outcomes, capacity);
+            missingNodes = Arrays.copyOf(missingNodes, capacity);
+        }
+        System.arraycopy(that.startTokens, from, startTokens, size, count);
+        System.arraycopy(that.endTokens, from, endTokens, size, count);
+        System.arraycopy(that.lastValidations, from, lastValidations, size, count);
+        System.arraycopy(that.lastSuccesses, from, lastSuccesses, size, count);
+        System.arraycopy(that.outcomes, from, outcomes, size, count);
+        System.arraycopy(that.missingNodes, from, missingNodes, size, count);
+        size += count;
+    }
+
+    // Cursor over records [from;size[, the columns must be sorted and not modified while the cursor is used
+    RecordCursor cursor(int from)
+    {
+        return new RecordCursor()
+        {
+            private int position = from - 1;
+
+            @Override
+            public boolean next()
+            {
+                return ++position < size;
+            }
+
+            @Override
+            public long startToken()
+            {
+                return startTokens[position];
+            }
+
+            @Override
+            public long endToken()
+            {
+                return endTokens[position];
+            }
+
+            @Override
+            public long lastValidation()
+            {
+                return lastValidations[position];
+            }
+
+            @Override
+            public long lastSuccess()
+            {
+                return lastSuccesses[position];
+            }
+
+            @Override
+            public int outcome()
+            {
+                return outcomes[position];
+            }
+
+            @Override
+            public int missingNodes()
+            {
+                return missingNodes[position];
+            }
+        };
+    }
+
+    void forEach(RecordSink sink)
+    {
+        for (int i = 0; i < size; i++)
+        {
+            send(i, sink);
+        }
+    }
+
+    // Drops every record but keeps the allocated columns
+    void clear()
+    {
+        size = 0;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    long startToken(int index)
+    {
+        return startTokens[index];
+    }
+
+    long endToken(int index)
+    {
+        return endTokens[index];
+    }
+
+    long lastValidation(int index)
+    {
+        return lastValidations[index];
+    }
+
+    long lastSuccess(int index)
+    {
+        return lastSuccesses[index];
+    }
+
+    int outcome(int index)
+    {
+        return outcomes[index];
+    }
+
+    int missingNodes(int index)
+    {
+        return missingNodes[index];
+    }
+
+    // Same order as NodeSyncRecord.compareTo: token range, then last validation
+    int compare(int left, int right)
+    {
+        return compare(left, startTokens[right], endTokens[right], lastValidations[right]);
+    }
+
+    int compare(int index, long startToken, long endToken, long lastValidation)
+    {
+        int result = Long.compare(startTokens[index], startToken);
+        if (result == 0)
+        {
+            result = Long.compare(endTokens[index], endToken);
+        }
+        if (result == 0)
+        {
+            result = Long.compare(lastValidations[index], lastValidation);
+        }
+        return result;
+    }
+
+    // Index of the first record greater than the given one, the columns must be sorted
+    int indexAfter(long startToken, long endToken, long lastValidation)
+    {
+        int low = 0;
+        int high = size;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, startToken, endToken, lastValidation) <= 0)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Stable merge sort of record indexes, so that the first of several equal records can be told apart.  Runs that
+    // are already in order, like the rows of a single range_group partition, are found first and merged pairwise: n
+    // records in r runs take n log(r) comparisons, linear when they are already sorted.
+    int[] sortedOrder()
+    {
+        int[] order = identity();
+        sortRange(order, new int[size], 0, size);
+        return order;
+    }
+
+    // Same order as sortedOrder(), the two halves of each range being sorted in parallel down to sequentialSize
+    int[] sortedOrder(ForkJoinPool pool, int sequentialSize)
+    {
+        int[] order = identity();
+        pool.invoke(new SortTask(this, order, new int[size], 0, size, sequentialSize));
+        return order;
+    }
+
+    private int[] identity()
+    {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    private void sortRange(int[] order, int[] buffer, int start, int end)
+    {
+        if (end - start < 2)
+        {
+            return;
+        }
+        // Bounds of the runs: run i is [bounds[i];bounds[i + 1][
+        int[] bounds = new int[16];
+        int runs = 0;
+        bounds[0] = start;
+        for (int i = start + 1; i < end; i++)
+        {
+            if (compare(order[i - 1], order[i]) > 0)
+            {
+                if (++runs + 1 == bounds.length)
+                {
+                    bounds = Arrays.copyOf(bounds, bounds.length * 2);
+                }
+                bounds[runs] = i;
+            }
+        }
+        bounds[++runs] = end;
+        while (runs > 1)
+        {
+            int merged = 0;
+            for (int i = 0; i < runs; i += 2)
+            {
+                if (i + 1 < runs && compare(order[bounds[i + 1] - 1], order[bounds[i + 1]]) > 0)
+                {
+                    mergeRuns(order, buffer, bounds[i], bounds[i + 1], bounds[i + 2]);
+                }
+                bounds[merged++] = bounds[i];
+            }
+            bounds[merged] = end;
+            runs = merged;
+        }
+    }
+
+    // Sorts the columns in place, equal records keep the order in which they were received
+    void sort()
+    {
+        int[] order = sortedOrder();
+        startTokens = permute(startTokens, order);
+        endTokens = permute(endTokens, order);
+        lastValidations = permute(lastValidations, order);
+        lastSuccesses = permute(lastSuccesses, order);
+        byte[] sortedOutcomes = new byte[outcomes.length];
+        int[] sortedMissingNodes = new int[missingNodes.length];
+        for (int i = 0; i < size; i++)
+        {
+            sortedOutcomes[i] = outcomes[order[i]];
+            sortedMissingNodes[i] = missingNodes[order[i]];
+        }
+        outcomes = sortedOutcomes;
+        missingNodes = sortedMissingNodes;
+    }
+
+    private long[] permute(long[] column, int[] order)
+    {
+        long[] sorted = new long[column.length];
+        for (int i = 0; i < size; i++)
+        {
+            sorted[i] = column[order[i]];
+        }
+        return sorted;
+    }
+
+    private void mergeRuns(int[] order, int[] buffer, int from, int middle, int to)
+    {
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++)
+        {
+            if (right >= to || (left < middle && compare(buffer[left], buffer[right]) <= 0))
+            {
+                order[i] = buffer[left++];
+            }
+            else
+            {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    // Static, so that the serializable task does not capture the columns implicitly
+    private static class SortTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final RecordColumns columns;
+        private final int[] order;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final int sequentialSize;
+
+        SortTask(RecordColumns columns, int[] order, int[] buffer, int from, int to, int sequentialSize)
+        {
+            this.columns = columns;
+            this.order = order;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.sequentialSize = sequentialSize;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= sequentialSize)
+            {
+                columns.sortRange(order, buffer, from, to);
+                return;
+            }
+            // Each task only uses its own range of the buffer
+            int middle = (from + to) >>> 1;
+            invokeAll(new SortTask(columns, order, buffer, from, middle, sequentialSize),
+                new SortTask(columns, order, buffer, middle, to, sequentialSize));
+            if (columns.compare(order[middle - 1], order[middle]) > 0)
+            {
+                columns.mergeRuns(order, buffer, from, middle, to);
+            }
+        }
+    }
+}
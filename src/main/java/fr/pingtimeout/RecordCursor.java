@@ -0,0 +1,22 @@
+package fr.pingtimeout;
+
+/*
+ Pull-based stream of records, sorted by token range then last validation, without wrap-around.  The accessors return
+ the values of the record the cursor is positioned on, after next() returned true.
+ */
+interface RecordCursor
+{
+    boolean next();
+
+    long startToken();
+
+    long endToken();
+
+    long lastValidation();
+
+    long lastSuccess();
+
+    int outcome();
+
+    int missingNodes();
+}
@@ -0,0 +1,19 @@
+package fr.pingtimeout;
+
+/*
+ Receives NodeSync records as primitives, without allocating a NodeSyncRecord per row.  Instants are epoch millis and
+ missing nodes are ids from a NodeSets dictionary.  Depending on the sink, the token range may wrap around the ring
+ (startToken > endToken) or not.
+ */
+interface RecordSink
+{
+    void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome, int missingNodes);
+
+    default RecordSink andThen(RecordSink next)
+    {
+        return (startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) -> {
+            accept(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+            next.accept(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package fr.pingtimeout;
+
+import java.util.List;
+
+/*
+ Where the rows of nodesync_status come from: a live cluster, a snapshot or a synthetic workload.  The analysis only
+ sees the rows of one table at a time, in whatever order the source produces them.
+ */
+interface RecordSource extends AutoCloseable
+{
+    List<QualifiedTable> getTables();
+
+    // Sends every row of the table, missing node ids are interned in the given dictionary
+    void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink);
+
+    // Same as read, profiled: sources that do not page only decode
+    default void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink, ScanProfile.Table profile)
+    {
+        profile.begin(ScanProfile.Phase.DECODE);
+        read(table, nodeSets, sink);
+        profile.end(0, 0);
+    }
+
+    @Override
+    default void close()
+    {
+    }
+}
@@ -0,0 +1,32 @@
+package fr.pingtimeout;
+
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+
+/*
+ Routes the query of a range_group partition to the replicas of that partition.  The statement is not pinned to a node:
+ with its routing keyspace and token, the token-aware load balancing policy puts the live replicas of the local
+ datacenter first, in a random order that spreads the partitions of a table over all of them, and the retry policy can
+ move on to the next replica when one is unavailable or overloaded.
+ */
+final class ReplicaRouting
+{
+    static final String KEYSPACE = "system_distributed";
+
+    private ReplicaRouting()
+    {
+    }
+
+    static <S extends Statement<S>> S toReplicas(TokenMap tokenMap, S statement, String keyspace, String table,
+        int group)
+    {
+        Token token = tokenMap.newToken(
+            TypeCodecs.TEXT.encode(keyspace, ProtocolVersion.DEFAULT),
+            TypeCodecs.TEXT.encode(table, ProtocolVersion.DEFAULT),
+            NodeSyncStatusTable.rangeGroup(group));
+        return statement.setRoutingKeyspace(KEYSPACE).setRoutingToken(token);
+    }
+}
@@ -0,0 +1,158 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/*
+ Share of the ring whose last validation succeeded, per replica set and per node, for each keyspace: which replicas are
+ behind rather than which token ranges.  The vnodes of a keyspace are only read from the cluster topology once.
+ */
+class ReplicaSetsReport implements TableReport
+{
+    // Replica sets that are listed per keyspace, the least validated first
+    private static final int MAX_REPLICA_SETS = 10;
+
+    private final Function<String, VnodeOwnership> ownerships;
+    private final SortedMap<String, KeyspaceTotal> keyspaces = new TreeMap<>();
+
+    ReplicaSetsReport(Function<String, VnodeOwnership> ownerships)
+    {
+        this.ownerships = ownerships;
+    }
+
+    @Override
+    public RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+    {
+        return (startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) -> {
+        };
+    }
+
+    @Override
+    public synchronized void merged(QualifiedTable table, Coverage coverage)
+    {
+        KeyspaceTotal total = keyspaces.computeIfAbsent(table.getKeyspace(),
+            keyspace -> new KeyspaceTotal(ownerships.apply(keyspace)));
+        total.ownership.addValidated(coverage, total.validatedTokens);
+        total.tables++;
+    }
+
+    @Override
+    public synchronized void print()
+    {
+        System.out.println("Share of the token ring validated per replica set and node:");
+        keyspaces.forEach((keyspace, total) -> total.print(keyspace));
+    }
+
+    private static class KeyspaceTotal
+    {
+        private final VnodeOwnership ownership;
+        // Summed over all the tables of the keyspace
+        private final double[] validatedTokens;
+        private int tables;
+
+        KeyspaceTotal(VnodeOwnership ownership)
+        {
+            this.ownership = ownership;
+            this.validatedTokens = new double[ownership.vnodeCount()];
+        }
+
+        void print(String keyspace)
+        {
+            NodeSets nodeSets = ownership.getNodeSets();
+            Share[] replicaSets = new Share[nodeSets.size()];
+            Share[] nodes = new Share[nodeSets.nodeCount()];
+            for (int vnode = 0; vnode < ownership.vnodeCount(); vnode++)
+            {
+                int replicaSet = ownership.replicaSet(vnode);
+                double owned = ownership.ownedTokens(vnode) * tables;
+                if (replicaSets[replicaSet] == null)
+                {
+                    replicaSets[replicaSet] = new Share(replicaSet);
+                }
+                replicaSets[replicaSet].add(owned, validatedTokens[vnode]);
+                long[] bits = nodeSets.bits(replicaSet);
+                for (int word = 0; word < bits.length; word++)
+                {
+                    for (long remaining = bits[word]; remaining != 0; remaining &= remaining - 1)
+                    {
+                        int node = word * 64 + Long.numberOfTrailingZeros(remaining);
+                        if (nodes[node] == null)
+                        {
+                            nodes[node] = new Share(node);
+                        }
+                        nodes[node].add(owned, validatedTokens[vnode]);
+                    }
+                }
+            }
+
+            System.out.printf("  keyspace %s (%d tables, %d vnodes, %d replica sets):%n", keyspace, tables,
+                ownership.vnodeCount(), nodeSets.size());
+            List<Share> behind = new ArrayList<>();
+            for (Share share : replicaSets)
+            {
+                if (share != null && share.behind > 0)
+                {
+                    behind.add(share);
+                }
+            }
+            behind.sort(Comparator.comparing(Share::fraction));
+            for (Share share : behind.subList(0, Math.min(MAX_REPLICA_SETS, behind.size())))
+            {
+                System.out.printf("    replicas %s: %s%n", nodeSets.get(share.id), share);
+            }
+            if (behind.size() > MAX_REPLICA_SETS)
+            {
+                System.out.printf("    ... and %d more replica sets behind%n", behind.size() - MAX_REPLICA_SETS);
+            }
+            Arrays.stream(nodes)
+                .filter(Objects::nonNull)
+                .sorted(Comparator.comparing(Share::fraction))
+                .forEach(share -> System.out.printf("    node %s: %s%n", nodeSets.node(share.id).getHostAddress(),
+                    share));
+        }
+    }
+
+    private static class Share
+    {
+        // Replica set or node
+        private final int id;
+        private int vnodes;
+        // Vnodes of which some part was not validated, in at least one table
+        private int behind;
+        private double ownedTokens;
+        private double validatedTokens;
+
+        Share(int id)
+        {
+            this.id = id;
+        }
+
+        void add(double owned, double validated)
+        {
+            vnodes++;
+            // Token counts above 2^53 are rounded, sums of pieces may not exactly add up to the vnode
+            behind += validated < owned * (1 - 1e-12) ? 1 : 0;
+            ownedTokens += owned;
+            validatedTokens += validated;
+        }
+
+        double fraction()
+        {
+            return ownedTokens == 0 ? 1 : validatedTokens / ownedTokens;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format(Locale.ROOT, "%d vnodes (%d behind), %.3f%% validated", vnodes, behind,
+                100 * fraction());
+        }
+    }
+}
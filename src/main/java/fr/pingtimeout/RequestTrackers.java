@@ -0,0 +1,59 @@
+package fr.pingtimeout;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.session.Request;
+import com.datastax.oss.driver.api.core.tracker.RequestTracker;
+
+/*
+ The driver takes a single request tracker: this one forwards the latency of every request to the trackers added to
+ it.  Only the per node callbacks are forwarded, they are the only ones the trackers of this tool use.
+ */
+class RequestTrackers implements RequestTracker
+{
+    private final List<RequestTracker> trackers = new CopyOnWriteArrayList<>();
+
+    void add(RequestTracker tracker)
+    {
+        trackers.add(tracker);
+    }
+
+    @Override
+    public void onNodeSuccess(Request request, long latencyNanos, DriverExecutionProfile executionProfile, Node node,
+        String requestLogPrefix)
+    {
+        for (RequestTracker tracker : trackers)
+        {
+            tracker.onNodeSuccess(request, latencyNanos, executionProfile, node, requestLogPrefix);
+        }
+    }
+
+    @Override
+    public void onNodeError(Request request, Throwable error, long latencyNanos,
+        DriverExecutionProfile executionProfile, Node node, String requestLogPrefix)
+    {
+        for (RequestTracker tracker : trackers)
+        {
+            tracker.onNodeError(request, error, latencyNanos, executionProfile, node, requestLogPrefix);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        for (RequestTracker tracker : trackers)
+        {
+            try
+            {
+                tracker.close();
+            }
+            catch (Exception e)
+            {
+                throw new IllegalStateException("Cannot close request tracker " + tracker, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package fr.pingtimeout;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/*
+ Parts of the ring validated in every table, in at least one table and in no table at all, per keyspace and for all
+ tables.  The coverage of each table is folded into bitmaps as soon as it is merged, so memory does not grow with the
+ number of tables.
+ */
+class RingAlgebraReport implements TableReport
+{
+    // Ranges of the ring validated in no table that are listed, per keyspace
+    private static final int MAX_RANGES = 10;
+
+    private final int bits;
+    private final SortedMap<String, Scope> keyspaces = new TreeMap<>();
+    private final Scope all = new Scope();
+
+    RingAlgebraReport(int bits)
+    {
+        this.bits = bits;
+    }
+
+    @Override
+    public RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+    {
+        return (startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) -> {
+        };
+    }
+
+    @Override
+    public void merged(QualifiedTable table, Coverage coverage)
+    {
+        // Built outside of the lock, tables can be merged concurrently
+        RingBitmap validated = RingBitmap.validated(coverage, bits);
+        synchronized (this)
+        {
+            keyspaces.computeIfAbsent(table.getKeyspace(), ignored -> new Scope()).add(validated);
+            all.add(validated);
+        }
+    }
+
+    @Override
+    public synchronized void print()
+    {
+        System.out.println("Share of the token ring validated across tables:");
+        for (Map.Entry<String, Scope> entry : keyspaces.entrySet())
+        {
+            entry.getValue().print("keyspace " + entry.getKey());
+        }
+        all.print("all tables");
+    }
+
+    private static String share(RingBitmap bitmap)
+    {
+        if (bitmap.fullFraction() == bitmap.maximumFraction())
+        {
+            return String.format(Locale.ROOT, "%.3f%%", 100 * bitmap.fullFraction());
+        }
+        return String.format(Locale.ROOT, "%.3f%% to %.3f%%", 100 * bitmap.fullFraction(),
+            100 * bitmap.maximumFraction());
+    }
+
+    private static class Scope
+    {
+        private int tables;
+        private RingBitmap inEveryTable;
+        private RingBitmap inSomeTable;
+
+        void add(RingBitmap validated)
+        {
+            tables++;
+            inEveryTable = inEveryTable == null ? validated : inEveryTable.and(validated);
+            inSomeTable = inSomeTable == null ? validated : inSomeTable.or(validated);
+        }
+
+        void print(String name)
+        {
+            if (tables == 0)
+            {
+                return;
+            }
+            RingBitmap inNoTable = inSomeTable.not();
+            System.out.printf("  %s (%d tables): in every table %s, in some tables only %s, in no table %s%n", name,
+                tables, share(inEveryTable), share(inSomeTable.andNot(inEveryTable)), share(inNoTable));
+            int[] listed = {0};
+            inNoTable.forEachRange((lowerBound, upperBound, approximate) -> {
+                if (listed[0]++ < MAX_RANGES)
+                {
+                    System.out.printf("    not validated in any table: %s[%d;%d]%n", approximate ? "about " : "",
+                        lowerBound, upperBound);
+                }
+            });
+            if (listed[0] > MAX_RANGES)
+            {
+                System.out.printf("    ... and %d more ranges%n", listed[0] - MAX_RANGES);
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package fr.pingtimeout;
+
+import java.util.Arrays;
+
+/*
+ Part of the token ring at a fixed resolution: the ring is cut into 2^bits buckets of equal size, and each bucket is
+ either fully in the set, partly in it, or not at all.  Union, intersection and difference work on whole words, so
+ that the coverage of thousands of tables is combined in a few milliseconds.  Partial buckets keep the result honest:
+ a bucket is only reported as fully covered when it is, and partial buckets bound the error on boundaries.
+ */
+class RingBitmap
+{
+    static final int DEFAULT_BITS = 16;
+
+    private final int bits;
+    private final int shift;
+    // Bucket i is in full or in partial, never in both
+    private final long[] full;
+    private final long[] partial;
+
+    RingBitmap(int bits)
+    {
+        if (bits < 6 || bits > 30)
+        {
+            throw new IllegalArgumentException("Resolution must be between 6 and 30 bits, got " + bits);
+        }
+        this.bits = bits;
+        this.shift = 64 - bits;
+        this.full = new long[1 << (bits - 6)];
+        this.partial = new long[full.length];
+    }
+
+    private RingBitmap(int bits, long[] full, long[] partial)
+    {
+        this.bits = bits;
+        this.shift = 64 - bits;
+        this.full = full;
+        this.partial = partial;
+    }
+
+    // Segments of the coverage whose last validation fully succeeded (outcome 0 or 1)
+    static RingBitmap validated(Coverage coverage, int bits)
+    {
+        RingBitmap bitmap = new RingBitmap(bits);
+        boolean inRun = false;
+        long runStart = 0;
+        long runEnd = 0;
+        for (int i = 0; i < coverage.size(); i++)
+        {
+            boolean validated = coverage.outcome(i) <= 1;
+            // Contiguous validated segments are added as one range, so that no bucket is split between them
+            if (inRun && (!validated || coverage.lowerBound(i) > runEnd + 1 || runEnd == Long.MAX_VALUE))
+            {
+                bitmap.add(runStart, runEnd);
+                inRun = false;
+            }
+            if (validated)
+            {
+                if (!inRun)
+                {
+                    runStart = coverage.lowerBound(i);
+                    inRun = true;
+                }
+                runEnd = coverage.upperBound(i);
+            }
+        }
+        if (inRun)
+        {
+            bitmap.add(runStart, runEnd);
+        }
+        return bitmap;
+    }
+
+    // Adds the range (lowerBound;upperBound], which must not wrap around, like Cassandra token ranges
+    void add(long lowerBound, long upperBound)
+    {
+        if (lowerBound == upperBound)
+        {
+            return;
+        }
+        int first = bucket(lowerBound + 1);
+        int last = bucket(upperBound);
+        boolean startsWithBucket = lowerBound == bucketStart(first);
+        boolean endsWithBucket = upperBound == bucketEnd(last);
+        if (first == last)
+        {
+            mark(first, startsWithBucket && endsWithBucket);
+            return;
+        }
+        mark(first, startsWithBucket);
+        mark(last, endsWithBucket);
+        if (last - first > 1)
+        {
+            setRange(full, first + 1, last - 1);
+            clearRange(partial, first + 1, last - 1);
+        }
+    }
+
+    private void mark(int bucket, boolean covered)
+    {
+        if (covered)
+        {
+            full[bucket >>> 6] |= 1L << bucket;
+            partial[bucket >>> 6] &= ~(1L << bucket);
+        }
+        else if ((full[bucket >>> 6] & 1L << bucket) == 0)
+        {
+            partial[bucket >>> 6] |= 1L << bucket;
+        }
+    }
+
+    private static void setRange(long[] words, int from, int to)
+    {
+        for (int word = from >>> 6; word <= to >>> 6; word++)
+        {
+            words[word] |= rangeMask(word, from, to);
+        }
+    }
+
+    private static void clearRange(long[] words, int from, int to)
+    {
+        for (int word = from >>> 6; word <= to >>> 6; word++)
+        {
+            words[word] &= ~rangeMask(word, from, to);
+        }
+    }
+
+    // Bits of the given word that are in [from;to]
+    private static long rangeMask(int word, int from, int to)
+    {
+        long mask = -1L;
+        if (word == from >>> 6)
+        {
+            mask &= -1L << from;
+        }
+        if (word == to >>> 6)
+        {
+            mask &= -1L >>> (63 - (to & 63));
+        }
+        return mask;
+    }
+
+    // Bucket i is the range (bucketStart(i);bucketEnd(i)], the minimum token itself is never assigned by Murmur3
+    int bucket(long token)
+    {
+        return (int) (((token - 1) ^ Long.MIN_VALUE) >>> shift);
+    }
+
+    long bucketStart(int bucket)
+    {
+        return ((long) bucket << shift) ^ Long.MIN_VALUE;
+    }
+
+    long bucketEnd(int bucket)
+    {
+        return bucket == bucketCount() - 1 ? Long.MAX_VALUE : bucketStart(bucket + 1);
+    }
+
+    int bucketCount()
+    {
+        return 1 << bits;
+    }
+
+    boolean isFull(int bucket)
+    {
+        return (full[bucket >>> 6] & 1L << bucket) != 0;
+    }
+
+    boolean isPartial(int bucket)
+    {
+        return (partial[bucket >>> 6] & 1L << bucket) != 0;
+    }
+
+    RingBitmap or(RingBitmap that)
+    {
+        checkResolution(that);
+        long[] resultFull = new long[full.length];
+        long[] resultPartial = new long[full.length];
+        for (int i = 0; i < full.length; i++)
+        {
+            resultFull[i] = full[i] | that.full[i];
+            resultPartial[i] = (partial[i] | that.partial[i]) & ~resultFull[i];
+        }
+        return new RingBitmap(bits, resultFull, resultPartial);
+    }
+
+    RingBitmap and(RingBitmap that)
+    {
+        checkResolution(that);
+        long[] resultFull = new long[full.length];
+        long[] resultPartial = new long[full.length];
+        for (int i = 0; i < full.length; i++)
+        {
+            resultFull[i] = full[i] & that.full[i];
+            resultPartial[i] = (full[i] | partial[i]) & (that.full[i] | that.partial[i]) & ~resultFull[i];
+        }
+        return new RingBitmap(bits, resultFull, resultPartial);
+    }
+
+    RingBitmap andNot(RingBitmap that)
+    {
+        checkResolution(that);
+        long[] resultFull = new long[full.length];
+        long[] resultPartial = new long[full.length];
+        for (int i = 0; i < full.length; i++)
+        {
+            resultFull[i] = full[i] & ~(that.full[i] | that.partial[i]);
+            resultPartial[i] = (full[i] | partial[i]) & ~that.full[i] & ~resultFull[i];
+        }
+        return new RingBitmap(bits, resultFull, resultPartial);
+    }
+
+    // Rest of the ring: partial buckets stay partial
+    RingBitmap not()
+    {
+        long[] resultFull = new long[full.length];
+        for (int i = 0; i < full.length; i++)
+        {
+            resultFull[i] = ~(full[i] | partial[i]);
+        }
+        return new RingBitmap(bits, resultFull, partial.clone());
+    }
+
+    // Share of the ring in full buckets, a lower bound of the share of the ring in the set
+    double fullFraction()
+    {
+        return (double) count(full) / bucketCount();
+    }
+
+    // Share of the ring in full or partial buckets, an upper bound of the share of the ring in the set
+    double maximumFraction()
+    {
+        return (double) (count(full) + count(partial)) / bucketCount();
+    }
+
+    private static long count(long[] words)
+    {
+        long count = 0;
+        for (long word : words)
+        {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    // Maximal runs of full or partial buckets, as (lowerBound;upperBound] token ranges
+    void forEachRange(RangeConsumer consumer)
+    {
+        int bucket = 0;
+        while (bucket < bucketCount())
+        {
+            if (!isFull(bucket) && !isPartial(bucket))
+            {
+                bucket++;
+                continue;
+            }
+            int first = bucket;
+            while (bucket < bucketCount() && (isFull(bucket) || isPartial(bucket)))
+            {
+                bucket++;
+            }
+            consumer.accept(bucketStart(first), bucketEnd(bucket - 1), isPartial(first) || isPartial(bucket - 1));
+        }
+    }
+
+    private void checkResolution(RingBitmap that)
+    {
+        if (bits != that.bits)
+        {
+            throw new IllegalArgumentException("Cannot combine bitmaps of " + bits + " and " + that.bits + " bits");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof RingBitmap))
+        {
+            return false;
+        }
+        RingBitmap that = (RingBitmap) o;
+        return bits == that.bits && Arrays.equals(full, that.full) && Arrays.equals(partial, that.partial);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Arrays.hashCode(full) + Arrays.hashCode(partial);
+    }
+
+    interface RangeConsumer
+    {
+        // Bounds are exact unless the range starts or ends with a partial bucket
+        void accept(long lowerBound, long upperBound, boolean approximate);
+    }
+}
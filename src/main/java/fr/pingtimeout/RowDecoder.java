@@ -0,0 +1,185 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+
+import com.datastax.oss.driver.api.core.cql.ColumnDefinitions;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.type.DataType;
+import com.datastax.oss.driver.api.core.type.DataTypes;
+import com.datastax.oss.driver.api.core.type.UserDefinedType;
+
+/*
+ Decodes nodesync_status rows into a RecordSink, like NodeSyncRecord.recordFromRow without creating anything per row.
+ Column and UDT field indexes are resolved once per result metadata instead of looked up by name on every row, and the
+ validation UDTs are read from their serialized form: only the fields that are needed are decoded, and the missing
+ nodes only when there are some.  Wrap-around ranges are sent as is.
+
+ Rows of a page share their metadata, so resolving is done once per statement.  Not thread-safe: use one decoder per
+ concurrent stream of pages.
+ */
+class RowDecoder
+{
+    private final NodeSets nodeSets;
+
+    private ColumnDefinitions definitions;
+    private int startTokenIndex;
+    private int endTokenIndex;
+    private int lastSuccessfulValidationIndex;
+    private int lastUnsuccessfulValidationIndex;
+    private int startedAtField;
+    private int outcomeField;
+    private int missingNodesField;
+    private int lastNeededField;
+
+    // Position and length of the fields of the UDT being read, -1 when a field is null or missing
+    private final int[] fieldOffsets = new int[3];
+    private final int[] fieldLengths = new int[3];
+
+    RowDecoder(NodeSets nodeSets)
+    {
+        this.nodeSets = nodeSets;
+    }
+
+    void decode(Row row, RecordSink sink)
+    {
+        if (row.getColumnDefinitions() != definitions)
+        {
+            resolve(row.getColumnDefinitions());
+        }
+        long startToken = bigint(row.getBytesUnsafe(startTokenIndex));
+        long endToken = bigint(row.getBytesUnsafe(endTokenIndex));
+        ByteBuffer successful = row.getBytesUnsafe(lastSuccessfulValidationIndex);
+        ByteBuffer unsuccessful = row.getBytesUnsafe(lastUnsuccessfulValidationIndex);
+        long lastSuccess = startedAt(successful);
+        // Same choice as recordFromRow: the successful validation wins only if it is strictly more recent
+        ByteBuffer lastValidation = lastSuccess > startedAt(unsuccessful) ? successful : unsuccessful;
+        if (lastValidation == null)
+        {
+            // Never validated at all
+            sink.accept(startToken, endToken, 0, lastSuccess, 4, NodeSets.EMPTY);
+            return;
+        }
+        readFields(lastValidation);
+        sink.accept(
+            startToken,
+            endToken,
+            fieldLengths[0] == 8 ? lastValidation.getLong(fieldOffsets[0]) : 0,
+            lastSuccess,
+            fieldLengths[1] == 1 ? lastValidation.get(fieldOffsets[1]) : 0,
+            fieldLengths[2] > 0 ? internInetSet(lastValidation, fieldOffsets[2]) : NodeSets.EMPTY);
+    }
+
+    private void resolve(ColumnDefinitions definitions)
+    {
+        startTokenIndex = indexOf(definitions, "start_token", DataTypes.BIGINT);
+        endTokenIndex = indexOf(definitions, "end_token", DataTypes.BIGINT);
+        lastSuccessfulValidationIndex = definitions.firstIndexOf("last_successful_validation");
+        lastUnsuccessfulValidationIndex = definitions.firstIndexOf("last_unsuccessful_validation");
+        if (lastSuccessfulValidationIndex < 0 || lastUnsuccessfulValidationIndex < 0
+            || !(definitions.get(lastSuccessfulValidationIndex).getType() instanceof UserDefinedType))
+        {
+            throw new IllegalArgumentException("Missing validation columns in " + definitions);
+        }
+        UserDefinedType validation = (UserDefinedType) definitions.get(lastSuccessfulValidationIndex).getType();
+        startedAtField = fieldIndexOf(validation, "started_at", DataTypes.TIMESTAMP);
+        outcomeField = fieldIndexOf(validation, "outcome", DataTypes.TINYINT);
+        missingNodesField = fieldIndexOf(validation, "missing_nodes", DataTypes.setOf(DataTypes.INET));
+        lastNeededField = Math.max(startedAtField, Math.max(outcomeField, missingNodesField));
+        this.definitions = definitions;
+    }
+
+    private static int indexOf(ColumnDefinitions definitions, String name, DataType type)
+    {
+        int index = definitions.firstIndexOf(name);
+        if (index < 0 || !definitions.get(index).getType().equals(type))
+        {
+            throw new IllegalArgumentException("Missing " + type.asCql(false, false) + " column " + name);
+        }
+        return index;
+    }
+
+    private static int fieldIndexOf(UserDefinedType type, String name, DataType fieldType)
+    {
+        int index = type.firstIndexOf(name);
+        if (index < 0 || !type.getFieldTypes().get(index).equals(fieldType))
+        {
+            throw new IllegalArgumentException("Missing field " + name + " in " + type.asCql(false, false));
+        }
+        return index;
+    }
+
+    private static long bigint(ByteBuffer bytes)
+    {
+        return bytes == null ? 0 : bytes.getLong(bytes.position());
+    }
+
+    // Each field of a serialized UDT is an int length (negative for null) followed by its value
+    private void readFields(ByteBuffer udt)
+    {
+        for (int i = 0; i < fieldOffsets.length; i++)
+        {
+            fieldLengths[i] = -1;
+        }
+        int position = udt.position();
+        for (int field = 0; field <= lastNeededField && position + 4 <= udt.limit(); field++)
+        {
+            int length = udt.getInt(position);
+            position += 4;
+            int slot = field == startedAtField ? 0 : field == outcomeField ? 1 : field == missingNodesField ? 2 : -1;
+            if (slot >= 0)
+            {
+                fieldOffsets[slot] = position;
+                fieldLengths[slot] = length;
+            }
+            position += Math.max(length, 0);
+        }
+    }
+
+    // started_at of a serialized validation, 0 if there is none
+    private long startedAt(ByteBuffer udt)
+    {
+        if (udt == null)
+        {
+            return 0;
+        }
+        int position = udt.position();
+        for (int field = 0; field < startedAtField && position + 4 <= udt.limit(); field++)
+        {
+            position += 4 + Math.max(udt.getInt(position), 0);
+        }
+        if (position + 4 > udt.limit() || udt.getInt(position) != 8)
+        {
+            return 0;
+        }
+        return udt.getLong(position + 4);
+    }
+
+    // A serialized set is an int size followed by its elements, each one with an int length
+    private int internInetSet(ByteBuffer bytes, int offset)
+    {
+        int size = bytes.getInt(offset);
+        long[] bits = NodeSets.emptyBits();
+        int position = offset + 4;
+        for (int i = 0; i < size; i++)
+        {
+            int length = bytes.getInt(position);
+            byte[] address = new byte[length];
+            for (int b = 0; b < length; b++)
+            {
+                address[b] = bytes.get(position + 4 + b);
+            }
+            position += 4 + length;
+            try
+            {
+                bits = NodeSets.withNode(bits, nodeSets.nodeIndex(InetAddress.getByAddress(address)));
+            }
+            catch (UnknownHostException e)
+            {
+                throw new IllegalArgumentException("Invalid inet of " + length + " bytes in missing_nodes", e);
+            }
+        }
+        return nodeSets.intern(bits);
+    }
+}
@@ -0,0 +1,104 @@
+package fr.pingtimeout;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/*
+ End-to-end timing of a run, from the first row read to the last report printed: wall time, rows per second, time spent
+ reading rows (which includes whatever the sinks do with them) versus merging and reporting, peak heap and GC work.
+
+ The peak heap is the sum of the peaks of every heap pool since the timer started.  Pools do not peak at the same time,
+ so it is an upper bound of the actual peak, close enough to size -Xmx.
+ */
+class RunTimer
+{
+    private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .collect(Collectors.toList());
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+    private final long startNanos;
+    private final long startCollections;
+    private final long startCollectionMillis;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder tables = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+
+    RunTimer()
+    {
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        startCollections = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+        startCollectionMillis = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+        startNanos = System.nanoTime();
+    }
+
+    // Same source, counting the rows and the time spent reading them
+    RecordSource count(RecordSource source)
+    {
+        return new RecordSource()
+        {
+            @Override
+            public List<QualifiedTable> getTables()
+            {
+                return source.getTables();
+            }
+
+            @Override
+            public void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink)
+            {
+                read(table, nodeSets, sink, null);
+            }
+
+            @Override
+            public void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink, ScanProfile.Table profile)
+            {
+                long[] count = new long[1];
+                RecordSink counted = (startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) -> {
+                    count[0]++;
+                    sink.accept(startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+                };
+                long start = System.nanoTime();
+                if (profile == null)
+                {
+                    source.read(table, nodeSets, counted);
+                }
+                else
+                {
+                    source.read(table, nodeSets, counted, profile);
+                }
+                readNanos.add(System.nanoTime() - start);
+                rows.add(count[0]);
+                tables.increment();
+            }
+
+            @Override
+            public void close()
+            {
+                source.close();
+            }
+        };
+    }
+
+    void print()
+    {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        double seconds = elapsedNanos / 1e9;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        long collections = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionCount).sum()
+            - startCollections;
+        long collectionMillis = collectors.stream().mapToLong(GarbageCollectorMXBean::getCollectionTime).sum()
+            - startCollectionMillis;
+        System.out.println("Timing:");
+        System.out.printf(Locale.ROOT, "  %d tables, %d rows in %.3f s, %.0f rows/s%n", tables.sum(), rows.sum(),
+            seconds, rows.sum() / Math.max(seconds, 1e-9));
+        System.out.printf(Locale.ROOT, "  reading rows %.3f s, merging and reporting %.3f s%n",
+            readNanos.sum() / 1e9, (elapsedNanos - readNanos.sum()) / 1e9);
+        System.out.printf(Locale.ROOT, "  peak heap %d MiB, %d GCs in %d ms%n", peakHeap >> 20, collections,
+            collectionMillis);
+    }
+}
@@ -0,0 +1,409 @@
+package fr.pingtimeout;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ Progress of a scan, so that an interrupted run can be resumed.  The file has a header, rewritten atomically whenever
+ a table is done or started, followed by the journal of the table being read, appended after every page.  All numbers
+ are big-endian, strings are modified UTF-8 (DataOutput.writeUTF).
+
+   header      int magic, int version, UTF scan mode
+               int count, (UTF keyspace, UTF table)*                tables done
+               boolean, (UTF keyspace, UTF table)?                  table being read
+   journal     (byte 1, int id, int size, (byte length, address bytes)*    missing node set
+               | byte 2, int rows, (long start token, long end token, long last validation, long last success,
+                     byte outcome, int missing node set id)*,
+                 int next statement, int paging state length (-1 if none), paging state bytes)*   page
+
+ The rows of the pages are the partial merge state: they are sent again to the sink of the table when it is resumed,
+ and the scan goes on from the statement and the paging state of the last page.  A page cut short by the end of the
+ process is dropped and read again.  Pages are flushed but not synced: a checkpoint survives the process, not the
+ machine.
+ */
+class ScanCheckpoint implements AutoCloseable
+{
+    static final int MAGIC = 0x4E53434B; // NSCK
+    static final int VERSION = 1;
+
+    private static final byte NODE_SET = 1;
+    private static final byte PAGE = 2;
+    // Tokens, instants, outcome and missing node set id of a row of a page
+    private static final int BYTES_PER_ROW = 4 * Long.BYTES + 1 + Integer.BYTES;
+
+    private final Path path;
+    private final String scanMode;
+    private final Set<QualifiedTable> done = new LinkedHashSet<>();
+    private QualifiedTable current;
+    private long journalOffset;
+
+    // Journal of the current table, with the journal id of every node set already written to it
+    private DataOutputStream journal;
+    private final Map<Integer, Integer> journalIds = new HashMap<>();
+    private int nextJournalId;
+
+    private ScanCheckpoint(Path path, String scanMode)
+    {
+        this.path = path;
+        this.scanMode = scanMode;
+    }
+
+    // Loads the checkpoint if the file exists, starts a new one otherwise
+    static ScanCheckpoint open(Path path, ScanMode scanMode)
+    {
+        ScanCheckpoint checkpoint = new ScanCheckpoint(path, scanMode.name());
+        if (!Files.exists(path))
+        {
+            checkpoint.writeHeader();
+            return checkpoint;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            // Unbuffered, so that the channel position is the end of the header
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            if (in.readInt() != MAGIC)
+            {
+                throw new IllegalArgumentException(path + " is not a checkpoint");
+            }
+            int version = in.readInt();
+            if (version != VERSION)
+            {
+                throw new IllegalArgumentException("Unsupported checkpoint version " + version + " in " + path);
+            }
+            String fileScanMode = in.readUTF();
+            if (!fileScanMode.equals(checkpoint.scanMode))
+            {
+                throw new IllegalArgumentException(path + " is the checkpoint of a scan with --scan "
+                    + fileScanMode.toLowerCase(Locale.ROOT));
+            }
+            for (int i = in.readInt(); i > 0; i--)
+            {
+                checkpoint.done.add(new QualifiedTable(in.readUTF(), in.readUTF()));
+            }
+            if (in.readBoolean())
+            {
+                checkpoint.current = new QualifiedTable(in.readUTF(), in.readUTF());
+            }
+            checkpoint.journalOffset = channel.position();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot read checkpoint " + path, e);
+        }
+        return checkpoint;
+    }
+
+    boolean isDone(QualifiedTable table)
+    {
+        return done.contains(table);
+    }
+
+    int getDoneCount()
+    {
+        return done.size();
+    }
+
+    /*
+     Starts reading a table.  If it is the table that was being read, its rows are sent again to the sink and the
+     returned position is where its scan stopped, otherwise the scan starts from the beginning.
+     */
+    Position resume(QualifiedTable table, NodeSets nodeSets, RecordSink sink)
+    {
+        closeJournal();
+        journalIds.clear();
+        nextJournalId = 1;
+        if (!table.equals(current))
+        {
+            current = table;
+            writeHeader();
+            openJournal(journalOffset);
+            return new Position(0, null, 0);
+        }
+        Position position;
+        try (InputStream file = Files.newInputStream(path))
+        {
+            skipFully(file, journalOffset);
+            position = replay(new DataInputStream(new BufferedInputStream(file)), nodeSets, sink);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot read checkpoint " + path, e);
+        }
+        openJournal(journalOffset + position.journalLength);
+        return position;
+    }
+
+    // Records a page of the current table, rows being relative to the given dictionary
+    void page(RecordColumns rows, NodeSets nodeSets, int nextStatement, byte[] pagingState)
+    {
+        try
+        {
+            for (int i = 0; i < rows.size(); i++)
+            {
+                int id = rows.missingNodes(i);
+                if (id != NodeSets.EMPTY && !journalIds.containsKey(id))
+                {
+                    writeNodeSet(nodeSets.get(id));
+                    journalIds.put(id, nextJournalId++);
+                }
+            }
+            journal.writeByte(PAGE);
+            journal.writeInt(rows.size());
+            for (int i = 0; i < rows.size(); i++)
+            {
+                journal.writeLong(rows.startToken(i));
+                journal.writeLong(rows.endToken(i));
+                journal.writeLong(rows.lastValidation(i));
+                journal.writeLong(rows.lastSuccess(i));
+                journal.writeByte(rows.outcome(i));
+                int id = rows.missingNodes(i);
+                journal.writeInt(id == NodeSets.EMPTY ? NodeSets.EMPTY : journalIds.get(id));
+            }
+            journal.writeInt(nextStatement);
+            journal.writeInt(pagingState == null ? -1 : pagingState.length);
+            if (pagingState != null)
+            {
+                journal.write(pagingState);
+            }
+            journal.flush();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot write checkpoint " + path, e);
+        }
+    }
+
+    // Once the table is output: it will be skipped by the next runs, and its journal is dropped
+    void tableDone(QualifiedTable table)
+    {
+        closeJournal();
+        done.add(table);
+        if (table.equals(current))
+        {
+            current = null;
+        }
+        writeHeader();
+    }
+
+    // Once every table is done, nothing is left to resume
+    void delete()
+    {
+        closeJournal();
+        try
+        {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot delete checkpoint " + path, e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        closeJournal();
+    }
+
+    private Position replay(DataInputStream in, NodeSets nodeSets, RecordSink sink) throws IOException
+    {
+        Map<Integer, Integer> ids = new HashMap<>();
+        ids.put(NodeSets.EMPTY, NodeSets.EMPTY);
+        RecordColumns page = new RecordColumns(1024);
+        Position position = new Position(0, null, 0);
+        long length = 0;
+        try
+        {
+            while (true)
+            {
+                byte type = in.readByte();
+                if (type == NODE_SET)
+                {
+                    int journalId = in.readInt();
+                    int size = in.readInt();
+                    long entryLength = 1 + 2 * Integer.BYTES;
+                    Set<InetAddress> nodes = new HashSet<>();
+                    for (int i = 0; i < size; i++)
+                    {
+                        byte[] address = new byte[in.readByte()];
+                        in.readFully(address);
+                        nodes.add(InetAddress.getByAddress(address));
+                        entryLength += 1 + address.length;
+                    }
+                    int id = nodeSets.intern(nodes);
+                    ids.put(journalId, id);
+                    journalIds.put(id, journalId);
+                    nextJournalId = Math.max(nextJournalId, journalId + 1);
+                    length += entryLength;
+                }
+                else if (type == PAGE)
+                {
+                    page.clear();
+                    int rows = in.readInt();
+                    for (int i = 0; i < rows; i++)
+                    {
+                        page.accept(in.readLong(), in.readLong(), in.readLong(), in.readLong(), in.readByte(),
+                            ids.get(in.readInt()));
+                    }
+                    int nextStatement = in.readInt();
+                    int stateLength = in.readInt();
+                    byte[] pagingState = stateLength < 0 ? null : new byte[stateLength];
+                    if (pagingState != null)
+                    {
+                        in.readFully(pagingState);
+                    }
+                    // The page is complete, its rows can be used
+                    page.forEach(sink);
+                    length += 1 + Integer.BYTES + (long) rows * BYTES_PER_ROW + 2 * Integer.BYTES
+                        + Math.max(0, stateLength);
+                    position = new Position(nextStatement, pagingState, position.rows + rows);
+                }
+                else
+                {
+                    throw new IllegalArgumentException("Corrupted checkpoint " + path);
+                }
+            }
+        }
+        catch (EOFException e)
+        {
+            // End of the journal, the last entry may have been cut short
+        }
+        position.journalLength = length;
+        return position;
+    }
+
+    private void writeNodeSet(Set<InetAddress> nodes) throws IOException
+    {
+        journal.writeByte(NODE_SET);
+        journal.writeInt(nextJournalId);
+        journal.writeInt(nodes.size());
+        for (InetAddress node : nodes)
+        {
+            byte[] address = node.getAddress();
+            journal.writeByte(address.length);
+            journal.write(address);
+        }
+    }
+
+    private void writeHeader()
+    {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(scanMode);
+            out.writeInt(done.size());
+            for (QualifiedTable table : done)
+            {
+                out.writeUTF(table.getKeyspace());
+                out.writeUTF(table.getTable());
+            }
+            out.writeBoolean(current != null);
+            if (current != null)
+            {
+                out.writeUTF(current.getKeyspace());
+                out.writeUTF(current.getTable());
+            }
+            out.flush();
+            journalOffset = out.size();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot write checkpoint " + path, e);
+        }
+        try
+        {
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot write checkpoint " + path, e);
+        }
+    }
+
+    // Appends to the journal from the given offset, dropping whatever follows
+    private void openJournal(long offset)
+    {
+        try
+        {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            channel.truncate(offset);
+            channel.position(offset);
+            journal = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot write checkpoint " + path, e);
+        }
+    }
+
+    private void closeJournal()
+    {
+        if (journal == null)
+        {
+            return;
+        }
+        try
+        {
+            journal.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot write checkpoint " + path, e);
+        }
+        journal = null;
+    }
+
+    private static void skipFully(InputStream in, long bytes) throws IOException
+    {
+        while (bytes > 0)
+        {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0)
+            {
+                throw new EOFException();
+            }
+            bytes -= skipped;
+        }
+    }
+
+    // Where the scan of a table stopped
+    static class Position
+    {
+        // Index of the statement to execute next, in the order of ScanMode.statements
+        final int statement;
+        // Paging state of the statement if its first pages were read, null otherwise
+        final byte[] pagingState;
+        // Rows already sent to the sink
+        final long rows;
+        // Length of the complete entries of the journal, appended to when the scan goes on
+        private long journalLength;
+
+        Position(int statement, byte[] pagingState, long rows)
+        {
+            this.statement = statement;
+            this.pagingState = pagingState;
+            this.rows = rows;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package fr.pingtimeout;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+
+enum ScanMode
+{
+    // Single query restricted on keyspace and table only, the coordinator has to scan the whole nodesync_status table
+    FILTERING
+        {
+            @Override
+            Stream<? extends Statement<?>> statements(CqlSession session, String keyspace, String table)
+            {
+                PreparedStatement statement = session.prepare(NodeSyncStatusTable.SELECT_TABLE_ALLOW_FILTERING);
+                return Stream.of(statement.bind(keyspace, table));
+            }
+        },
+
+    // One query per range_group, each one only reads a single partition
+    PARTITIONS
+        {
+            @Override
+            Stream<? extends Statement<?>> statements(CqlSession session, String keyspace, String table)
+            {
+                // The driver caches prepared statements, so this is only sent to the cluster once per session
+                PreparedStatement statement = session.prepare(NodeSyncStatusTable.SELECT_RANGE_GROUP);
+                return IntStream.range(0, NodeSyncStatusTable.RANGE_GROUP_COUNT)
+                    .mapToObj(group -> statement.bind(keyspace, table, NodeSyncStatusTable.rangeGroup(group)));
+            }
+        },
+
+    // Same as PARTITIONS, each query being routed to the replicas of its partition, see ReplicaRouting
+    REPLICAS
+        {
+            @Override
+            Stream<? extends Statement<?>> statements(CqlSession session, String keyspace, String table)
+            {
+                PreparedStatement statement = session.prepare(NodeSyncStatusTable.SELECT_RANGE_GROUP);
+                Optional<TokenMap> tokenMap = session.getMetadata().getTokenMap();
+                return IntStream.range(0, NodeSyncStatusTable.RANGE_GROUP_COUNT)
+                    .mapToObj(group -> {
+                        BoundStatement bound = statement.bind(keyspace, table, NodeSyncStatusTable.rangeGroup(group));
+                        return tokenMap
+                            .map(map -> ReplicaRouting.toReplicas(map, bound, keyspace, table, group))
+                            .orElse(bound);
+                    });
+            }
+        };
+
+    abstract Stream<? extends Statement<?>> statements(CqlSession session, String keyspace, String table);
+
+    // Queries are executed lazily, one after the other, as the stream is consumed
+    Stream<Row> fetchRows(CqlSession session, String keyspace, String table)
+    {
+        return statements(session, keyspace, table)
+            .map(session::execute)
+            .flatMap(resultSet -> StreamSupport.stream(resultSet.spliterator(), false));
+    }
+
+    static ScanMode fromName(String name)
+    {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,209 @@
+package fr.pingtimeout;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ Where the time of a check goes, per table and per phase: waiting for pages from Cassandra, decoding rows into the
+ sinks, merging and reporting, and printing or writing the results.
+
+ Every phase is a flight recorder event when the JVM has the jdk.jfr API, so a recording (-XX:StartFlightRecording)
+ shows them next to GC and I/O.  Without it, only the summary printed by --profile is available.  Allocations are
+ counted per thread, with the HotSpot extension of ThreadMXBean, and are 0 when it is not supported.
+
+ A table is profiled by the thread that checks it: phases of a table do not overlap.
+ */
+class ScanProfile
+{
+    private static final boolean JFR = isJfrAvailable();
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    enum Phase
+    {
+        FETCH("fetch"), DECODE("decode"), MERGE("merge"), OUTPUT("output");
+
+        private final String label;
+
+        Phase(String label)
+        {
+            this.label = label;
+        }
+
+        String getLabel()
+        {
+            return label;
+        }
+    }
+
+    // Kept only to print a summary
+    private final List<Table> tables;
+
+    ScanProfile(boolean summary)
+    {
+        this.tables = summary ? new ArrayList<>() : null;
+    }
+
+    synchronized Table table(QualifiedTable table)
+    {
+        Table profile = new Table(table.toString(), JFR);
+        if (tables != null)
+        {
+            tables.add(profile);
+        }
+        return profile;
+    }
+
+    synchronized void print()
+    {
+        if (tables == null)
+        {
+            return;
+        }
+        System.out.println("Profile:");
+        Table total = new Table("all tables", false);
+        for (Table table : tables)
+        {
+            table.print();
+            total.add(table);
+        }
+        total.print();
+    }
+
+    private static boolean isJfrAvailable()
+    {
+        try
+        {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        }
+        catch (ClassNotFoundException | LinkageError e)
+        {
+            return false;
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter()
+    {
+        try
+        {
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            if (threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported())
+            {
+                ((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+                return (com.sun.management.ThreadMXBean) threads;
+            }
+        }
+        catch (LinkageError | UnsupportedOperationException e)
+        {
+            // Not a HotSpot JVM
+        }
+        return null;
+    }
+
+    private static long allocatedBytes()
+    {
+        return THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    static class Table
+    {
+        private final String name;
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private final Object tableEvent;
+        private final long startNanos;
+        private long elapsedNanos;
+        private long rows;
+        private long pages;
+        private long bytes;
+        private long allocated;
+
+        // Current phase
+        private Phase phase;
+        private Object phaseEvent;
+        private long phaseStart;
+        private long phaseAllocated;
+
+        private Table(String name, boolean recorded)
+        {
+            this.name = name;
+            this.tableEvent = recorded ? JfrEvents.beginTable() : null;
+            this.startNanos = System.nanoTime();
+        }
+
+        void begin(Phase phase)
+        {
+            this.phase = phase;
+            phaseEvent = JFR ? JfrEvents.begin(phase) : null;
+            phaseAllocated = allocatedBytes();
+            phaseStart = System.nanoTime();
+        }
+
+        // Ends the current phase, rows and bytes are the ones it processed
+        void end(long phaseRows, long phaseBytes)
+        {
+            phaseNanos[phase.ordinal()] += System.nanoTime() - phaseStart;
+            long phaseAllocations = allocatedBytes() - phaseAllocated;
+            allocated += phaseAllocations;
+            if (phase == Phase.FETCH)
+            {
+                pages++;
+                bytes += phaseBytes;
+            }
+            if (phaseEvent != null)
+            {
+                JfrEvents.end(phaseEvent, name, phase, phaseRows, phaseBytes, phaseAllocations);
+                phaseEvent = null;
+            }
+        }
+
+        void setRows(long rows)
+        {
+            this.rows = rows;
+        }
+
+        // Once the table is output
+        void finish()
+        {
+            elapsedNanos = System.nanoTime() - startNanos;
+            if (tableEvent != null)
+            {
+                JfrEvents.endTable(tableEvent, name, rows, pages, bytes, allocated, phaseNanos);
+            }
+        }
+
+        private void add(Table that)
+        {
+            for (int i = 0; i < phaseNanos.length; i++)
+            {
+                phaseNanos[i] += that.phaseNanos[i];
+            }
+            elapsedNanos += that.elapsedNanos;
+            rows += that.rows;
+            pages += that.pages;
+            bytes += that.bytes;
+            allocated += that.allocated;
+        }
+
+        private void print()
+        {
+            double seconds = elapsedNanos / 1e9;
+            StringBuilder line = new StringBuilder(String.format(Locale.ROOT, "  %s: %d rows in %.3f s, %.0f rows/s",
+                name, rows, seconds, rows / Math.max(seconds, 1e-9)));
+            for (Phase phase : Phase.values())
+            {
+                line.append(String.format(Locale.ROOT, ", %s %.3f s", phase.getLabel(),
+                    phaseNanos[phase.ordinal()] / 1e9));
+            }
+            if (pages > 0)
+            {
+                line.append(String.format(Locale.ROOT, ", %d pages, %.1f MiB read", pages, bytes / 1048576.0));
+            }
+            line.append(String.format(Locale.ROOT, ", %.1f MiB allocated", allocated / 1048576.0));
+            System.out.println(line);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package fr.pingtimeout;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+
+final class SchemaDiscovery
+{
+    private SchemaDiscovery()
+    {
+    }
+
+    // Sorted by keyspace then table.  An empty set of keyspaces means all of them.
+    static List<QualifiedTable> discoverTables(CqlSession session, Set<String> keyspaces)
+    {
+        return StreamSupport
+            .stream(session.execute("SELECT keyspace_name, table_name FROM system_schema.tables").spliterator(),
+                false)
+            .map(row -> new QualifiedTable(row.getString("keyspace_name"), row.getString("table_name")))
+            .filter(table -> keyspaces.isEmpty() || keyspaces.contains(table.getKeyspace()))
+            .sorted()
+            .collect(Collectors.toList());
+    }
+
+    // gc_grace_seconds of every table, the longest a range can go without a successful validation before deleted data
+    // may come back
+    static Map<QualifiedTable, Duration> gcGraces(CqlSession session)
+    {
+        Map<QualifiedTable, Duration> gcGraces = new HashMap<>();
+        session.execute("SELECT keyspace_name, table_name, gc_grace_seconds FROM system_schema.tables")
+            .forEach(row -> gcGraces.put(new QualifiedTable(row.getString("keyspace_name"),
+                row.getString("table_name")), Duration.ofSeconds(row.getInt("gc_grace_seconds"))));
+        return gcGraces;
+    }
+}
@@ -0,0 +1,281 @@
+package fr.pingtimeout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.StringJoiner;
+import java.util.zip.GZIPOutputStream;
+
+/*
+ Writes merged segments as JSON Lines or CSV, one segment per line.  Numbers are written digit by digit into a byte
+ buffer and the names and missing nodes are encoded once per table and node set, so that no String is built per
+ segment.  Files whose name ends with .gz are gzipped.  Not thread-safe, tables are written one after the other.
+ */
+class SegmentWriter implements AutoCloseable
+{
+    enum Format
+    {
+        JSONL, CSV;
+
+        static Format fromName(String name)
+        {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+    }
+
+    private static final byte[] CSV_HEADER = ("keyspace,table,start_token,end_token,last_validation,last_success,"
+        + "outcome,missing_nodes\n").getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes(StandardCharsets.UTF_8);
+
+    private final Format format;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[1 << 16];
+    private int position;
+    private final byte[] digits = new byte[20];
+
+    SegmentWriter(Path path, Format format)
+    {
+        this.format = format;
+        try
+        {
+            OutputStream file = Files.newOutputStream(path);
+            this.out = path.getFileName().toString().endsWith(".gz") ? new GZIPOutputStream(file, 1 << 16) : file;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot create " + path, e);
+        }
+        if (format == Format.CSV)
+        {
+            put(CSV_HEADER);
+        }
+    }
+
+    // The format defaults to CSV for .csv and .csv.gz files, JSON Lines otherwise
+    static SegmentWriter open(Path path, String format)
+    {
+        if (format != null)
+        {
+            return new SegmentWriter(path, Format.fromName(format));
+        }
+        String name = path.getFileName().toString();
+        return new SegmentWriter(path, name.endsWith(".csv") || name.endsWith(".csv.gz") ? Format.CSV : Format.JSONL);
+    }
+
+    // Sink of the merged segments of a table, missing node ids being relative to the given dictionary
+    RecordSink forTable(String keyspace, String table, NodeSets nodeSets)
+    {
+        return new TableSink(keyspace, table, nodeSets);
+    }
+
+    private static String csvField(String value)
+    {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0)
+        {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static String jsonString(String value)
+    {
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : value.toCharArray())
+        {
+            if (c == '"' || c == '\\')
+            {
+                builder.append('\\').append(c);
+            }
+            else if (c < 0x20)
+            {
+                builder.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+
+    private void putLong(long value)
+    {
+        if (value == Long.MIN_VALUE)
+        {
+            put(MIN_VALUE);
+            return;
+        }
+        if (value < 0)
+        {
+            putByte('-');
+            value = -value;
+        }
+        int count = 0;
+        do
+        {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        while (value != 0);
+        ensureRemaining(count);
+        while (count > 0)
+        {
+            buffer[position++] = digits[--count];
+        }
+    }
+
+    private void putByte(char c)
+    {
+        ensureRemaining(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void put(byte[] bytes)
+    {
+        if (bytes.length > buffer.length)
+        {
+            flush();
+            write(bytes, bytes.length);
+            return;
+        }
+        ensureRemaining(bytes.length);
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void ensureRemaining(int count)
+    {
+        if (buffer.length - position < count)
+        {
+            flush();
+        }
+    }
+
+    private void flush()
+    {
+        write(buffer, position);
+        position = 0;
+    }
+
+    private void write(byte[] bytes, int length)
+    {
+        try
+        {
+            out.write(bytes, 0, length);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        flush();
+        try
+        {
+            out.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private class TableSink implements RecordSink
+    {
+        private final byte[] prefix;
+        private final NodeSets nodeSets;
+        // Node sets encoded the first time they are written, the dictionary may grow during a streaming scan
+        private byte[][] missingNodes = new byte[0][];
+
+        TableSink(String keyspace, String table, NodeSets nodeSets)
+        {
+            this.prefix = (format == Format.CSV
+                ? csvField(keyspace) + ',' + csvField(table) + ','
+                : "{\"keyspace\":" + jsonString(keyspace) + ",\"table\":" + jsonString(table) + ",\"start_token\":")
+                .getBytes(StandardCharsets.UTF_8);
+            this.nodeSets = nodeSets;
+        }
+
+        @Override
+        public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+            int missingNodesId)
+        {
+            put(prefix);
+            if (format == Format.CSV)
+            {
+                putLong(startToken);
+                putByte(',');
+                putLong(endToken);
+                putByte(',');
+                putLong(lastValidation);
+                putByte(',');
+                putLong(lastSuccess);
+                putByte(',');
+                putLong(outcome);
+                putByte(',');
+                put(encodedNodes(missingNodesId));
+                putByte('\n');
+            }
+            else
+            {
+                putLong(startToken);
+                put(JsonFields.END_TOKEN);
+                putLong(endToken);
+                put(JsonFields.LAST_VALIDATION);
+                putLong(lastValidation);
+                put(JsonFields.LAST_SUCCESS);
+                putLong(lastSuccess);
+                put(JsonFields.OUTCOME);
+                putLong(outcome);
+                put(JsonFields.MISSING_NODES);
+                put(encodedNodes(missingNodesId));
+                put(JsonFields.END);
+            }
+        }
+
+        private byte[] encodedNodes(int id)
+        {
+            if (id >= missingNodes.length)
+            {
+                missingNodes = Arrays.copyOf(missingNodes, Math.max(id + 1, 2 * missingNodes.length));
+            }
+            if (missingNodes[id] == null)
+            {
+                // Space separated addresses in CSV, an array of strings in JSON
+                StringJoiner joiner = format == Format.CSV
+                    ? new StringJoiner(" ")
+                    : new StringJoiner(",", "[", "]");
+                for (InetAddress node : nodeSets.get(id))
+                {
+                    joiner.add(format == Format.CSV ? node.getHostAddress() : '"' + node.getHostAddress() + '"');
+                }
+                missingNodes[id] = joiner.toString().getBytes(StandardCharsets.UTF_8);
+            }
+            return missingNodes[id];
+        }
+    }
+
+    private static final class JsonFields
+    {
+        private static final byte[] END_TOKEN = bytes(",\"end_token\":");
+        private static final byte[] LAST_VALIDATION = bytes(",\"last_validation\":");
+        private static final byte[] LAST_SUCCESS = bytes(",\"last_success\":");
+        private static final byte[] OUTCOME = bytes(",\"outcome\":");
+        private static final byte[] MISSING_NODES = bytes(",\"missing_nodes\":");
+        private static final byte[] END = bytes("}\n");
+
+        private static byte[] bytes(String value)
+        {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+}
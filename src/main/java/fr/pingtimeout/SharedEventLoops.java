@@ -0,0 +1,135 @@
+package fr.pingtimeout;
+
+import java.util.concurrent.TimeUnit;
+
+import com.datastax.oss.driver.api.core.CqlSessionBuilder;
+import com.datastax.oss.driver.api.core.config.DefaultDriverOption;
+import com.datastax.oss.driver.api.core.config.DriverConfigLoader;
+import com.datastax.oss.driver.api.core.config.DriverExecutionProfile;
+import com.datastax.oss.driver.api.core.context.DriverContext;
+import com.datastax.oss.driver.api.core.session.ProgrammaticArguments;
+import com.datastax.oss.driver.internal.core.context.DefaultDriverContext;
+import com.datastax.oss.driver.internal.core.context.NettyOptions;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timer;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+
+/*
+ Netty resources shared by the sessions of many clusters: one I/O event loop group, one admin group and one timer,
+ instead of a set of threads per session.  Closing a session leaves them running, they are shut down by close(), once
+ every session is closed.
+
+ The driver only lets a custom context provide its Netty options, hence the session builder.
+ */
+class SharedEventLoops implements AutoCloseable
+{
+    private final EventLoopGroup ioGroup;
+    private final EventLoopGroup adminGroup;
+    private final HashedWheelTimer timer;
+
+    // 0 I/O threads means Netty's default, twice the number of cores
+    SharedEventLoops(int ioThreads)
+    {
+        ioGroup = new NioEventLoopGroup(ioThreads, new DefaultThreadFactory("shared-io", true));
+        adminGroup = new DefaultEventLoopGroup(2, new DefaultThreadFactory("shared-admin", true));
+        timer = new HashedWheelTimer(new DefaultThreadFactory("shared-timer", true), 100, TimeUnit.MILLISECONDS);
+    }
+
+    CqlSessionBuilder sessionBuilder()
+    {
+        return new CqlSessionBuilder()
+        {
+            @Override
+            protected DriverContext buildContext(DriverConfigLoader configLoader,
+                ProgrammaticArguments programmaticArguments)
+            {
+                return new DefaultDriverContext(configLoader, programmaticArguments)
+                {
+                    @Override
+                    protected NettyOptions buildNettyOptions()
+                    {
+                        return new SharedNettyOptions(getConfig().getDefaultProfile());
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public void close()
+    {
+        timer.stop();
+        adminGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS);
+        ioGroup.shutdownGracefully(0, 2, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    private class SharedNettyOptions implements NettyOptions
+    {
+        private final DriverExecutionProfile config;
+
+        SharedNettyOptions(DriverExecutionProfile config)
+        {
+            this.config = config;
+        }
+
+        @Override
+        public EventLoopGroup ioEventLoopGroup()
+        {
+            return ioGroup;
+        }
+
+        @Override
+        public Class<? extends Channel> channelClass()
+        {
+            return NioSocketChannel.class;
+        }
+
+        @Override
+        public EventExecutorGroup adminEventExecutorGroup()
+        {
+            return adminGroup;
+        }
+
+        @Override
+        public ByteBufAllocator allocator()
+        {
+            return ByteBufAllocator.DEFAULT;
+        }
+
+        @Override
+        public void afterBootstrapInitialized(Bootstrap bootstrap)
+        {
+            // Only the socket option that the driver enables by default, the others keep their system defaults
+            bootstrap.option(ChannelOption.TCP_NODELAY, config.getBoolean(DefaultDriverOption.SOCKET_TCP_NODELAY));
+        }
+
+        @Override
+        public void afterChannelInitialized(Channel channel)
+        {
+        }
+
+        // Nothing to release per session
+        @Override
+        public Future<Void> onClose()
+        {
+            return GlobalEventExecutor.INSTANCE.newSucceededFuture(null);
+        }
+
+        @Override
+        public Timer getTimer()
+        {
+            return timer;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package fr.pingtimeout;
+
+/*
+ Columnar binary snapshot of nodesync_status rows, as decoded by RowDecoder (wrap-around ranges are kept as is).
+ All numbers are big-endian.
+
+   header      int magic, int version
+   table*      long[rows] start tokens, long[rows] end tokens, long[rows] last validations (epoch millis),
+               long[rows] last successes (epoch millis), byte[rows] outcomes, int[rows] missing node set ids
+   dictionary  int count, (int length, UTF-8 bytes)*             keyspace and table names
+               int count, (byte length, address bytes)*          node addresses
+               int count, (int size, int address id*)*           missing node sets, the first one is empty
+   directory   int count, (int keyspace id, int table id, long offset, int rows)*
+   footer      long dictionary offset, int magic
+
+ Tables are written as soon as they are scanned, the dictionaries and the directory are only known at the end.
+ */
+final class SnapshotFormat
+{
+    static final int MAGIC = 0x4E53534E; // NSSN
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int FOOTER_SIZE = 12;
+    static final int BYTES_PER_ROW = 4 * Long.BYTES + 1 + Integer.BYTES;
+
+    private SnapshotFormat()
+    {
+    }
+}
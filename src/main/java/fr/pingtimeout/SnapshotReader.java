@@ -0,0 +1,165 @@
+package fr.pingtimeout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ Reads a snapshot written by SnapshotWriter.  Each table is memory-mapped on its own when it is read, so the file is
+ never loaded on the heap and can be larger than what a single mapping allows.
+ */
+class SnapshotReader implements RecordSource
+{
+    private final Path path;
+    private final FileChannel channel;
+    private final List<Set<InetAddress>> nodeSets = new ArrayList<>();
+    private final Map<QualifiedTable, long[]> tables = new LinkedHashMap<>();
+
+    SnapshotReader(Path path)
+    {
+        this.path = path;
+        try
+        {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            long size = channel.size();
+            if (size < SnapshotFormat.HEADER_SIZE + SnapshotFormat.FOOTER_SIZE)
+            {
+                throw new IllegalArgumentException(path + " is not a snapshot");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, SnapshotFormat.HEADER_SIZE);
+            ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - SnapshotFormat.FOOTER_SIZE,
+                SnapshotFormat.FOOTER_SIZE);
+            long dictionaryOffset = footer.getLong();
+            if (header.getInt() != SnapshotFormat.MAGIC || footer.getInt() != SnapshotFormat.MAGIC)
+            {
+                throw new IllegalArgumentException(path + " is not a snapshot");
+            }
+            int version = header.getInt();
+            if (version != SnapshotFormat.VERSION)
+            {
+                throw new IllegalArgumentException("Unsupported snapshot version " + version + " in " + path);
+            }
+            readDictionary(channel.map(FileChannel.MapMode.READ_ONLY, dictionaryOffset,
+                size - SnapshotFormat.FOOTER_SIZE - dictionaryOffset));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot read snapshot " + path, e);
+        }
+    }
+
+    private void readDictionary(ByteBuffer dictionary) throws UnknownHostException
+    {
+        List<String> names = new ArrayList<>();
+        for (int i = dictionary.getInt(); i > 0; i--)
+        {
+            byte[] bytes = new byte[dictionary.getInt()];
+            dictionary.get(bytes);
+            names.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        List<InetAddress> addresses = new ArrayList<>();
+        for (int i = dictionary.getInt(); i > 0; i--)
+        {
+            byte[] bytes = new byte[dictionary.get()];
+            dictionary.get(bytes);
+            addresses.add(InetAddress.getByAddress(bytes));
+        }
+        for (int i = dictionary.getInt(); i > 0; i--)
+        {
+            Set<InetAddress> nodeSet = new HashSet<>();
+            for (int j = dictionary.getInt(); j > 0; j--)
+            {
+                nodeSet.add(addresses.get(dictionary.getInt()));
+            }
+            nodeSets.add(Collections.unmodifiableSet(nodeSet));
+        }
+        for (int i = dictionary.getInt(); i > 0; i--)
+        {
+            QualifiedTable table = new QualifiedTable(names.get(dictionary.getInt()), names.get(dictionary.getInt()));
+            tables.put(table, new long[] { dictionary.getLong(), dictionary.getInt() });
+        }
+    }
+
+    // In the order they were written
+    @Override
+    public List<QualifiedTable> getTables()
+    {
+        return new ArrayList<>(tables.keySet());
+    }
+
+    @Override
+    public void read(QualifiedTable table, NodeSets rowNodeSets, RecordSink sink)
+    {
+        long[] entry = tables.get(table);
+        if (entry == null)
+        {
+            throw new IllegalArgumentException("No table " + table + " in snapshot " + path);
+        }
+        int rows = (int) entry[1];
+        // Columns are mapped one by one, a single mapping is limited to 2 GiB
+        if ((long) rows * Long.BYTES > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Table " + table + " has too many rows (" + rows + ") in snapshot "
+                + path + ", at most " + Integer.MAX_VALUE / Long.BYTES + " are supported");
+        }
+        long offset = entry[0];
+        LongBuffer startTokens = map(offset, rows * Long.BYTES).asLongBuffer();
+        LongBuffer endTokens = map(offset + (long) rows * Long.BYTES, rows * Long.BYTES).asLongBuffer();
+        LongBuffer lastValidations = map(offset + 2L * rows * Long.BYTES, rows * Long.BYTES).asLongBuffer();
+        LongBuffer lastSuccesses = map(offset + 3L * rows * Long.BYTES, rows * Long.BYTES).asLongBuffer();
+        ByteBuffer outcomes = map(offset + 4L * rows * Long.BYTES, rows);
+        IntBuffer missingNodes = map(offset + 4L * rows * Long.BYTES + rows, rows * Integer.BYTES).asIntBuffer();
+
+        int[] localIds = new int[nodeSets.size()];
+        for (int i = 0; i < localIds.length; i++)
+        {
+            localIds[i] = rowNodeSets.intern(nodeSets.get(i));
+        }
+        for (int i = 0; i < rows; i++)
+        {
+            sink.accept(startTokens.get(i), endTokens.get(i), lastValidations.get(i), lastSuccesses.get(i),
+                outcomes.get(i), localIds[missingNodes.get(i)]);
+        }
+    }
+
+    private MappedByteBuffer map(long offset, int size)
+    {
+        try
+        {
+            return channel.map(FileChannel.MapMode.READ_ONLY, offset, size);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot read snapshot " + path, e);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
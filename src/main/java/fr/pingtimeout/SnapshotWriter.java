@@ -0,0 +1,209 @@
+package fr.pingtimeout;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+class SnapshotWriter implements AutoCloseable
+{
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private long position;
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final List<InetAddress> addresses = new ArrayList<>();
+    private final Map<InetAddress, Integer> addressIds = new HashMap<>();
+    private final List<Set<InetAddress>> nodeSets = new ArrayList<>();
+    private final Map<Set<InetAddress>, Integer> nodeSetIds = new HashMap<>();
+
+    private final List<long[]> directory = new ArrayList<>();
+
+    SnapshotWriter(Path path)
+    {
+        try
+        {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Cannot create snapshot " + path, e);
+        }
+        nodeSets.add(Collections.emptySet());
+        nodeSetIds.put(nodeSets.get(0), 0);
+        buffer.putInt(SnapshotFormat.MAGIC).putInt(SnapshotFormat.VERSION);
+    }
+
+    // Rows as received by RowDecoder, missing node ids are relative to the given dictionary
+    synchronized void writeTable(String keyspace, String table, RecordColumns rows, NodeSets rowNodeSets)
+    {
+        directory.add(new long[] { nameId(keyspace), nameId(table), position + buffer.position(), rows.size() });
+        for (int i = 0; i < rows.size(); i++)
+        {
+            putLong(rows.startToken(i));
+        }
+        for (int i = 0; i < rows.size(); i++)
+        {
+            putLong(rows.endToken(i));
+        }
+        for (int i = 0; i < rows.size(); i++)
+        {
+            putLong(rows.lastValidation(i));
+        }
+        for (int i = 0; i < rows.size(); i++)
+        {
+            putLong(rows.lastSuccess(i));
+        }
+        for (int i = 0; i < rows.size(); i++)
+        {
+            ensureRemaining(1);
+            buffer.put((byte) rows.outcome(i));
+        }
+        int[] localIds = new int[rowNodeSets.size()];
+        for (int i = 0; i < localIds.length; i++)
+        {
+            localIds[i] = nodeSetId(rowNodeSets.get(i));
+        }
+        for (int i = 0; i < rows.size(); i++)
+        {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(localIds[rows.missingNodes(i)]);
+        }
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        try
+        {
+            long dictionaryOffset = position + buffer.position();
+            putInt(names.size());
+            for (String name : names)
+            {
+                byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+                putInt(bytes.length);
+                putBytes(bytes);
+            }
+            putInt(addresses.size());
+            for (InetAddress address : addresses)
+            {
+                byte[] bytes = address.getAddress();
+                ensureRemaining(1);
+                buffer.put((byte) bytes.length);
+                putBytes(bytes);
+            }
+            putInt(nodeSets.size());
+            for (Set<InetAddress> nodeSet : nodeSets)
+            {
+                putInt(nodeSet.size());
+                for (InetAddress address : nodeSet)
+                {
+                    putInt(addressIds.get(address));
+                }
+            }
+            putInt(directory.size());
+            for (long[] entry : directory)
+            {
+                putInt((int) entry[0]);
+                putInt((int) entry[1]);
+                putLong(entry[2]);
+                putInt((int) entry[3]);
+            }
+            putLong(dictionaryOffset);
+            putInt(SnapshotFormat.MAGIC);
+            flush();
+            channel.close();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int nameId(String name)
+    {
+        return nameIds.computeIfAbsent(name, ignored -> {
+            names.add(name);
+            return names.size() - 1;
+        });
+    }
+
+    private int nodeSetId(Set<InetAddress> nodeSet)
+    {
+        Integer id = nodeSetIds.get(nodeSet);
+        if (id == null)
+        {
+            for (InetAddress address : nodeSet)
+            {
+                addressIds.computeIfAbsent(address, ignored -> {
+                    addresses.add(address);
+                    return addresses.size() - 1;
+                });
+            }
+            id = nodeSets.size();
+            nodeSets.add(nodeSet);
+            nodeSetIds.put(nodeSet, id);
+        }
+        return id;
+    }
+
+    private void putLong(long value)
+    {
+        ensureRemaining(Long.BYTES);
+        buffer.putLong(value);
+    }
+
+    private void putInt(int value)
+    {
+        ensureRemaining(Integer.BYTES);
+        buffer.putInt(value);
+    }
+
+    private void putBytes(byte[] bytes)
+    {
+        for (byte b : bytes)
+        {
+            ensureRemaining(1);
+            buffer.put(b);
+        }
+    }
+
+    private void ensureRemaining(int bytes)
+    {
+        if (buffer.remaining() < bytes)
+        {
+            flush();
+        }
+    }
+
+    private void flush()
+    {
+        // Cast for Java 8, where flip() and clear() are only defined on Buffer
+        ((Buffer) buffer).flip();
+        try
+        {
+            while (buffer.hasRemaining())
+            {
+                position += channel.write(buffer);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        ((Buffer) buffer).clear();
+    }
+}
@@ -0,0 +1,126 @@
+package fr.pingtimeout;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.StringJoiner;
+
+/*
+ Share of the token ring by age of the last successful validation, in fixed memory.  Each record adds its number of
+ tokens to a log-scaled bucket of ages: 4 buckets per power of two seconds, so an age is known within 19%.  Records are
+ added as they are decoded, in any order, with wrap-around ranges or not.  Histograms of several tables can be merged.
+ */
+class StalenessHistogram implements RecordSink
+{
+    // Thresholds printed by default, the last one is the default gc_grace_seconds
+    static final Duration[] THRESHOLDS = {
+        Duration.ofHours(1), Duration.ofDays(1), Duration.ofDays(7), Duration.ofDays(10) };
+
+    private static final int SUB_BUCKETS = 4;
+    // Bucket 0 holds ages under a second, bucket i ages in [2^((i-1)/4);2^(i/4)[ seconds, up to 2^40 seconds
+    private static final int BUCKET_COUNT = 1 + 40 * SUB_BUCKETS;
+
+    private final long now;
+    private final double[] tokens = new double[BUCKET_COUNT];
+    // Ranges that were never successfully validated
+    private double neverValidatedTokens;
+    private double totalTokens;
+
+    StalenessHistogram(long now)
+    {
+        this.now = now;
+    }
+
+    @Override
+    public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+        int missingNodes)
+    {
+        double span = TokenRange.tokenCount(startToken, endToken);
+        if (lastSuccess == 0)
+        {
+            neverValidatedTokens += span;
+        }
+        else
+        {
+            tokens[bucket((now - lastSuccess) / 1000.0)] += span;
+        }
+        totalTokens += span;
+    }
+
+    private static int bucket(double ageSeconds)
+    {
+        if (ageSeconds < 1)
+        {
+            return 0;
+        }
+        int bucket = 1 + (int) Math.floor(SUB_BUCKETS * Math.log(ageSeconds) / Math.log(2));
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    private static double lowerBoundSeconds(int bucket)
+    {
+        return bucket == 0 ? 0 : Math.pow(2, (bucket - 1) / (double) SUB_BUCKETS);
+    }
+
+    // Adds the records of another histogram, ages stay relative to the time of this one
+    void merge(StalenessHistogram that)
+    {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+        {
+            tokens[bucket] += that.tokens[bucket];
+        }
+        neverValidatedTokens += that.neverValidatedTokens;
+        totalTokens += that.totalTokens;
+    }
+
+    // Share of the tokens that were successfully validated within the given duration, interpolated inside a bucket
+    double fractionWithin(Duration age)
+    {
+        if (totalTokens == 0)
+        {
+            return 0;
+        }
+        double limit = age.toMillis() / 1000.0;
+        double within = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+        {
+            double lower = lowerBoundSeconds(bucket);
+            double upper = lowerBoundSeconds(bucket + 1);
+            if (upper <= limit)
+            {
+                within += tokens[bucket];
+            }
+            else
+            {
+                if (limit > lower)
+                {
+                    within += tokens[bucket] * (limit - lower) / (upper - lower);
+                }
+                break;
+            }
+        }
+        return within / totalTokens;
+    }
+
+    double neverValidatedFraction()
+    {
+        return totalTokens == 0 ? 0 : neverValidatedTokens / totalTokens;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringJoiner joiner = new StringJoiner(", ");
+        for (Duration threshold : THRESHOLDS)
+        {
+            joiner.add(String.format(Locale.ROOT, "within %s: %.1f%%", format(threshold),
+                100 * fractionWithin(threshold)));
+        }
+        joiner.add(String.format(Locale.ROOT, "never: %.1f%%", 100 * neverValidatedFraction()));
+        return joiner.toString();
+    }
+
+    private static String format(Duration duration)
+    {
+        return duration.toHours() % 24 == 0 ? duration.toDays() + "d" : duration.toHours() + "h";
+    }
+}
@@ -0,0 +1,43 @@
+package fr.pingtimeout;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/*
+ Staleness histograms of the tables being checked, printed per table, per keyspace and for all tables once every table
+ has been checked.
+ */
+class StalenessReport implements TableReport
+{
+    private final long now;
+    private final SortedMap<QualifiedTable, StalenessHistogram> histograms = new TreeMap<>();
+
+    StalenessReport(long now)
+    {
+        this.now = now;
+    }
+
+    @Override
+    public synchronized RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+    {
+        return histograms.computeIfAbsent(table, ignored -> new StalenessHistogram(now));
+    }
+
+    @Override
+    public synchronized void print()
+    {
+        SortedMap<String, StalenessHistogram> keyspaces = new TreeMap<>();
+        StalenessHistogram all = new StalenessHistogram(now);
+        System.out.println("Share of the token ring successfully validated:");
+        for (Map.Entry<QualifiedTable, StalenessHistogram> entry : histograms.entrySet())
+        {
+            System.out.printf("  %s: %s%n", entry.getKey(), entry.getValue());
+            keyspaces.computeIfAbsent(entry.getKey().getKeyspace(), ignored -> new StalenessHistogram(now))
+                .merge(entry.getValue());
+            all.merge(entry.getValue());
+        }
+        keyspaces.forEach((keyspace, histogram) -> System.out.printf("  keyspace %s: %s%n", keyspace, histogram));
+        System.out.printf("  all tables: %s%n", all);
+    }
+}
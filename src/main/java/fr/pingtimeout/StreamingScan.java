@@ -0,0 +1,99 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+
+/*
+ Reads the 256 range_group partitions of a table as sorted streams and k-way merges them, so that memory is bounded by
+ one page per partition instead of growing with the number of rows.  Merged segments are sent downstream as soon as they
+ are final.  The pages of all partitions are requested through the given limiter, so that --concurrency and --throttle
+ bound the queries in flight.
+ */
+final class StreamingScan
+{
+    private StreamingScan()
+    {
+    }
+
+    static void scan(CqlSession session, String keyspace, String table, InFlightLimiter limiter, int pageSize,
+        NodeSets nodeSets, RecordSink output)
+    {
+        PreparedStatement select = session.prepare(NodeSyncStatusTable.SELECT_RANGE_GROUP);
+        PreparedStatement selectLastRow = session.prepare(NodeSyncStatusTable.SELECT_RANGE_GROUP_LAST_ROW);
+
+        List<RangeGroupCursor> groups = new ArrayList<>();
+        for (int group = 0; group < NodeSyncStatusTable.RANGE_GROUP_COUNT; group++)
+        {
+            groups.add(new RangeGroupCursor(
+                session,
+                select.bind(keyspace, table, NodeSyncStatusTable.rangeGroup(group)).setPageSize(pageSize),
+                limiter,
+                nodeSets));
+        }
+
+        // The lower parts of wrap-around ranges start at Long.MIN_VALUE, so they must be known before merging
+        WrapAroundCursor wrapArounds = new WrapAroundCursor();
+        for (int group = 0; group < groups.size(); group++)
+        {
+            RangeGroupCursor cursor = groups.get(group);
+            cursor.open();
+            if (cursor.hasWrapAround())
+            {
+                cursor.wrapAroundLowerPart(wrapArounds);
+            }
+            else if (!cursor.isLastPage())
+            {
+                Row lastRow = session.execute(
+                    selectLastRow.bind(keyspace, table, NodeSyncStatusTable.rangeGroup(group))).one();
+                if (lastRow != null)
+                {
+                    new RowDecoder(nodeSets).decode(lastRow, wrapArounds::acceptIfWrapAround);
+                }
+            }
+        }
+
+        List<RecordCursor> cursors = new ArrayList<>();
+        cursors.add(wrapArounds);
+        cursors.addAll(groups);
+        KWayMerge.merge(cursors, output);
+    }
+
+    private static class WrapAroundCursor extends PagedRecordCursor
+    {
+        private final List<long[]> lowerParts = new ArrayList<>();
+
+        @Override
+        public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+            int missingNodes)
+        {
+            lowerParts.add(new long[] { startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes });
+        }
+
+        void acceptIfWrapAround(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+            int missingNodes)
+        {
+            if (startToken > endToken)
+            {
+                accept(Long.MIN_VALUE, endToken, lastValidation, lastSuccess, outcome, missingNodes);
+            }
+        }
+
+        @Override
+        protected boolean fetchPage()
+        {
+            lowerParts.sort((a, b) -> {
+                int result = Long.compare(a[1], b[1]);
+                return result == 0 ? Long.compare(a[2], b[2]) : result;
+            });
+            for (long[] part : lowerParts)
+            {
+                super.accept(part[0], part[1], part[2], part[3], (int) part[4], (int) part[5]);
+            }
+            return false;
+        }
+    }
+}
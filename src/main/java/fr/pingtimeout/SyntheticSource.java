@@ -0,0 +1,324 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ Deterministic nodesync_status workload, to size and time the analysis without a cluster.
+
+ Every table shares the same ring: random vnode tokens spread evenly over the nodes, each vnode replicated on the next
+ distinct nodes clockwise and split into a few segments, the last one wrapping around the ring.  Rows of a table are
+ sent one range group at a time, groups in random order, like a concurrent scan.  A row is drawn from a hash of the
+ seed, the table and its segment, so nothing is kept per row and the same seed always gives the same rows.
+ */
+final class SyntheticSource implements RecordSource
+{
+    static final String KEYSPACE = "synthetic";
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final double NEVER_SUCCEEDED = 0.1;
+
+    // Shape of the cluster and of its validations, the defaults are a small cluster mostly in sync
+    static class Workload
+    {
+        int tables = 10;
+        int nodes = 12;
+        int vnodesPerNode = 256;
+        int segmentsPerVnode = 4;
+        int replicationFactor = 3;
+        // Weights of outcomes 0 (full in sync) to 5 (failed)
+        int[] outcomeWeights = { 80, 10, 3, 2, 3, 2 };
+        // Validations are spread uniformly over that age
+        Duration maxAge = Duration.ofDays(10);
+        // Share of segments without any row
+        double holes = 0.005;
+        // Share of segments that were never validated
+        double unvalidated = 0.002;
+        // Share of rows left over from a coarser segmentation: older, and overlapping the next segment
+        double overlaps = 0.01;
+        long seed = 42;
+    }
+
+    private final Workload workload;
+    private final long now;
+    private final List<QualifiedTable> tables = new ArrayList<>();
+    private final Map<QualifiedTable, Integer> tableIndexes = new HashMap<>();
+    private final InetAddress[] addresses;
+    private final long[] vnodeEnds;
+    // replicationFactor nodes per vnode, the owner first
+    private final int[] replicas;
+    private final long[] segmentStarts;
+    private final int outcomeWeightTotal;
+
+    SyntheticSource(Workload workload, long now)
+    {
+        if (workload.nodes < 1 || workload.vnodesPerNode < 1 || workload.nodes * workload.vnodesPerNode < 2
+            || workload.segmentsPerVnode < 1)
+        {
+            throw new IllegalArgumentException("A synthetic ring needs at least 2 vnodes and 1 segment per vnode");
+        }
+        if (workload.replicationFactor < 1 || workload.replicationFactor > workload.nodes)
+        {
+            throw new IllegalArgumentException("Replication factor " + workload.replicationFactor
+                + " is not in [1;" + workload.nodes + "]");
+        }
+        if (workload.outcomeWeights.length != 6 || Arrays.stream(workload.outcomeWeights).sum() <= 0)
+        {
+            throw new IllegalArgumentException("Expected 6 outcome weights, for outcomes 0 to 5");
+        }
+        this.workload = workload;
+        this.now = now;
+        this.outcomeWeightTotal = Arrays.stream(workload.outcomeWeights).sum();
+        for (int i = 0; i < workload.tables; i++)
+        {
+            QualifiedTable table = new QualifiedTable(KEYSPACE, String.format("table_%04d", i));
+            tables.add(table);
+            tableIndexes.put(table, i);
+        }
+        addresses = new InetAddress[workload.nodes];
+        for (int node = 0; node < workload.nodes; node++)
+        {
+            addresses[node] = address(node);
+        }
+
+        Random random = new Random(workload.seed);
+        int vnodeCount = workload.nodes * workload.vnodesPerNode;
+        TreeSet<Long> tokens = new TreeSet<>();
+        while (tokens.size() < vnodeCount)
+        {
+            tokens.add(random.nextLong());
+        }
+        vnodeEnds = tokens.stream().mapToLong(Long::longValue).toArray();
+        List<Integer> owners = new ArrayList<>();
+        for (int node = 0; node < workload.nodes; node++)
+        {
+            for (int i = 0; i < workload.vnodesPerNode; i++)
+            {
+                owners.add(node);
+            }
+        }
+        Collections.shuffle(owners, random);
+        replicas = new int[vnodeCount * workload.replicationFactor];
+        for (int vnode = 0; vnode < vnodeCount; vnode++)
+        {
+            // Walks clockwise until enough distinct nodes are found, like SimpleStrategy
+            Set<Integer> found = new HashSet<>();
+            for (int next = vnode, k = 0; k < workload.replicationFactor; next = (next + 1) % vnodeCount)
+            {
+                if (found.add(owners.get(next)))
+                {
+                    replicas[vnode * workload.replicationFactor + k++] = owners.get(next);
+                }
+            }
+        }
+
+        // Vnode i is (vnodeEnds[i - 1];vnodeEnds[i]], vnode 0 wraps around the ring
+        long[] starts = new long[vnodeCount * workload.segmentsPerVnode];
+        int count = 0;
+        for (int vnode = 0; vnode < vnodeCount; vnode++)
+        {
+            long start = vnodeEnds[(vnode + vnodeCount - 1) % vnodeCount];
+            long step = Long.divideUnsigned(vnodeEnds[vnode] - start, workload.segmentsPerVnode);
+            for (int k = 0; k < workload.segmentsPerVnode && (k == 0 || step > 0); k++)
+            {
+                starts[count++] = start + step * k;
+            }
+        }
+        Arrays.sort(starts, 0, count);
+        segmentStarts = starts.length == count ? starts : Arrays.copyOf(starts, count);
+    }
+
+    @Override
+    public List<QualifiedTable> getTables()
+    {
+        return Collections.unmodifiableList(tables);
+    }
+
+    int getSegmentCount()
+    {
+        return segmentStarts.length;
+    }
+
+    // Segment i is (segmentStarts[i];segmentStarts[i + 1]], the last one wraps around the ring
+    @Override
+    public void read(QualifiedTable table, NodeSets nodeSets, RecordSink sink)
+    {
+        Integer tableIndex = tableIndexes.get(table);
+        if (tableIndex == null)
+        {
+            throw new IllegalArgumentException("No table " + table + " in the synthetic workload");
+        }
+        long tableSeed = mix(workload.seed ^ mix(tableIndex + 1L));
+        List<Integer> groups = new ArrayList<>();
+        for (int group = 0; group < NodeSyncStatusTable.RANGE_GROUP_COUNT; group++)
+        {
+            groups.add(group);
+        }
+        Collections.shuffle(groups, new Random(tableSeed));
+        MissingNodes missingNodes = new MissingNodes(nodeSets);
+        for (int group : groups)
+        {
+            // The range group is the first byte of the start token, groups 128 to 255 hold the negative tokens
+            int from = lowerBound(segmentStarts, (long) group << 56);
+            int to = group == 127 ? segmentStarts.length : lowerBound(segmentStarts, (long) (group + 1) << 56);
+            for (int segment = from; segment < to; segment++)
+            {
+                emit(tableSeed, segment, missingNodes, sink);
+            }
+        }
+    }
+
+    private void emit(long tableSeed, int segment, MissingNodes missingNodes, RecordSink sink)
+    {
+        int segmentCount = segmentStarts.length;
+        long startToken = segmentStarts[segment];
+        long endToken = segmentStarts[(segment + 1) % segmentCount];
+        long draw = mix(tableSeed + segment * GOLDEN_GAMMA);
+        double kind = unit(draw);
+        if (kind < workload.holes)
+        {
+            return;
+        }
+        if (kind < workload.holes + workload.unvalidated)
+        {
+            // Same row as RowDecoder sends when both validations are null
+            sink.accept(startToken, endToken, 0, 0, 4, NodeSets.EMPTY);
+            return;
+        }
+        long maxAgeMillis = workload.maxAge.toMillis();
+        draw = mix(draw);
+        long lastValidation = now - (long) (unit(draw) * maxAgeMillis);
+        draw = mix(draw);
+        if (unit(draw) < workload.overlaps && segmentCount > 2)
+        {
+            endToken = segmentStarts[(segment + 2) % segmentCount];
+            lastValidation -= maxAgeMillis;
+        }
+        draw = mix(draw);
+        int outcome = outcome(draw);
+        long lastSuccess = lastValidation;
+        int missing = NodeSets.EMPTY;
+        if (outcome >= 2)
+        {
+            draw = mix(draw);
+            lastSuccess = unit(draw) < NEVER_SUCCEEDED ? 0 : lastValidation - (long) (unit(mix(draw)) * maxAgeMillis);
+            draw = mix(draw);
+            int vnode = vnodeOf(segmentStarts[(segment + 1) % segmentCount]);
+            int replica = (int) Long.remainderUnsigned(draw, workload.replicationFactor);
+            if (outcome <= 3)
+            {
+                // Partial: one replica did not take part
+                missing = missingNodes.single(replicas[vnode * workload.replicationFactor + replica]);
+            }
+            else if (outcome == 4)
+            {
+                // Uncompleted: a single replica was alive
+                missing = missingNodes.allBut(vnode, replica);
+            }
+        }
+        sink.accept(startToken, endToken, lastValidation, lastSuccess, outcome, missing);
+    }
+
+    private int outcome(long draw)
+    {
+        int value = (int) Long.remainderUnsigned(draw, outcomeWeightTotal);
+        int outcome = 0;
+        while (value >= workload.outcomeWeights[outcome])
+        {
+            value -= workload.outcomeWeights[outcome++];
+        }
+        return outcome;
+    }
+
+    // Vnode that owns the token, the one of the first vnode end at or after it
+    private int vnodeOf(long token)
+    {
+        return lowerBound(vnodeEnds, token) % vnodeEnds.length;
+    }
+
+    // Index of the first value that is >= key, or the length of the array
+    private static int lowerBound(long[] sorted, long key)
+    {
+        int index = Arrays.binarySearch(sorted, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // In [0;1[
+    private static double unit(long draw)
+    {
+        return (draw >>> 11) * 0x1.0p-53;
+    }
+
+    private static InetAddress address(int node)
+    {
+        try
+        {
+            return InetAddress.getByAddress(new byte[] { 10, 0, (byte) (node >>> 8), (byte) node });
+        }
+        catch (UnknownHostException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Ids of the missing node sets of one read, interned on first use
+    private class MissingNodes
+    {
+        private final NodeSets nodeSets;
+        private final int[] singles = new int[workload.nodes];
+        private final int[] allButOne = new int[replicas.length];
+
+        MissingNodes(NodeSets nodeSets)
+        {
+            this.nodeSets = nodeSets;
+            Arrays.fill(singles, -1);
+            Arrays.fill(allButOne, -1);
+        }
+
+        int single(int node)
+        {
+            if (singles[node] < 0)
+            {
+                singles[node] = nodeSets.intern(Collections.singleton(addresses[node]));
+            }
+            return singles[node];
+        }
+
+        int allBut(int vnode, int alive)
+        {
+            int index = vnode * workload.replicationFactor + alive;
+            if (allButOne[index] < 0)
+            {
+                Set<InetAddress> nodes = new HashSet<>();
+                for (int k = 0; k < workload.replicationFactor; k++)
+                {
+                    if (k != alive)
+                    {
+                        nodes.add(addresses[replicas[vnode * workload.replicationFactor + k]]);
+                    }
+                }
+                allButOne[index] = nodeSets.intern(nodes);
+            }
+            return allButOne[index];
+        }
+    }
+}
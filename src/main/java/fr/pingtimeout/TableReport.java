@@ -0,0 +1,81 @@
+package fr.pingtimeout;
+
+import java.util.List;
+import java.util.function.Function;
+
+/*
+ Analysis fed with the decoded rows of every table checked, next to the merge, and printed once all tables have been
+ checked.  Reports that work on merged segments rather than rows get each table's coverage once it is merged.
+ */
+interface TableReport
+{
+    // Sink that receives the decoded rows of a table, missing node ids being relative to the given dictionary
+    RecordSink forTable(QualifiedTable table, NodeSets nodeSets);
+
+    // Called with the merged coverage of a table, once all its rows have been sent to the sink
+    default void merged(QualifiedTable table, Coverage coverage)
+    {
+    }
+
+    void print();
+
+    // Same report, seeing every table under another name.  Printing is left to the original report.
+    default TableReport renamed(Function<QualifiedTable, QualifiedTable> rename)
+    {
+        TableReport original = this;
+        return new TableReport()
+        {
+            @Override
+            public RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+            {
+                return original.forTable(rename.apply(table), nodeSets);
+            }
+
+            @Override
+            public void merged(QualifiedTable table, Coverage coverage)
+            {
+                original.merged(rename.apply(table), coverage);
+            }
+
+            @Override
+            public void print()
+            {
+                original.print();
+            }
+        };
+    }
+
+    // Combines reports, null if there is none
+    static TableReport of(List<TableReport> reports)
+    {
+        if (reports.isEmpty())
+        {
+            return null;
+        }
+        return new TableReport()
+        {
+            @Override
+            public RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+            {
+                RecordSink sink = reports.get(0).forTable(table, nodeSets);
+                for (int i = 1; i < reports.size(); i++)
+                {
+                    sink = sink.andThen(reports.get(i).forTable(table, nodeSets));
+                }
+                return sink;
+            }
+
+            @Override
+            public void merged(QualifiedTable table, Coverage coverage)
+            {
+                reports.forEach(report -> report.merged(table, coverage));
+            }
+
+            @Override
+            public void print()
+            {
+                reports.forEach(TableReport::print);
+            }
+        };
+    }
+}
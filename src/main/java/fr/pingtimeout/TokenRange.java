@@ -6,6 +6,7 @@ import java.util.Objects;
 public class TokenRange implements Comparable<TokenRange>
 {
     public static final TokenRange FULL_TOKEN_RANGE = new TokenRange(Long.MIN_VALUE, Long.MAX_VALUE);
+    static final double RING_SIZE = Math.scalb(1.0, 64);
     private static final Comparator<TokenRange> COMPARATOR = Comparator
         .comparing(TokenRange::getLowerBound)
         .thenComparing(TokenRange::getUpperBound);
@@ -42,19 +43,45 @@ public class TokenRange implements Comparable<TokenRange>
 
     boolean contains(long token)
     {
-        return token >= lowerBound && token <= upperBound;
+        return contains(lowerBound, upperBound, token);
     }
 
     boolean intersectsWith(TokenRange that)
     {
-        return this.canIntersectWith(that.lowerBound) || this.canIntersectWith(that.upperBound);
+        return intersects(this.lowerBound, this.upperBound, that.lowerBound, that.upperBound);
     }
 
     boolean canIntersectWith(long bound)
     {
-        return this.contains(bound - 1) ||
-            this.contains(bound) ||
-            this.contains(bound + 1);
+        return canIntersectWith(lowerBound, upperBound, bound);
+    }
+
+    // Primitive versions of the above, for code that does not materialize TokenRange instances
+
+    static boolean contains(long lowerBound, long upperBound, long token)
+    {
+        return token >= lowerBound && token <= upperBound;
+    }
+
+    static boolean intersects(long lowerBound, long upperBound, long thatLowerBound, long thatUpperBound)
+    {
+        return canIntersectWith(lowerBound, upperBound, thatLowerBound) ||
+            canIntersectWith(lowerBound, upperBound, thatUpperBound);
+    }
+
+    static boolean canIntersectWith(long lowerBound, long upperBound, long bound)
+    {
+        return contains(lowerBound, upperBound, bound - 1) ||
+            contains(lowerBound, upperBound, bound) ||
+            contains(lowerBound, upperBound, bound + 1);
+    }
+
+    // Number of tokens from start to end, which may wrap around the ring, as a double since it can exceed 2^63
+    static double tokenCount(long startToken, long endToken)
+    {
+        // Seen as unsigned, the difference is the number of tokens, whether the range wraps around or not
+        long difference = endToken - startToken;
+        return difference >= 0 ? difference : difference + RING_SIZE;
     }
 
     TokenRange mergeWith(TokenRange that)
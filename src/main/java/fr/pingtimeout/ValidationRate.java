@@ -0,0 +1,169 @@
+package fr.pingtimeout;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/*
+ How fast NodeSync validates a table, from the last validation time of its rows, and when the range that went the
+ longest without a successful validation is likely to be validated again.
+
+ Validation times are counted per hour, from the most recent one.  As long as the hours summed are shorter than a full
+ cycle, no token can have been validated twice in them, so the tokens they hold divided by their duration is the rate.
+ Hours are only summed until half the ring is reached, older ones would underestimate the rate.
+
+ Rows are counted as they are decoded, not once merged: merging joins adjacent ranges in sync into a single segment
+ with the most recent success, which loses the validation times of all the others.
+ */
+class ValidationRate
+{
+    private static final long HOUR_MILLIS = Duration.ofHours(1).toMillis();
+
+    private final long now;
+    private final double tokensPerHour;
+    // Oldest successful validation in the ring, 0 if part of the ring was never successfully validated
+    private final long oldestSuccess;
+    // Last validation, successful or not, of the range with the oldest success
+    private final long oldestSuccessLastValidation;
+
+    private ValidationRate(long now, double tokensPerHour, long oldestSuccess, long oldestSuccessLastValidation)
+    {
+        this.now = now;
+        this.tokensPerHour = tokensPerHour;
+        this.oldestSuccess = oldestSuccess;
+        this.oldestSuccessLastValidation = oldestSuccessLastValidation;
+    }
+
+    // Receives the rows of a table, in any order, only validations within the window are used for the rate
+    static class Counter implements RecordSink
+    {
+        private final long now;
+        // Tokens by age of their last validation, in hours
+        private final double[] tokensPerWindow;
+        private long oldestSuccess = Long.MAX_VALUE;
+        private long oldestSuccessLastValidation;
+
+        Counter(long nowMillis, Duration window)
+        {
+            this.now = nowMillis;
+            this.tokensPerWindow = new double[(int) Math.max(1, window.toHours())];
+        }
+
+        @Override
+        public void accept(long startToken, long endToken, long lastValidation, long lastSuccess, int outcome,
+            int missingNodes)
+        {
+            long age = Math.max(0, now - lastValidation);
+            if (lastValidation > 0 && age / HOUR_MILLIS < tokensPerWindow.length)
+            {
+                tokensPerWindow[(int) (age / HOUR_MILLIS)] += TokenRange.tokenCount(startToken, endToken);
+            }
+            if (lastSuccess < oldestSuccess
+                || lastSuccess == oldestSuccess && lastValidation < oldestSuccessLastValidation)
+            {
+                oldestSuccess = lastSuccess;
+                oldestSuccessLastValidation = lastValidation;
+            }
+        }
+
+        // The merged coverage of the same rows tells the parts of the ring that no row covers
+        ValidationRate rate(Coverage coverage)
+        {
+            long oldest = oldestSuccess == Long.MAX_VALUE ? 0 : oldestSuccess;
+            long oldestLastValidation = oldestSuccessLastValidation;
+            if (hasHole(coverage))
+            {
+                oldest = 0;
+                oldestLastValidation = 0;
+            }
+            double tokens = 0;
+            int hours = 0;
+            while (hours < tokensPerWindow.length && tokens < TokenRange.RING_SIZE / 2)
+            {
+                tokens += tokensPerWindow[hours++];
+            }
+            return new ValidationRate(now, tokens / hours, oldest, oldestLastValidation);
+        }
+    }
+
+    // Whether part of the ring is missing from the coverage or was never successfully validated
+    private static boolean hasHole(Coverage coverage)
+    {
+        long previousUpperBound = Long.MIN_VALUE;
+        for (int i = 0; i < coverage.size(); i++)
+        {
+            // Contiguous segments share their bound or are one token apart, anything else is a hole never validated
+            if (coverage.lowerBound(i) > previousUpperBound && coverage.lowerBound(i) - 1 > previousUpperBound
+                || coverage.lastSuccess(i) == 0)
+            {
+                return true;
+            }
+            previousUpperBound = coverage.upperBound(i);
+        }
+        return previousUpperBound != Long.MAX_VALUE;
+    }
+
+    double getTokensPerHour()
+    {
+        return tokensPerHour;
+    }
+
+    // Time for NodeSync to validate the whole ring once, infinite if nothing was validated in the window
+    double cycleHours()
+    {
+        return tokensPerHour == 0 ? Double.POSITIVE_INFINITY : TokenRange.RING_SIZE / tokensPerHour;
+    }
+
+    long getOldestSuccess()
+    {
+        return oldestSuccess;
+    }
+
+    // A range is validated about once per cycle, Long.MAX_VALUE if there is no rate
+    long nextValidationOfOldest()
+    {
+        double next = oldestSuccessLastValidation + cycleHours() * HOUR_MILLIS;
+        return next >= Long.MAX_VALUE ? Long.MAX_VALUE : Math.max(now, (long) next);
+    }
+
+    // Whether the range with the oldest success is validated again before gc_grace_seconds run out
+    String describe(Duration gcGrace)
+    {
+        String rate = tokensPerHour == 0
+            ? "no validation in the window"
+            : String.format(Locale.ROOT, "%.3f%% of the ring per hour, full cycle in %s", 100 * tokensPerHour
+                / TokenRange.RING_SIZE, format((long) (cycleHours() * HOUR_MILLIS)));
+        if (oldestSuccess == 0)
+        {
+            return rate + ", part of the ring never validated successfully: OVERDUE";
+        }
+        long deadline = oldestSuccess + gcGrace.toMillis();
+        long next = nextValidationOfOldest();
+        String verdict;
+        if (deadline < now)
+        {
+            verdict = "OVERDUE by " + format(now - deadline);
+        }
+        else if (next > deadline)
+        {
+            verdict = next == Long.MAX_VALUE ? "AT RISK" : "AT RISK, late by " + format(next - deadline);
+        }
+        else
+        {
+            verdict = "OK, " + format(deadline - next) + " to spare";
+        }
+        return String.format("%s, oldest success %s ago, next validation %s, gc_grace %s: %s", rate,
+            format(now - oldestSuccess), next == Long.MAX_VALUE ? "unknown" : "in " + format(next - now),
+            format(gcGrace.toMillis()), verdict);
+    }
+
+    // Days and hours, or hours and minutes under a day
+    static String format(long millis)
+    {
+        Duration duration = Duration.ofMillis(millis);
+        if (duration.toDays() > 0)
+        {
+            return String.format("%dd%dh", duration.toDays(), duration.toHours() % 24);
+        }
+        return String.format("%dh%dm", duration.toHours(), duration.toMinutes() % 60);
+    }
+}
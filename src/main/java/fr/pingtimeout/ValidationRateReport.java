@@ -0,0 +1,65 @@
+package fr.pingtimeout;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/*
+ NodeSync validation rate of each table checked, the time a full cycle takes and whether the range that went the
+ longest without a successful validation will be validated again before the gc_grace_seconds of the table run out.
+ */
+class ValidationRateReport implements TableReport
+{
+    private final long now;
+    private final Duration window;
+    private final Function<QualifiedTable, Duration> gcGraces;
+    // Tables being checked, until they are merged
+    private final Map<QualifiedTable, ValidationRate.Counter> counters = new HashMap<>();
+    private final SortedMap<QualifiedTable, ValidationRate> rates = new TreeMap<>();
+
+    ValidationRateReport(long now, Duration window, Function<QualifiedTable, Duration> gcGraces)
+    {
+        this.now = now;
+        this.window = window;
+        this.gcGraces = gcGraces;
+    }
+
+    @Override
+    public synchronized RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+    {
+        return counters.computeIfAbsent(table, ignored -> new ValidationRate.Counter(now, window));
+    }
+
+    @Override
+    public void merged(QualifiedTable table, Coverage coverage)
+    {
+        ValidationRate.Counter counter;
+        synchronized (this)
+        {
+            counter = counters.remove(table);
+        }
+        ValidationRate rate = counter.rate(coverage);
+        synchronized (this)
+        {
+            rates.put(table, rate);
+        }
+    }
+
+    @Override
+    public synchronized void print()
+    {
+        System.out.printf("NodeSync validation rates over the last %s:%n", ValidationRate.format(window.toMillis()));
+        double tokensPerHour = 0;
+        for (Map.Entry<QualifiedTable, ValidationRate> entry : rates.entrySet())
+        {
+            System.out.printf("  %s: %s%n", entry.getKey(), entry.getValue().describe(gcGraces.apply(entry.getKey())));
+            tokensPerHour += entry.getValue().getTokensPerHour();
+        }
+        System.out.printf(Locale.ROOT, "  all tables (%d tables): %.3f rings per hour%n", rates.size(),
+            tokensPerHour / TokenRange.RING_SIZE);
+    }
+}
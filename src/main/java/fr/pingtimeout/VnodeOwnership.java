@@ -0,0 +1,136 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.datastax.oss.driver.api.core.metadata.Node;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+
+/*
+ Vnodes of a keyspace and their replicas, as sorted primitive arrays: vnode i is the range (end(i-1);end(i)], vnode 0
+ wraps around the ring.  Merged segments are sorted too, so they are assigned to the vnodes they overlap in a single
+ walk over both, whatever the number of vnodes.
+ */
+class VnodeOwnership
+{
+    private final long[] endTokens;
+    private final int[] replicaSets;
+    private final NodeSets nodeSets;
+
+    VnodeOwnership(long[] endTokens, int[] replicaSets, NodeSets nodeSets)
+    {
+        this.endTokens = endTokens;
+        this.replicaSets = replicaSets;
+        this.nodeSets = nodeSets;
+    }
+
+    static VnodeOwnership of(TokenMap tokenMap, String keyspace)
+    {
+        NodeSets nodeSets = new NodeSets();
+        long[][] vnodes = tokenMap.getTokenRanges().stream()
+            .map(range -> new long[] { token(tokenMap, range.getEnd()), nodeSets.intern(addresses(
+                tokenMap.getReplicas(keyspace, range))) })
+            .sorted((a, b) -> Long.compare(a[0], b[0]))
+            .toArray(long[][]::new);
+        long[] endTokens = new long[vnodes.length];
+        int[] replicaSets = new int[vnodes.length];
+        for (int i = 0; i < vnodes.length; i++)
+        {
+            endTokens[i] = vnodes[i][0];
+            replicaSets[i] = (int) vnodes[i][1];
+        }
+        return new VnodeOwnership(endTokens, replicaSets, nodeSets);
+    }
+
+    // Murmur3 tokens are formatted as their long value
+    private static long token(TokenMap tokenMap, Token token)
+    {
+        String formatted = tokenMap.format(token);
+        try
+        {
+            return Long.parseLong(formatted);
+        }
+        catch (NumberFormatException e)
+        {
+            throw new IllegalStateException("Only Murmur3Partitioner is supported, got a token " + formatted);
+        }
+    }
+
+    // Broadcast addresses, the ones nodesync_status uses for missing nodes
+    private static Set<InetAddress> addresses(Set<Node> nodes)
+    {
+        return nodes.stream()
+            .map(node -> node.getBroadcastAddress()
+                .orElseGet(() -> (InetSocketAddress) node.getEndPoint().resolve())
+                .getAddress())
+            .collect(Collectors.toSet());
+    }
+
+    int vnodeCount()
+    {
+        return endTokens.length;
+    }
+
+    // Replicas of a vnode, as an id of getNodeSets()
+    int replicaSet(int vnode)
+    {
+        return replicaSets[vnode];
+    }
+
+    NodeSets getNodeSets()
+    {
+        return nodeSets;
+    }
+
+    double ownedTokens(int vnode)
+    {
+        if (endTokens.length == 1)
+        {
+            return TokenRange.RING_SIZE;
+        }
+        return TokenRange.tokenCount(endTokens[vnode == 0 ? endTokens.length - 1 : vnode - 1], endTokens[vnode]);
+    }
+
+    // Adds to validatedTokens[vnode] the tokens of the vnode whose last validation succeeded (outcome 0 or 1)
+    void addValidated(Coverage coverage, double[] validatedTokens)
+    {
+        // The ring is walked as pieces from the minimum token: every vnode, then the end of the ring owned by vnode 0
+        int piece = 0;
+        for (int i = 0; i < coverage.size(); i++)
+        {
+            long lowerBound = coverage.lowerBound(i);
+            long upperBound = coverage.upperBound(i);
+            if (coverage.outcome(i) > 1 || lowerBound >= upperBound)
+            {
+                continue;
+            }
+            while (pieceEnd(piece) <= lowerBound)
+            {
+                piece++;
+            }
+            for (int overlapped = piece; ; overlapped++)
+            {
+                long start = Math.max(lowerBound, pieceStart(overlapped));
+                long end = Math.min(upperBound, pieceEnd(overlapped));
+                validatedTokens[overlapped % endTokens.length] += TokenRange.tokenCount(start, end);
+                if (end == upperBound)
+                {
+                    break;
+                }
+            }
+        }
+    }
+
+    private long pieceStart(int piece)
+    {
+        return piece == 0 ? Long.MIN_VALUE : endTokens[piece - 1];
+    }
+
+    private long pieceEnd(int piece)
+    {
+        return piece == endTokens.length ? Long.MAX_VALUE : endTokens[piece];
+    }
+}
@@ -0,0 +1,204 @@
+package fr.pingtimeout;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.PreparedStatement;
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.Statement;
+
+/*
+ Long-running mode that keeps one session and the coverage of every table.  On each tick, the write times of the
+ range_group partitions are compared with the previous tick, only the partitions that changed are read again, and only
+ the part of the coverage they affect is merged again.
+
+ Reading write times still reads every row of the probed partitions, so a tick costs as much as the rows probed, not
+ as the rows that changed: only the rows read again, decoded and merged scale with the changes.  nodesync_status has no
+ version per partition, and a probe limited to some rows would miss the validations of the others.  Probing only some
+ of the partitions on each tick, in turn, bounds that cost instead: a change is then seen within 256 / groupsPerTick
+ ticks.  The first tick always reads every partition.
+ */
+class WatchMode
+{
+    private final CqlSession session;
+    private final List<QualifiedTable> tables;
+    private final InFlightLimiter limiter;
+    // 0 keeps the page size of the driver configuration
+    private final IntSupplier pageSize;
+    private final int groupsPerTick;
+    private final PreparedStatement selectWriteTimes;
+    private final PreparedStatement selectRows;
+    private final Map<QualifiedTable, WatchedTable> watchedTables = new HashMap<>();
+
+    WatchMode(CqlSession session, List<QualifiedTable> tables, InFlightLimiter limiter, IntSupplier pageSize,
+        int groupsPerTick)
+    {
+        if (groupsPerTick < 1 || groupsPerTick > NodeSyncStatusTable.RANGE_GROUP_COUNT)
+        {
+            throw new IllegalArgumentException("Range groups probed per tick must be between 1 and "
+                + NodeSyncStatusTable.RANGE_GROUP_COUNT);
+        }
+        this.session = session;
+        this.tables = tables;
+        this.limiter = limiter;
+        this.pageSize = pageSize;
+        this.groupsPerTick = groupsPerTick;
+        this.selectWriteTimes = session.prepare(NodeSyncStatusTable.SELECT_RANGE_GROUP_WRITETIMES);
+        this.selectRows = session.prepare(NodeSyncStatusTable.SELECT_RANGE_GROUP);
+        for (QualifiedTable table : tables)
+        {
+            watchedTables.put(table, new WatchedTable(table));
+        }
+    }
+
+    void run(Duration interval) throws InterruptedException
+    {
+        while (!Thread.currentThread().isInterrupted())
+        {
+            long start = System.nanoTime();
+            tick();
+            long elapsed = System.nanoTime() - start;
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, interval.toNanos() - elapsed));
+        }
+    }
+
+    // A table that cannot be read is skipped until the next tick, which reads again whatever it missed
+    void tick()
+    {
+        System.out.printf("Tick at %s%n", Instant.now());
+        for (QualifiedTable table : tables)
+        {
+            try
+            {
+                tick(table, watchedTables.get(table));
+            }
+            catch (RuntimeException e)
+            {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                System.out.printf("Could not check %s: %s%n", table, cause);
+            }
+        }
+    }
+
+    private void tick(QualifiedTable table, WatchedTable watchedTable)
+    {
+        long start = System.nanoTime();
+        Changes changes = watchedTable.fetchChangedGroups();
+        if (changes.rows.isEmpty())
+        {
+            watchedTable.commit(changes);
+            System.out.printf("%s: unchanged%n", table);
+            return;
+        }
+        IncrementalCoverage coverage = watchedTable.coverage;
+        coverage.update(changes.rows);
+        watchedTable.commit(changes);
+        System.out.printf("%s: %d range groups changed, %d records merged, %d segments recomputed in %d ms%n",
+            table, changes.rows.size(), coverage.getMergedRecords(),
+            coverage.getRecomputedTo() - coverage.getRecomputedFrom(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        coverage.getCoverage().forEach(coverage.getRecomputedFrom(), coverage.getRecomputedTo(),
+            (lowerBound, upperBound, lastValidation, lastSuccess, outcome, missingNodes) -> System.out.println(
+                NodeSyncRecord.fromSegment(table.getKeyspace(), table.getTable(), watchedTable.nodeSets,
+                    lowerBound, upperBound, lastValidation, lastSuccess, outcome, missingNodes)));
+    }
+
+    // Rows of the range groups that changed, with their new fingerprints, kept only once the rows are merged
+    private static class Changes
+    {
+        private final int probedGroups;
+        private final Map<Integer, RecordColumns> rows = new ConcurrentHashMap<>();
+        private final Map<Integer, Long> fingerprints = new HashMap<>();
+
+        Changes(int probedGroups)
+        {
+            this.probedGroups = probedGroups;
+        }
+    }
+
+    private class WatchedTable
+    {
+        private final QualifiedTable table;
+        private final NodeSets nodeSets = new NodeSets();
+        private final IncrementalCoverage coverage;
+        private final long[] fingerprints = new long[NodeSyncStatusTable.RANGE_GROUP_COUNT];
+        private boolean initialized;
+        // First range group probed by the next tick
+        private int nextGroup;
+
+        WatchedTable(QualifiedTable table)
+        {
+            this.table = table;
+            this.coverage = new IncrementalCoverage(table.getKeyspace(), table.getTable(), nodeSets,
+                NodeSyncStatusTable.RANGE_GROUP_COUNT);
+        }
+
+        // Throws if a probe or a read failed, nothing is committed then
+        Changes fetchChangedGroups()
+        {
+            Changes changes = new Changes(initialized ? groupsPerTick : NodeSyncStatusTable.RANGE_GROUP_COUNT);
+            List<CompletableFuture<?>> probes = new ArrayList<>();
+            for (int i = 0; i < changes.probedGroups; i++)
+            {
+                int probedGroup = (nextGroup + i) % NodeSyncStatusTable.RANGE_GROUP_COUNT;
+                long[] fingerprint = { 17 };
+                probes.add(limiter.submit(() -> AsyncPaging.forEachPage(session, bind(selectWriteTimes, probedGroup),
+                    page -> page.forEach(row -> fingerprint[0] = fingerprint(fingerprint[0], row))))
+                    .thenRun(() -> {
+                        synchronized (changes)
+                        {
+                            if (!initialized || fingerprints[probedGroup] != fingerprint[0])
+                            {
+                                changes.fingerprints.put(probedGroup, fingerprint[0]);
+                            }
+                        }
+                    }));
+            }
+            CompletableFuture.allOf(probes.toArray(new CompletableFuture<?>[0])).join();
+
+            List<CompletableFuture<?>> fetches = new ArrayList<>();
+            for (int group : changes.fingerprints.keySet())
+            {
+                RecordColumns rows = new RecordColumns(16);
+                RowDecoder decoder = new RowDecoder(nodeSets);
+                fetches.add(limiter.submit(() -> AsyncPaging.forEachPage(session, bind(selectRows, group),
+                    page -> page.forEach(row -> decoder.decode(row, rows))))
+                    .thenRun(() -> changes.rows.put(group, rows)));
+            }
+            CompletableFuture.allOf(fetches.toArray(new CompletableFuture<?>[0])).join();
+            return changes;
+        }
+
+        // Once the rows are merged, so that a change is only seen as done when it is in the coverage
+        void commit(Changes changes)
+        {
+            changes.fingerprints.forEach((group, fingerprint) -> fingerprints[group] = fingerprint);
+            nextGroup = (nextGroup + changes.probedGroups) % NodeSyncStatusTable.RANGE_GROUP_COUNT;
+            initialized = true;
+        }
+
+        private Statement<?> bind(PreparedStatement statement, int group)
+        {
+            return statement.bind(table.getKeyspace(), table.getTable(), NodeSyncStatusTable.rangeGroup(group))
+                .setPageSize(pageSize.getAsInt());
+        }
+    }
+
+    private static long fingerprint(long fingerprint, Row row)
+    {
+        fingerprint = 31 * fingerprint + row.getLong(0);
+        fingerprint = 31 * fingerprint + (row.isNull(1) ? -1 : row.getLong(1));
+        fingerprint = 31 * fingerprint + (row.isNull(2) ? -1 : row.getLong(2));
+        return fingerprint;
+    }
+}
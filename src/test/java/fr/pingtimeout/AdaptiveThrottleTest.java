@@ -0,0 +1,79 @@
+package fr.pingtimeout;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveThrottleTest
+{
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void should_speed_up_while_the_cluster_is_idle()
+    {
+        AdaptiveThrottle throttle = new AdaptiveThrottle(100 * MS, WINDOW, 4, 5000);
+        assertThat(throttle.getLimiter().getLimit()).isEqualTo(1);
+        assertThat(throttle.getPageSize()).isEqualTo(500);
+
+        long now = System.nanoTime();
+        for (int window = 1; window <= 20; window++)
+        {
+            throttle.record(10 * MS, false, now + window * WINDOW);
+        }
+        assertThat(throttle.getLimiter().getLimit()).isEqualTo(4);
+        assertThat(throttle.getPageSize()).isEqualTo(5000);
+    }
+
+    @Test
+    void should_back_off_when_the_p99_exceeds_the_target()
+    {
+        AdaptiveThrottle throttle = new AdaptiveThrottle(100 * MS, WINDOW, 32, 5000);
+        long now = System.nanoTime();
+        for (int window = 1; window <= 10; window++)
+        {
+            throttle.record(10 * MS, false, now + window * WINDOW);
+        }
+        assertThat(throttle.getLimiter().getLimit()).isEqualTo(11);
+
+        // One slow request out of 200 is below the p99, three are above it
+        long windowStart = now + 10 * WINDOW;
+        for (int i = 0; i < 199; i++)
+        {
+            throttle.record(10 * MS, false, windowStart + i);
+        }
+        throttle.record(500 * MS, false, windowStart + WINDOW);
+        assertThat(throttle.getLimiter().getLimit()).isEqualTo(12);
+        windowStart += WINDOW;
+        for (int i = 0; i < 197; i++)
+        {
+            throttle.record(10 * MS, false, windowStart + i);
+        }
+        throttle.record(500 * MS, false, windowStart + 1000);
+        throttle.record(500 * MS, false, windowStart + 1001);
+        throttle.record(500 * MS, false, windowStart + WINDOW);
+        assertThat(throttle.getLimiter().getLimit()).isEqualTo(6);
+        assertThat(throttle.getPageSize()).isEqualTo(2500);
+    }
+
+    @Test
+    void should_back_off_on_errors_and_hold_in_between()
+    {
+        AdaptiveThrottle throttle = new AdaptiveThrottle(100 * MS, WINDOW, 32, 5000);
+        long now = System.nanoTime();
+        for (int window = 1; window <= 3; window++)
+        {
+            throttle.record(10 * MS, false, now + window * WINDOW);
+        }
+        assertThat(throttle.getLimiter().getLimit()).isEqualTo(4);
+
+        // Between half the target and the target
+        throttle.record(70 * MS, false, now + 4 * WINDOW);
+        assertThat(throttle.getLimiter().getLimit()).isEqualTo(4);
+        throttle.record(10 * MS, true, now + 5 * WINDOW);
+        assertThat(throttle.getLimiter().getLimit()).isEqualTo(2);
+        assertThat(throttle.getPageSize()).isEqualTo(AdaptiveThrottle.MIN_PAGE_SIZE * 10);
+    }
+}
@@ -0,0 +1,115 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CoverageDiffTest
+{
+    @Test
+    void should_weight_transitions_by_tokens()
+    {
+        Coverage before = new Coverage("ks", "tbl", new NodeSets());
+        before.accept(Long.MIN_VALUE, 0, 1000, 0, 5, NodeSets.EMPTY);
+        before.accept(0, 100, 1000, 1000, 0, NodeSets.EMPTY);
+        // Hole from 100 to 200
+        before.accept(200, Long.MAX_VALUE, 1000, 1000, 0, NodeSets.EMPTY);
+        Coverage after = new Coverage("ks", "tbl", new NodeSets());
+        after.accept(Long.MIN_VALUE, -50, 1000, 1000, 0, NodeSets.EMPTY);
+        after.accept(-50, 150, 2000, 1000, 5, NodeSets.EMPTY);
+        after.accept(150, Long.MAX_VALUE, 1000, 1000, 0, NodeSets.EMPTY);
+
+        List<String> spans = new ArrayList<>();
+        CoverageDiff diff = CoverageDiff.of(before, after,
+            (lowerBound, upperBound, from, to) -> spans.add(lowerBound + ";" + upperBound + ":" + from + "->" + to));
+
+        assertThat(spans).containsExactly("-9223372036854775808;-50:5->0", "0;100:0->5", "100;150:6->5",
+            "150;200:6->0");
+        assertThat(diff.tokens(5, 0)).isEqualTo(TokenRange.tokenCount(Long.MIN_VALUE, -50));
+        assertThat(diff.tokens(5, 5)).isEqualTo(50);
+        assertThat(diff.tokens(0, 5)).isEqualTo(100);
+        assertThat(diff.tokens(CoverageDiff.NOT_COVERED, 5)).isEqualTo(50);
+        assertThat(diff.tokens(CoverageDiff.NOT_COVERED, 0)).isEqualTo(50);
+        assertThat(diff.regressedTokens()).isEqualTo(100);
+        assertThat(diff.delta(CoverageDiff.NOT_COVERED)).isEqualTo(-100);
+        // Validated again from -50 to 150, and for the first time from 150 to 200
+        assertThat(diff.getRevalidatedTokens()).isEqualTo(250);
+    }
+
+    @Test
+    void should_match_a_comparison_per_elementary_range()
+    {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++)
+        {
+            Coverage before = randomCoverage(random);
+            Coverage after = randomCoverage(random);
+            CoverageDiff diff = CoverageDiff.of(before, after, (lowerBound, upperBound, from, to) -> {
+            });
+
+            double[][] expected = new double[CoverageDiff.STATE_COUNT][CoverageDiff.STATE_COUNT];
+            TreeSet<Long> bounds = new TreeSet<>();
+            bounds.add(Long.MIN_VALUE);
+            bounds.add(Long.MAX_VALUE);
+            for (Coverage coverage : new Coverage[] { before, after })
+            {
+                for (int i = 0; i < coverage.size(); i++)
+                {
+                    bounds.add(coverage.lowerBound(i));
+                    bounds.add(coverage.upperBound(i));
+                }
+            }
+            Long lowerBound = bounds.first();
+            for (Long upperBound : bounds.tailSet(lowerBound, false))
+            {
+                expected[stateAt(before, upperBound)][stateAt(after, upperBound)] +=
+                    TokenRange.tokenCount(lowerBound, upperBound);
+                lowerBound = upperBound;
+            }
+            for (int from = 0; from < CoverageDiff.STATE_COUNT; from++)
+            {
+                for (int to = 0; to < CoverageDiff.STATE_COUNT; to++)
+                {
+                    assertThat(diff.tokens(from, to)).isCloseTo(expected[from][to], within(1e6));
+                }
+            }
+        }
+    }
+
+    // State of the range (previous bound;token]
+    private static int stateAt(Coverage coverage, long token)
+    {
+        for (int i = 0; i < coverage.size(); i++)
+        {
+            if (coverage.lowerBound(i) < token && token <= coverage.upperBound(i))
+            {
+                return coverage.outcome(i);
+            }
+        }
+        return CoverageDiff.NOT_COVERED;
+    }
+
+    private static Coverage randomCoverage(Random random)
+    {
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        long[] bounds = random.longs(random.nextInt(50)).map(token -> token / 1000 * 1000).sorted().distinct()
+            .toArray();
+        long lowerBound = Long.MIN_VALUE;
+        for (int i = 0; i <= bounds.length; i++)
+        {
+            long upperBound = i == bounds.length ? Long.MAX_VALUE : bounds[i];
+            if (random.nextInt(4) > 0 && lowerBound < upperBound)
+            {
+                coverage.accept(lowerBound, upperBound, 1000, 1000, random.nextInt(6), NodeSets.EMPTY);
+            }
+            lowerBound = upperBound;
+        }
+        return coverage;
+    }
+}
@@ -0,0 +1,234 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoverageEngineTest
+{
+    @Test
+    void should_report_the_full_ring_as_uncompleted_without_records()
+    {
+        Coverage coverage = new CoverageEngine("ks", "tbl").merge();
+        assertThat(coverage.toRecords()).extracting(NodeSyncRecord::toString)
+            .containsExactly("ks.tbl, range [" + Long.MIN_VALUE + ";" + Long.MAX_VALUE
+                + "], lastOutcome=4 (validation uncompleted)");
+    }
+
+    @Test
+    void should_merge_contiguous_ranges_with_successful_outcomes()
+    {
+        CoverageEngine engine = new CoverageEngine("ks", "tbl");
+        engine.accept(11, 20, 2000, 2000, 1, NodeSets.EMPTY);
+        engine.accept(Long.MIN_VALUE, 10, 1000, 1000, 0, NodeSets.EMPTY);
+        engine.accept(21, Long.MAX_VALUE, 3000, 3000, 0, NodeSets.EMPTY);
+        assertThat(engine.merge().toRecords()).extracting(NodeSyncRecord::toString)
+            .containsExactly("ks.tbl, range [" + Long.MIN_VALUE + ";" + Long.MAX_VALUE
+                + "], lastOutcome=1 (fully repaired)");
+    }
+
+    @Test
+    void should_split_wrap_around_ranges()
+    {
+        CoverageEngine engine = new CoverageEngine("ks", "tbl");
+        engine.accept(100, -100, 1000, 1000, 0, NodeSets.EMPTY);
+        engine.accept(-99, 99, 1000, 1000, 5, NodeSets.EMPTY);
+        assertThat(engine.merge().toRecords()).extracting(NodeSyncRecord::toString)
+            .containsExactly(
+                "ks.tbl, range [" + Long.MIN_VALUE + ";-99], lastOutcome=0 (fully in sync)",
+                "ks.tbl, range [-99;100], lastOutcome=5 (failed)",
+                "ks.tbl, range [100;" + Long.MAX_VALUE + "], lastOutcome=0 (fully in sync)");
+    }
+
+    @Test
+    void should_match_the_tree_set_merge_on_random_records() throws UnknownHostException
+    {
+        Random random = new Random(42);
+        for (int iteration = 0; iteration < 2000; iteration++)
+        {
+            NodeSets nodeSets = new NodeSets();
+            CoverageEngine engine = new CoverageEngine("ks", "tbl", nodeSets);
+            TreeSet<NodeSyncRecord> records = new TreeSet<>();
+            int count = random.nextInt(40);
+            for (int i = 0; i < count; i++)
+            {
+                long start = randomToken(random);
+                long end = randomToken(random);
+                long lastValidation = 1000L * random.nextInt(4);
+                long lastSuccess = 1000L * random.nextInt(4);
+                int outcome = random.nextInt(6);
+                Set<InetAddress> missingNodes = randomNodes(random);
+                engine.accept(start, end, lastValidation, lastSuccess, outcome, nodeSets.intern(missingNodes));
+                for (NodeSyncRecord record : split(start, end, lastValidation, lastSuccess, outcome, missingNodes))
+                {
+                    records.add(record);
+                }
+            }
+
+            assertThat(describe(engine.merge().toRecords()))
+                .as("iteration %d", iteration)
+                .isEqualTo(describe(treeSetMerge("ks", "tbl", records)));
+        }
+    }
+
+    @Test
+    void should_merge_in_parallel_like_sequentially() throws UnknownHostException
+    {
+        Random random = new Random(17);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            for (int iteration = 0; iteration < 500; iteration++)
+            {
+                NodeSets nodeSets = new NodeSets();
+                CoverageEngine engine = new CoverageEngine("ks", "tbl", nodeSets);
+                int count = random.nextInt(400);
+                // Either heavily overlapping records, or contiguous ranges of range groups with a few gaps
+                boolean overlapping = random.nextBoolean();
+                for (int i = 0; i < count; i++)
+                {
+                    long start = overlapping ? randomToken(random) : (i - count / 2) * 100L;
+                    long end = overlapping ? randomToken(random) : start + 100 - (random.nextInt(20) == 0 ? 10 : 0);
+                    long lastValidation = 1000L * random.nextInt(overlapping ? 4 : 100);
+                    engine.accept(start, end, lastValidation, 1000L * random.nextInt(4), random.nextInt(6),
+                        nodeSets.intern(randomNodes(random)));
+                    if (random.nextInt(10) == 0)
+                    {
+                        // Same row read twice
+                        engine.accept(start, end, lastValidation, 0, 0, NodeSets.EMPTY);
+                    }
+                }
+
+                int minChunkSize = 1 + random.nextInt(32);
+                assertThat(segments(engine.merge(pool, minChunkSize)))
+                    .as("iteration %d, %d records per chunk", iteration, minChunkSize)
+                    .isEqualTo(segments(engine.merge()));
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    private static List<String> segments(Coverage coverage)
+    {
+        List<String> segments = new ArrayList<>();
+        coverage.forEach((start, end, lastValidation, lastSuccess, outcome, missingNodes) -> segments.add(
+            start + ";" + end + ";" + lastValidation + ";" + lastSuccess + ";" + outcome + ";" + missingNodes));
+        return segments;
+    }
+
+    static long randomToken(Random random)
+    {
+        switch (random.nextInt(10))
+        {
+            case 0:
+                return Long.MIN_VALUE + random.nextInt(2);
+            case 1:
+                return Long.MAX_VALUE - random.nextInt(2);
+            default:
+                return random.nextInt(100) - 50;
+        }
+    }
+
+    static Set<InetAddress> randomNodes(Random random) throws UnknownHostException
+    {
+        Set<InetAddress> nodes = new HashSet<>();
+        for (int i = random.nextInt(3); i > 0; i--)
+        {
+            nodes.add(InetAddress.getByAddress(new byte[] { 10, 0, 0, (byte) random.nextInt(4) }));
+        }
+        return nodes;
+    }
+
+    // How NodeSyncRecord.recordFromRow builds records from a row
+    static List<NodeSyncRecord> split(long start, long end, long lastValidation, long lastSuccess, int outcome,
+        Set<InetAddress> missingNodes)
+    {
+        List<TokenRange> ranges = start > end
+            ? Arrays.asList(new TokenRange(start, Long.MAX_VALUE), new TokenRange(Long.MIN_VALUE, end))
+            : Collections.singletonList(new TokenRange(start, end));
+        List<NodeSyncRecord> records = new ArrayList<>();
+        for (TokenRange range : ranges)
+        {
+            records.add(new NodeSyncRecord("ks", "tbl", range, Instant.ofEpochMilli(lastValidation), outcome,
+                Instant.ofEpochMilli(lastSuccess), missingNodes));
+        }
+        return records;
+    }
+
+    static List<String> describe(TreeSet<NodeSyncRecord> records)
+    {
+        return records.stream()
+            .map(record -> record + ", lastValidation=" + record.getLastValidation()
+                + ", lastSuccess=" + record.getLastSuccess()
+                + ", missingNodes=" + new TreeSet<>(record.getMissingNodes().stream()
+                .map(InetAddress::getHostAddress)
+                .collect(Collectors.toList())))
+            .collect(Collectors.toList());
+    }
+
+    // The TreeSet based merge that CoverageEngine replaced, kept as a reference
+    static TreeSet<NodeSyncRecord> treeSetMerge(String keyspace, String table, TreeSet<NodeSyncRecord> nodeSyncRecords)
+    {
+        TreeSet<NodeSyncRecord> tokenRangeValidationState = new TreeSet<>();
+        tokenRangeValidationState.add(NodeSyncRecord.createFullTokenRangeUncompletedRecord(keyspace, table));
+        for (NodeSyncRecord record : nodeSyncRecords)
+        {
+            NodeSyncRecord highestRecord = tokenRangeValidationState.last();
+            if (highestRecord.getTokenRange().intersectsWith(record.getTokenRange()))
+            {
+                if (highestRecord.getLastOutcome() <= 1 &&
+                    record.getLastOutcome() <= 1)
+                {
+                    tokenRangeValidationState.remove(highestRecord);
+                    tokenRangeValidationState.add(highestRecord.mergeWith(record));
+                }
+                else if (highestRecord.getLastOutcome() >= 2 &&
+                    record.getLastOutcome() >= 2)
+                {
+                    tokenRangeValidationState.remove(highestRecord);
+                    tokenRangeValidationState.add(highestRecord.mergeWith(record));
+                }
+                else
+                {
+                    if (highestRecord.getTokenRange().getLowerBound() == record.getTokenRange().getLowerBound())
+                    {
+                        tokenRangeValidationState.remove(highestRecord);
+                        tokenRangeValidationState.add(record);
+                    }
+                    else
+                    {
+                        tokenRangeValidationState.remove(highestRecord);
+                        tokenRangeValidationState
+                            .add(highestRecord.withUpperBound(record.getTokenRange().getLowerBound()));
+                        tokenRangeValidationState.add(record);
+                    }
+                }
+            }
+            else
+            {
+                // Gap in token ranges
+                tokenRangeValidationState.remove(highestRecord);
+                tokenRangeValidationState.add(highestRecord.withUpperBound(record.getTokenRange().getLowerBound()));
+                tokenRangeValidationState.add(record);
+            }
+        }
+        return tokenRangeValidationState;
+    }
+}
@@ -0,0 +1,94 @@
+package fr.pingtimeout;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CoverageIndexTest
+{
+    @Test
+    void should_find_the_segment_that_contains_a_token()
+    {
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        coverage.accept(-100, -10, 1000, 1000, 0, NodeSets.EMPTY);
+        coverage.accept(-10, 50, 2000, 1000, 5, NodeSets.EMPTY);
+        coverage.accept(60, Long.MAX_VALUE, 3000, 3000, 1, NodeSets.EMPTY);
+        CoverageIndex index = new CoverageIndex(coverage);
+
+        assertThat(index.find(Long.MIN_VALUE)).isEqualTo(CoverageIndex.NOT_COVERED);
+        assertThat(index.find(-100)).isEqualTo(0);
+        assertThat(index.find(-10)).isEqualTo(0);
+        assertThat(index.find(-9)).isEqualTo(1);
+        assertThat(index.find(50)).isEqualTo(1);
+        assertThat(index.find(55)).isEqualTo(CoverageIndex.NOT_COVERED);
+        assertThat(index.find(Long.MAX_VALUE)).isEqualTo(2);
+        assertThat(index.lookup(0).toString()).isEqualTo("ks.tbl, range [-10;50], lastOutcome=5 (failed)");
+        assertThat(index.lookup(0).getLastSuccess().toEpochMilli()).isEqualTo(1000);
+    }
+
+    @Test
+    void should_match_a_linear_scan_on_random_coverages()
+    {
+        Random random = new Random(8);
+        for (int iteration = 0; iteration < 500; iteration++)
+        {
+            CoverageEngine engine = new CoverageEngine("ks", "tbl");
+            int count = random.nextInt(40);
+            for (int i = 0; i < count; i++)
+            {
+                engine.accept(CoverageEngineTest.randomToken(random), CoverageEngineTest.randomToken(random),
+                    1000L * random.nextInt(4), 1000L * random.nextInt(4), random.nextInt(6), NodeSets.EMPTY);
+            }
+            Coverage coverage = engine.merge();
+            CoverageIndex index = new CoverageIndex(coverage);
+            for (int i = 0; i < 50; i++)
+            {
+                long token = CoverageEngineTest.randomToken(random);
+                int expected = CoverageIndex.NOT_COVERED;
+                for (int segment = 0; segment < coverage.size(); segment++)
+                {
+                    if (TokenRange.contains(coverage.lowerBound(segment), coverage.upperBound(segment), token))
+                    {
+                        expected = segment;
+                        break;
+                    }
+                }
+                assertThat(index.find(token)).as("iteration %d, token %d", iteration, token).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void should_hash_partition_keys_like_murmur3_partitioner()
+    {
+        // Tokens returned by Cassandra for SELECT token(id) with an int partition key
+        PartitionKeys keys = new PartitionKeys("int");
+        assertThat(keys.token("1")).isEqualTo(-4069959284402364209L);
+        assertThat(keys.token("2")).isEqualTo(-3248873570005575792L);
+        assertThat(keys.token("3")).isEqualTo(9010454139840013625L);
+    }
+
+    @Test
+    void should_hash_full_blocks_and_sign_extended_tails_like_murmur3_partitioner()
+    {
+        // Tokens of the driver's Murmur3TokenFactory, for keys shorter and longer than a 16 bytes block, with bytes
+        // over 0x7f in their tail
+        PartitionKeys keys = new PartitionKeys("text");
+        assertThat(keys.token("a")).isEqualTo(-8839064797231613815L);
+        assertThat(keys.token("user:42")).isEqualTo(-3674646904862786968L);
+        assertThat(keys.token("h\u00e9llo w\u00f6rld, \u00e7a va?")).isEqualTo(-2959914197562263200L);
+        assertThat(keys.token("0123456789abcdef")).isEqualTo(5467490433528156583L);
+        assertThat(keys.token("0123456789abcdef\u00e9")).isEqualTo(8755401265980413160L);
+    }
+
+    @Test
+    void should_reject_unsupported_key_types()
+    {
+        assertThatThrownBy(() -> new PartitionKeys("frozen<list<int>>"))
+            .hasMessage("Unsupported partition key type frozen<list<int>>")
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,72 @@
+package fr.pingtimeout;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class CoverageMetricsTest
+{
+    private static final long NOW = 1_000_000_000L;
+
+    @Test
+    void should_weight_outcomes_and_ages_by_tokens()
+    {
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        coverage.accept(Long.MIN_VALUE, 0, NOW - 10_000, NOW - 10_000, 0, NodeSets.EMPTY);
+        coverage.accept(0, Long.MIN_VALUE / -2, NOW - 20_000, NOW - 30_000, 1, NodeSets.EMPTY);
+        coverage.accept(Long.MIN_VALUE / -2, Long.MAX_VALUE, NOW - 20_000, NOW - 50_000, 5, NodeSets.EMPTY);
+
+        CoverageMetrics metrics = CoverageMetrics.of(coverage, NOW);
+        assertThat(metrics.outcomeFraction(0)).isCloseTo(0.5, within(1e-9));
+        assertThat(metrics.outcomeFraction(1)).isCloseTo(0.25, within(1e-9));
+        assertThat(metrics.outcomeFraction(4)).isZero();
+        assertThat(metrics.outcomeFraction(5)).isCloseTo(0.25, within(1e-9));
+        assertThat(metrics.getLastSuccessAgeSeconds()).isCloseTo(0.5 * 10 + 0.25 * 30 + 0.25 * 50, within(1e-6));
+        assertThat(metrics.getGaps()).isZero();
+    }
+
+    @Test
+    void should_count_holes_and_never_validated_runs_as_gaps()
+    {
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        // Hole before -100, then a never validated run spanning a hole
+        coverage.accept(-100, -50, NOW, NOW, 0, NodeSets.EMPTY);
+        coverage.accept(-50, -10, 0, 0, 4, NodeSets.EMPTY);
+        coverage.accept(0, 10, 0, 0, 4, NodeSets.EMPTY);
+        coverage.accept(10, 20, NOW, NOW, 0, NodeSets.EMPTY);
+        coverage.accept(21, 30, NOW, NOW, 0, NodeSets.EMPTY);
+        // Hole after 30
+
+        assertThat(CoverageMetrics.of(coverage, NOW).getGaps()).isEqualTo(3);
+        // Never succeeded segments have no age
+        assertThat(CoverageMetrics.of(coverage, NOW).getLastSuccessAgeSeconds()).isZero();
+        assertThat(CoverageMetrics.of(new CoverageEngine("ks", "tbl").merge(), NOW).getGaps()).isEqualTo(1);
+        assertThat(CoverageMetrics.of(new Coverage("ks", "tbl", new NodeSets()), NOW).getGaps()).isEqualTo(1);
+    }
+
+    @Test
+    void should_render_the_prometheus_text_format()
+    {
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        coverage.accept(Long.MIN_VALUE, Long.MAX_VALUE, NOW - 2000, NOW - 2000, 0, NodeSets.EMPTY);
+        QualifiedTable table = new QualifiedTable("ks", "tbl");
+        SortedMap<QualifiedTable, CoverageMetrics> metrics = new TreeMap<>();
+        metrics.put(table, CoverageMetrics.of(coverage, NOW));
+
+        String text = MetricsExporter.render(metrics, Collections.singletonMap(table, 1_500L),
+            Collections.singletonMap(table, 2L));
+        assertThat(text)
+            .contains("# TYPE nodesync_ring_fraction gauge\n")
+            .contains("nodesync_ring_fraction{keyspace=\"ks\",table=\"tbl\",outcome=\"0\"} 1\n")
+            .contains("nodesync_ring_fraction{keyspace=\"ks\",table=\"tbl\",outcome=\"5\"} 0\n")
+            .contains("nodesync_last_success_age_seconds{keyspace=\"ks\",table=\"tbl\"} 2\n")
+            .contains("nodesync_gaps{keyspace=\"ks\",table=\"tbl\"} 0\n")
+            .contains("nodesync_last_refresh_timestamp_seconds{keyspace=\"ks\",table=\"tbl\"} 1.5\n")
+            .contains("nodesync_refresh_failures_total{keyspace=\"ks\",table=\"tbl\"} 2\n");
+    }
+}
@@ -0,0 +1,91 @@
+package fr.pingtimeout;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FleetScanTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_parse_clusters_skipping_comments_and_blank_lines() throws IOException
+    {
+        Path file = directory.resolve("clusters.txt");
+        Files.write(file, Arrays.asList("# name hosts port dc keyspaces", "prod 10.0.0.1,10.0.0.2 9042 DC1 ks1,ks2",
+            "", "  staging   10.1.0.1 9043 DC2  "));
+
+        List<FleetScan.Cluster> clusters = FleetScan.Cluster.parse(file);
+
+        assertThat(clusters).hasSize(2);
+        FleetScan.Cluster prod = clusters.get(0);
+        assertThat(prod.name).isEqualTo("prod");
+        assertThat(prod.contactPoints).containsExactly(InetSocketAddress.createUnresolved("10.0.0.1", 9042),
+            InetSocketAddress.createUnresolved("10.0.0.2", 9042));
+        assertThat(prod.localDc).isEqualTo("DC1");
+        assertThat(prod.keyspaces).containsExactlyInAnyOrder("ks1", "ks2");
+        FleetScan.Cluster staging = clusters.get(1);
+        assertThat(staging.contactPoints).containsExactly(InetSocketAddress.createUnresolved("10.1.0.1", 9043));
+        assertThat(staging.keyspaces).isEmpty();
+    }
+
+    @Test
+    void should_reject_invalid_clusters() throws IOException
+    {
+        assertThatThrownBy(() -> FleetScan.Cluster.parseLine("prod 10.0.0.1 9042"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FleetScan.Cluster.parseLine("prod 10.0.0.1 port DC1"))
+            .isInstanceOf(NumberFormatException.class);
+
+        Path file = directory.resolve("twice.txt");
+        Files.write(file, Arrays.asList("prod 10.0.0.1 9042 DC1", "prod 10.0.0.2 9042 DC1"));
+        assertThatThrownBy(() -> FleetScan.Cluster.parse(file))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("prod");
+    }
+
+    @Test
+    void should_report_tables_under_their_cluster()
+    {
+        FleetScan.Cluster cluster = FleetScan.Cluster.parseLine("prod 10.0.0.1 9042 DC1");
+        List<QualifiedTable> seen = new ArrayList<>();
+        TableReport report = new TableReport()
+        {
+            @Override
+            public RecordSink forTable(QualifiedTable table, NodeSets nodeSets)
+            {
+                seen.add(table);
+                return (lowerBound, upperBound, lastValidation, lastSuccess, outcome, missingNodes) -> {
+                };
+            }
+
+            @Override
+            public void merged(QualifiedTable table, Coverage coverage)
+            {
+                seen.add(table);
+            }
+
+            @Override
+            public void print()
+            {
+            }
+        };
+
+        TableReport renamed = report.renamed(cluster::qualify);
+        renamed.forTable(new QualifiedTable("ks", "t"), new NodeSets());
+        renamed.merged(new QualifiedTable("ks", "u"), null);
+
+        assertThat(seen).containsExactly(new QualifiedTable("prod/ks", "t"), new QualifiedTable("prod/ks", "u"));
+    }
+}
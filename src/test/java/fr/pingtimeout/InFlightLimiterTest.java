@@ -0,0 +1,86 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class InFlightLimiterTest
+{
+    @Test
+    void should_check_inputs()
+    {
+        assertThatThrownBy(() -> new InFlightLimiter(0))
+            .hasMessage("In-flight limit must be positive, got 0")
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void should_queue_tasks_above_the_limit()
+    {
+        InFlightLimiter limiter = new InFlightLimiter(2);
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            results.add(limiter.submit(() -> {
+                CompletableFuture<Integer> task = new CompletableFuture<>();
+                started.add(task);
+                return task;
+            }));
+        }
+        assertThat(started).hasSize(2);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+
+        started.get(0).complete(0);
+        assertThat(results.get(0)).isCompletedWithValue(0);
+        assertThat(started).hasSize(3);
+        assertThat(limiter.getInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void should_release_slots_of_failed_tasks()
+    {
+        InFlightLimiter limiter = new InFlightLimiter(1);
+        CompletableFuture<Object> failed = limiter.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletableFuture<String> next = limiter.submit(() -> CompletableFuture.completedFuture("ok"));
+
+        assertThat(failed).isCompletedExceptionally();
+        assertThat(next).isCompletedWithValue("ok");
+        assertThat(limiter.getInFlight()).isZero();
+    }
+
+    @Test
+    void should_apply_a_new_limit()
+    {
+        InFlightLimiter limiter = new InFlightLimiter(1);
+        List<CompletableFuture<Integer>> started = new ArrayList<>();
+        for (int i = 0; i < 5; i++)
+        {
+            limiter.submit(() -> {
+                CompletableFuture<Integer> task = new CompletableFuture<>();
+                started.add(task);
+                return task;
+            });
+        }
+        limiter.setLimit(3);
+        assertThat(started).hasSize(3);
+        assertThat(limiter.getInFlight()).isEqualTo(3);
+
+        // Running tasks are not interrupted, completed ones are not replaced until below the new limit
+        limiter.setLimit(1);
+        started.get(0).complete(0);
+        started.get(1).complete(1);
+        assertThat(started).hasSize(3);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+        started.get(2).complete(2);
+        assertThat(started).hasSize(4);
+        assertThat(limiter.getInFlight()).isEqualTo(1);
+    }
+}
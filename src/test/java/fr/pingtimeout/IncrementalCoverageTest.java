@@ -0,0 +1,106 @@
+package fr.pingtimeout;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IncrementalCoverageTest
+{
+    private static final int GROUPS = 16;
+    private static final long GROUP_WIDTH = 1L << 60;
+
+    @Test
+    void should_match_a_full_merge_after_random_updates()
+    {
+        Random random = new Random(3);
+        for (int iteration = 0; iteration < 100; iteration++)
+        {
+            NodeSets nodeSets = new NodeSets();
+            IncrementalCoverage incremental = new IncrementalCoverage("ks", "tbl", nodeSets, GROUPS);
+            RecordColumns[] rows = new RecordColumns[GROUPS];
+            Map<Integer, RecordColumns> initialRows = new HashMap<>();
+            for (int group = 0; group < GROUPS; group++)
+            {
+                rows[group] = randomRows(random, group, random.nextInt(20));
+                initialRows.put(group, rows[group]);
+            }
+            incremental.update(initialRows);
+            assertSameAsFullMerge(incremental, rows, nodeSets);
+
+            for (int update = 0; update < 20; update++)
+            {
+                Map<Integer, RecordColumns> changedRows = new HashMap<>();
+                for (int i = 1 + random.nextInt(2); i > 0; i--)
+                {
+                    int group = random.nextInt(GROUPS);
+                    rows[group] = randomRows(random, group, random.nextInt(20));
+                    changedRows.put(group, rows[group]);
+                }
+                incremental.update(changedRows);
+                assertSameAsFullMerge(incremental, rows, nodeSets);
+            }
+        }
+    }
+
+    @Test
+    void should_only_merge_again_the_records_around_a_changed_group()
+    {
+        Random random = new Random(5);
+        NodeSets nodeSets = new NodeSets();
+        IncrementalCoverage incremental = new IncrementalCoverage("ks", "tbl", nodeSets, GROUPS);
+        RecordColumns[] rows = new RecordColumns[GROUPS];
+        Map<Integer, RecordColumns> initialRows = new HashMap<>();
+        for (int group = 0; group < GROUPS; group++)
+        {
+            rows[group] = randomRows(random, group, 1000);
+            initialRows.put(group, rows[group]);
+        }
+        incremental.update(initialRows);
+        assertThat(incremental.getMergedRecords()).isGreaterThanOrEqualTo(GROUPS * 1000);
+
+        rows[7] = randomRows(random, 7, 1000);
+        incremental.update(Collections.singletonMap(7, rows[7]));
+
+        assertSameAsFullMerge(incremental, rows, nodeSets);
+        assertThat(incremental.getMergedRecords()).isBetween(1000L, 1100L);
+        assertThat(incremental.getRecomputedTo() - incremental.getRecomputedFrom())
+            .isLessThan(incremental.getCoverage().size() / 4);
+    }
+
+    // Sorted rows within the token slice of the group, the last group may wrap around the ring
+    private static RecordColumns randomRows(Random random, int group, int count)
+    {
+        RecordColumns rows = new RecordColumns(count);
+        long sliceStart = Long.MIN_VALUE + group * GROUP_WIDTH;
+        long width = GROUP_WIDTH / Math.max(1, count);
+        for (int i = 0; i < count; i++)
+        {
+            long start = sliceStart + i * width + random.nextInt(3);
+            long end = start + width - 1 + random.nextInt(3);
+            if (group == GROUPS - 1 && i == count - 1 && random.nextBoolean())
+            {
+                end = Long.MIN_VALUE + random.nextInt(1000);
+            }
+            long lastValidation = group * 1_000_000L + random.nextInt(4);
+            rows.accept(start, end, lastValidation, lastValidation, random.nextInt(6), NodeSets.EMPTY);
+        }
+        return rows;
+    }
+
+    private static void assertSameAsFullMerge(IncrementalCoverage incremental, RecordColumns[] rows,
+        NodeSets nodeSets)
+    {
+        CoverageEngine engine = new CoverageEngine("ks", "tbl", nodeSets);
+        for (RecordColumns groupRows : rows)
+        {
+            groupRows.forEach(engine);
+        }
+        assertThat(CoverageEngineTest.describe(incremental.getCoverage().toRecords()))
+            .isEqualTo(CoverageEngineTest.describe(engine.merge().toRecords()));
+    }
+}
@@ -0,0 +1,140 @@
+package fr.pingtimeout;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KWayMergeTest
+{
+    private static final int GROUPS = 256;
+
+    @Test
+    void should_match_the_coverage_engine_on_random_sorted_streams()
+    {
+        Random random = new Random(7);
+        for (int iteration = 0; iteration < 1000; iteration++)
+        {
+            int groupCount = 1 + random.nextInt(8);
+            List<List<long[]>> groups = new ArrayList<>();
+            for (int group = 0; group < groupCount; group++)
+            {
+                List<long[]> records = new ArrayList<>();
+                for (int i = random.nextInt(10); i > 0; i--)
+                {
+                    long a = CoverageEngineTest.randomToken(random);
+                    long b = CoverageEngineTest.randomToken(random);
+                    records.add(new long[] { Math.min(a, b), Math.max(a, b), 1000L * random.nextInt(4),
+                        1000L * random.nextInt(4), random.nextInt(6), 0 });
+                }
+                records.sort(Comparator.<long[]>comparingLong(r -> r[0])
+                    .thenComparingLong(r -> r[1])
+                    .thenComparingLong(r -> r[2]));
+                groups.add(records);
+            }
+
+            NodeSets nodeSets = new NodeSets();
+            CoverageEngine engine = new CoverageEngine("ks", "tbl", nodeSets);
+            List<RecordCursor> cursors = new ArrayList<>();
+            for (List<long[]> records : groups)
+            {
+                records.forEach(r -> engine.accept(r[0], r[1], r[2], r[3], (int) r[4], (int) r[5]));
+                cursors.add(new ListCursor(records));
+            }
+            Coverage streamed = new Coverage("ks", "tbl", nodeSets);
+            KWayMerge.merge(cursors, streamed);
+
+            assertThat(CoverageEngineTest.describe(streamed.toRecords()))
+                .as("iteration %d", iteration)
+                .isEqualTo(CoverageEngineTest.describe(engine.merge().toRecords()));
+        }
+    }
+
+    @Test
+    void should_keep_peak_heap_flat_when_the_number_of_rows_grows()
+    {
+        long smallPeak = peakHeapWhileStreaming(200_000);
+        long largePeak = peakHeapWhileStreaming(4_000_000);
+
+        // Materializing 4M records would take hundreds of MB, streaming them keeps one page per range group
+        assertThat(largePeak - smallPeak).isLessThan(16L * 1024 * 1024);
+    }
+
+    private static long peakHeapWhileStreaming(int rows)
+    {
+        List<RecordCursor> cursors = new ArrayList<>();
+        for (int group = 0; group < GROUPS; group++)
+        {
+            cursors.add(new SyntheticRangeGroup(group, rows / GROUPS, 100));
+        }
+        long[] segments = { 0 };
+        long[] peak = { usedHeapAfterGc() };
+        KWayMerge.merge(cursors, (lowerBound, upperBound, lastValidation, lastSuccess, outcome, missingNodes) -> {
+            if (++segments[0] % 100_000 == 0)
+            {
+                peak[0] = Math.max(peak[0], usedHeapAfterGc());
+            }
+        });
+        assertThat(segments[0]).isGreaterThan(rows / 10);
+        return peak[0];
+    }
+
+    private static long usedHeapAfterGc()
+    {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static class ListCursor extends PagedRecordCursor
+    {
+        private final List<long[]> records;
+
+        ListCursor(List<long[]> records)
+        {
+            this.records = records;
+        }
+
+        @Override
+        protected boolean fetchPage()
+        {
+            records.forEach(r -> accept(r[0], r[1], r[2], r[3], (int) r[4], (int) r[5]));
+            return false;
+        }
+    }
+
+    // Contiguous ranges interleaved with the other groups, generated one page at a time
+    private static class SyntheticRangeGroup extends PagedRecordCursor
+    {
+        private static final long WIDTH = 1L << 20;
+
+        private final int group;
+        private final int rows;
+        private final int pageSize;
+        private int generated;
+
+        SyntheticRangeGroup(int group, int rows, int pageSize)
+        {
+            this.group = group;
+            this.rows = rows;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        protected boolean fetchPage()
+        {
+            int end = Math.min(rows, generated + pageSize);
+            for (; generated < end; generated++)
+            {
+                long start = Long.MIN_VALUE + ((long) generated * GROUPS + group) * WIDTH;
+                int outcome = (generated * 31 + group) % 7 == 0 ? 2 : 0;
+                accept(start, start + WIDTH - 1, generated, generated, outcome, NodeSets.EMPTY);
+            }
+            return generated < rows;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MissingNodesIndexTest
+{
+    @Test
+    void should_intern_node_sets_as_bitmasks() throws UnknownHostException
+    {
+        NodeSets nodeSets = new NodeSets();
+        Set<InetAddress> nodes = new HashSet<>();
+        for (int i = 0; i < 150; i++)
+        {
+            nodes.add(node(i));
+        }
+        int all = nodeSets.intern(nodes);
+        int some = nodeSets.intern(new HashSet<>(Arrays.asList(node(3), node(140))));
+
+        assertThat(nodeSets.intern(new HashSet<>(nodes))).isEqualTo(all);
+        assertThat(nodeSets.intern(new HashSet<>(Arrays.asList(node(140), node(3))))).isEqualTo(some);
+        assertThat(nodeSets.get(all)).isEqualTo(nodes);
+        assertThat(nodeSets.get(some)).containsExactlyInAnyOrder(node(3), node(140));
+        assertThat(nodeSets.bits(some)).hasSize(3);
+        assertThat(nodeSets.intern(new long[] { 0, 0, 0, 0 })).isEqualTo(NodeSets.EMPTY);
+        assertThat(nodeSets.intern(NodeSets.withNode(NodeSets.withNode(new long[4], nodeSets.nodeIndex(node(140))),
+            nodeSets.nodeIndex(node(3))))).isEqualTo(some);
+        assertThat(nodeSets.size()).isEqualTo(3);
+        assertThat(nodeSets.nodeCount()).isEqualTo(150);
+    }
+
+    @Test
+    void should_aggregate_missing_ranges_per_node() throws UnknownHostException
+    {
+        NodeSets nodeSets = new NodeSets();
+        int first = nodeSets.intern(new HashSet<>(Arrays.asList(node(1), node(2))));
+        int second = nodeSets.intern(new HashSet<>(Arrays.asList(node(2))));
+        MissingNodesIndex index = new MissingNodesIndex(nodeSets);
+        long quarter = Long.MIN_VALUE / -2;
+
+        index.accept(0, quarter, 2000, 1000, 2, first);
+        index.accept(Long.MIN_VALUE, 0, 3000, 1000, 3, second);
+        // Wrap-around range of a quarter of the ring
+        index.accept(Long.MAX_VALUE - quarter / 2 + 1, Long.MIN_VALUE + quarter / 2, 1000, 1000, 2, second);
+        index.accept(10, 20, 4000, 4000, 0, NodeSets.EMPTY);
+
+        int node1 = nodeSets.nodeIndex(node(1));
+        int node2 = nodeSets.nodeIndex(node(2));
+        assertThat(index.rangeCount(node1)).isEqualTo(1);
+        assertThat(index.missingTokens(node1) / TokenRange.RING_SIZE).isEqualTo(0.25);
+        assertThat(index.newestValidation(node1)).isEqualTo(2000);
+        assertThat(index.rangeCount(node2)).isEqualTo(3);
+        assertThat(index.missingTokens(node2) / TokenRange.RING_SIZE).isEqualTo(1.0);
+        assertThat(index.newestStartToken(node2)).isEqualTo(Long.MIN_VALUE);
+        assertThat(index.newestEndToken(node2)).isEqualTo(0);
+        assertThat(index.newestValidation(node2)).isEqualTo(3000);
+        assertThat(index.node(node2)).isEqualTo(node(2));
+    }
+
+    private static InetAddress node(int i) throws UnknownHostException
+    {
+        return InetAddress.getByAddress(new byte[] { 10, 0, (byte) (i >> 8), (byte) i });
+    }
+}
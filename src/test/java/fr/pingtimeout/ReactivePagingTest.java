@@ -0,0 +1,159 @@
+package fr.pingtimeout;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactivePagingTest
+{
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    void should_consume_rows_in_batches_and_only_ask_for_more_once_consumed()
+    {
+        RowPublisher publisher = new RowPublisher(rows(1050));
+        List<Long> startTokens = new ArrayList<>();
+        List<Integer> batchSizes = new ArrayList<>();
+        List<Long> pendingWhileConsuming = new ArrayList<>();
+
+        ReactivePaging.forEachBatch(publisher, 100, executor, batch -> {
+            int size = 0;
+            for (Row row : batch)
+            {
+                startTokens.add(row.getLong("start_token"));
+                size++;
+            }
+            batchSizes.add(size);
+            if (size == 100)
+            {
+                pendingWhileConsuming.add(publisher.pending());
+            }
+        }).join();
+
+        assertThat(startTokens).hasSize(1050);
+        for (int i = 0; i < startTokens.size(); i++)
+        {
+            assertThat(startTokens.get(i)).isEqualTo(i);
+        }
+        assertThat(batchSizes).hasSize(11).containsOnly(100, 50);
+        assertThat(publisher.maxPending).isEqualTo(100);
+        assertThat(pendingWhileConsuming).containsOnly(0L);
+    }
+
+    @Test
+    void should_cancel_the_query_when_a_batch_cannot_be_consumed()
+    {
+        RowPublisher publisher = new RowPublisher(rows(1000));
+        assertThatThrownBy(() -> ReactivePaging.forEachBatch(publisher, 100, executor, batch -> {
+            throw new IllegalStateException("Broken");
+        }).join())
+            .isInstanceOf(CompletionException.class)
+            .hasRootCauseMessage("Broken");
+        assertThat(publisher.cancelled).isTrue();
+    }
+
+    @Test
+    void should_report_query_errors()
+    {
+        Publisher<Row> failing = subscriber -> subscriber.onSubscribe(new Subscription()
+        {
+            @Override
+            public void request(long n)
+            {
+                subscriber.onError(new IllegalStateException("Unavailable"));
+            }
+
+            @Override
+            public void cancel()
+            {
+            }
+        });
+        assertThatThrownBy(() -> ReactivePaging.forEachBatch(failing, 100, executor, batch -> {
+        }).join())
+            .isInstanceOf(CompletionException.class)
+            .hasRootCauseMessage("Unavailable");
+    }
+
+    private static List<Row> rows(int count)
+    {
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+        {
+            rows.add(SyntheticRows.row(SyntheticRows.PROJECTED_COLUMNS, "ks", "tbl", i, i + 1, Instant.EPOCH,
+                null, 0, null));
+        }
+        return rows;
+    }
+
+    // Emits rows synchronously, within request, and keeps track of the demand
+    private static class RowPublisher implements Publisher<Row>
+    {
+        private final List<Row> rows;
+        private long requested;
+        private int next;
+        private boolean completed;
+        private volatile long maxPending;
+        private volatile boolean cancelled;
+
+        RowPublisher(List<Row> rows)
+        {
+            this.rows = rows;
+        }
+
+        synchronized long pending()
+        {
+            return requested - next;
+        }
+
+        @Override
+        public void subscribe(Subscriber<? super Row> subscriber)
+        {
+            subscriber.onSubscribe(new Subscription()
+            {
+                @Override
+                public void request(long n)
+                {
+                    synchronized (RowPublisher.this)
+                    {
+                        requested += n;
+                        maxPending = Math.max(maxPending, pending());
+                        while (!cancelled && next < requested && next < rows.size())
+                        {
+                            subscriber.onNext(rows.get(next++));
+                        }
+                        if (!cancelled && !completed && next == rows.size())
+                        {
+                            completed = true;
+                            subscriber.onComplete();
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel()
+                {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+}
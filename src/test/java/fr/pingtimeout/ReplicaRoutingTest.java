@@ -0,0 +1,45 @@
+package fr.pingtimeout;
+
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.datastax.oss.driver.api.core.CqlIdentifier;
+import com.datastax.oss.driver.api.core.ProtocolVersion;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
+import com.datastax.oss.driver.api.core.metadata.TokenMap;
+import com.datastax.oss.driver.api.core.metadata.token.Token;
+import com.datastax.oss.driver.api.core.type.codec.TypeCodecs;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReplicaRoutingTest
+{
+    @Test
+    void should_route_to_the_replicas_of_the_partition_without_pinning_a_node()
+    {
+        Token token = (Token) Proxy.newProxyInstance(Token.class.getClassLoader(), new Class<?>[] { Token.class },
+            (proxy, method, args) -> method.getName().equals("hashCode") ? 0 : proxy == args[0]);
+        List<ByteBuffer> components = new ArrayList<>();
+        TokenMap tokenMap = (TokenMap) Proxy.newProxyInstance(TokenMap.class.getClassLoader(),
+            new Class<?>[] { TokenMap.class }, (proxy, method, args) -> {
+                components.addAll(Arrays.asList((ByteBuffer[]) args[0]));
+                return token;
+            });
+
+        SimpleStatement routed = ReplicaRouting.toReplicas(tokenMap,
+            SimpleStatement.newInstance(NodeSyncStatusTable.SELECT_RANGE_GROUP), "ks", "tbl", 42);
+
+        assertThat(routed.getNode()).isNull();
+        assertThat(routed.getRoutingKeyspace()).isEqualTo(CqlIdentifier.fromInternal(ReplicaRouting.KEYSPACE));
+        assertThat(routed.getRoutingToken()).isSameAs(token);
+        // Token of the nodesync_status partition: keyspace, table and range group
+        assertThat(components).hasSize(3);
+        assertThat(TypeCodecs.TEXT.decode(components.get(0), ProtocolVersion.DEFAULT)).isEqualTo("ks");
+        assertThat(TypeCodecs.TEXT.decode(components.get(1), ProtocolVersion.DEFAULT)).isEqualTo("tbl");
+        assertThat(components.get(2)).isEqualTo(NodeSyncStatusTable.rangeGroup(42));
+    }
+}
@@ -0,0 +1,140 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongPredicate;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RingBitmapTest
+{
+    private static final int BITS = 8;
+    private static final long BUCKET = 1L << (64 - BITS);
+    private static final int BUCKET_COUNT = 1 << BITS;
+
+    @Test
+    void should_be_exact_on_bucket_boundaries()
+    {
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        coverage.accept(Long.MIN_VALUE, 0, 1000, 1000, 0, NodeSets.EMPTY);
+        coverage.accept(0, Long.MIN_VALUE / -2, 1000, 1000, 3, NodeSets.EMPTY);
+        // Split in the middle of a bucket, but contiguous: the bucket is fully validated
+        coverage.accept(Long.MIN_VALUE / -2, Long.MIN_VALUE / -2 + BUCKET / 3, 1000, 1000, 1, NodeSets.EMPTY);
+        coverage.accept(Long.MIN_VALUE / -2 + BUCKET / 3, Long.MAX_VALUE, 1000, 1000, 0, NodeSets.EMPTY);
+
+        RingBitmap validated = RingBitmap.validated(coverage, BITS);
+        assertThat(validated.fullFraction()).isEqualTo(0.75);
+        assertThat(validated.maximumFraction()).isEqualTo(0.75);
+        assertThat(validated.not().fullFraction()).isEqualTo(0.25);
+        List<long[]> ranges = new ArrayList<>();
+        validated.not().forEachRange((lowerBound, upperBound, approximate) -> {
+            assertThat(approximate).isFalse();
+            ranges.add(new long[] { lowerBound, upperBound });
+        });
+        assertThat(ranges).containsExactly(new long[] { 0, Long.MIN_VALUE / -2 });
+    }
+
+    @Test
+    void should_keep_partial_buckets_apart()
+    {
+        RingBitmap bitmap = new RingBitmap(BITS);
+        bitmap.add(Long.MIN_VALUE + BUCKET / 2, Long.MIN_VALUE + 3 * BUCKET);
+
+        assertThat(bitmap.isPartial(0)).isTrue();
+        assertThat(bitmap.isFull(1)).isTrue();
+        assertThat(bitmap.isFull(2)).isTrue();
+        assertThat(bitmap.isFull(3)).isFalse();
+        assertThat(bitmap.isPartial(3)).isFalse();
+        bitmap.add(Long.MIN_VALUE, Long.MIN_VALUE + BUCKET);
+        assertThat(bitmap.isFull(0)).isTrue();
+        assertThat(bitmap.isPartial(0)).isFalse();
+        assertThat(bitmap.fullFraction()).isEqualTo(3.0 / 256);
+    }
+
+    @Test
+    void should_bound_unions_intersections_and_differences()
+    {
+        Random random = new Random(42);
+        int partialBuckets = 0;
+        for (int round = 0; round < 50; round++)
+        {
+            Coverage first = randomCoverage(random);
+            Coverage second = randomCoverage(random);
+            assertThat(first.size()).isGreaterThan(BUCKET_COUNT / 4);
+            RingBitmap a = RingBitmap.validated(first, BITS);
+            RingBitmap b = RingBitmap.validated(second, BITS);
+            for (int bucket = 0; bucket < a.bucketCount(); bucket++)
+            {
+                partialBuckets += a.isPartial(bucket) ? 1 : 0;
+            }
+
+            assertSound(a, token -> validated(first, token));
+            assertSound(a.or(b), token -> validated(first, token) || validated(second, token));
+            assertSound(a.and(b), token -> validated(first, token) && validated(second, token));
+            assertSound(a.andNot(b), token -> validated(first, token) && !validated(second, token));
+            assertSound(a.not(), token -> !validated(first, token));
+            assertThat(a.or(b)).isEqualTo(b.or(a));
+            assertThat(a.and(b)).isEqualTo(b.and(a));
+        }
+        assertThat(partialBuckets).isGreaterThan(50);
+    }
+
+    // Bounds on a grid of quarter buckets, so that sampling the middle of each quarter decides membership
+    private static Coverage randomCoverage(Random random)
+    {
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        long quarter = BUCKET / 4;
+        long lowerBound = Long.MIN_VALUE;
+        while (lowerBound != Long.MAX_VALUE)
+        {
+            long quarters = 1 + random.nextInt(12);
+            long upperBound = advance(lowerBound, quarters * quarter);
+            coverage.accept(lowerBound, upperBound, 1000, 1000, random.nextInt(6), NodeSets.EMPTY);
+            // Leave holes from time to time
+            lowerBound = random.nextInt(5) > 0 ? upperBound : advance(upperBound, quarter);
+        }
+        return coverage;
+    }
+
+    // token + distance, stopping at the end of the ring.  The distance left can exceed Long.MAX_VALUE, hence unsigned.
+    private static long advance(long token, long distance)
+    {
+        return Long.compareUnsigned(Long.MAX_VALUE - token, distance) <= 0 ? Long.MAX_VALUE : token + distance;
+    }
+
+    private static boolean validated(Coverage coverage, long token)
+    {
+        for (int i = 0; i < coverage.size(); i++)
+        {
+            if (coverage.lowerBound(i) <= token && token <= coverage.upperBound(i) && coverage.outcome(i) <= 1)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void assertSound(RingBitmap bitmap, LongPredicate contains)
+    {
+        long quarter = BUCKET / 4;
+        for (int bucket = 0; bucket < bitmap.bucketCount(); bucket++)
+        {
+            int inside = 0;
+            for (int i = 0; i < 4; i++)
+            {
+                inside += contains.test(bitmap.bucketStart(bucket) + i * quarter + quarter / 2) ? 1 : 0;
+            }
+            if (bitmap.isFull(bucket))
+            {
+                assertThat(inside).as("full bucket %d", bucket).isEqualTo(4);
+            }
+            else if (!bitmap.isPartial(bucket))
+            {
+                assertThat(inside).as("empty bucket %d", bucket).isZero();
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.internal.core.cql.DefaultColumnDefinitions;
+import com.datastax.oss.driver.internal.core.cql.DefaultRow;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RowDecoderTest
+{
+    @Test
+    void should_decode_like_record_from_row() throws UnknownHostException
+    {
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++)
+        {
+            long start = random.nextLong();
+            long end = random.nextLong();
+            // recordFromRow fails without an unsuccessful validation, unless the successful one is after the epoch
+            Instant lastSuccess = random.nextInt(3) == 0 ? null : Instant.ofEpochMilli((1 + random.nextInt(4)) * 1000L);
+            Instant lastFailure = lastSuccess != null && random.nextBoolean()
+                ? null
+                : Instant.ofEpochMilli(random.nextInt(4) * 1000L);
+            int outcome = random.nextInt(6);
+            Set<InetAddress> missingNodes = random.nextBoolean() ? null : CoverageEngineTest.randomNodes(random);
+
+            Row row = SyntheticRows.row(SyntheticRows.ALL_COLUMNS, "ks", "tbl", start, end, lastSuccess, lastFailure,
+                outcome, missingNodes);
+            Row projectedRow = SyntheticRows.row(SyntheticRows.PROJECTED_COLUMNS, "ks", "tbl", start, end,
+                lastSuccess, lastFailure, outcome, missingNodes);
+            List<String> expected = NodeSyncRecord.recordFromRow(row)
+                .map(RowDecoderTest::describe)
+                .collect(Collectors.toList());
+
+            assertThat(decode(row)).as("row %d", i).isEqualTo(expected);
+            assertThat(decode(projectedRow)).as("projected row %d", i).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void should_decode_rows_that_were_never_validated()
+    {
+        Row row = SyntheticRows.row(SyntheticRows.PROJECTED_COLUMNS, "ks", "tbl", 1, 2, null, null, 0, null);
+        NodeSets nodeSets = new NodeSets();
+        RecordColumns rows = new RecordColumns(1);
+        new RowDecoder(nodeSets).decode(row, rows);
+        assertThat(rows.lastValidation(0)).isZero();
+        assertThat(rows.lastSuccess(0)).isZero();
+        assertThat(rows.outcome(0)).isEqualTo(4);
+    }
+
+    @Test
+    void should_reject_results_without_the_needed_columns()
+    {
+        Row row = SyntheticRows.row(SyntheticRows.ALL_COLUMNS, "ks", "tbl", 1, 2, Instant.EPOCH, null, 0, null);
+        Row incomplete = new DefaultRow(
+            DefaultColumnDefinitions.valueOf(Collections.singletonList(row.getColumnDefinitions().get(3))),
+            Collections.singletonList(row.getBytesUnsafe(3)));
+        assertThatThrownBy(() -> new RowDecoder(new NodeSets()).decode(incomplete, new RecordColumns(1)))
+            .hasMessage("Missing bigint column end_token")
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Wrap-around ranges are split the same way as recordFromRow does
+    private static List<String> decode(Row row)
+    {
+        NodeSets nodeSets = new NodeSets();
+        List<String> records = new ArrayList<>();
+        new RowDecoder(nodeSets).decode(row, (start, end, lastValidation, lastSuccess, outcome, missingNodes) ->
+            CoverageEngine.splitWrapAround(start, end, lastValidation, lastSuccess, outcome, missingNodes,
+                (lowerBound, upperBound, splitLastValidation, splitLastSuccess, splitOutcome, splitMissingNodes) ->
+                    records.add(describe(NodeSyncRecord.fromSegment("ks", "tbl", nodeSets, lowerBound, upperBound,
+                        splitLastValidation, splitLastSuccess, splitOutcome, splitMissingNodes)))));
+        return records;
+    }
+
+    private static String describe(NodeSyncRecord record)
+    {
+        return record + ", lastValidation=" + record.getLastValidation() + ", lastSuccess=" + record.getLastSuccess()
+            + ", missingNodes=" + record.getMissingNodes();
+    }
+}
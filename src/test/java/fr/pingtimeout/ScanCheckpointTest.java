@@ -0,0 +1,157 @@
+package fr.pingtimeout;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ScanCheckpointTest
+{
+    private static final QualifiedTable FIRST = new QualifiedTable("ks", "first");
+    private static final QualifiedTable SECOND = new QualifiedTable("ks", "second");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_resume_a_table_from_its_last_page() throws IOException
+    {
+        Path path = directory.resolve("checkpoint");
+        NodeSets nodeSets = new NodeSets();
+        int missing = nodeSets.intern(new HashSet<>(Arrays.asList(InetAddress.getByName("10.0.0.1"),
+            InetAddress.getByName("10.0.0.2"))));
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, ScanMode.PARTITIONS))
+        {
+            assertThat(checkpoint.resume(FIRST, nodeSets, rows()).statement).isEqualTo(0);
+            checkpoint.page(page(new long[] { 0, 10, 1000, 900, 1, NodeSets.EMPTY }), nodeSets, 1, null);
+            checkpoint.page(page(new long[] { 20, 30, 2000, 1900, 2, missing }), nodeSets, 1, new byte[] { 7, 8 });
+        }
+
+        List<String> replayed = new ArrayList<>();
+        NodeSets resumedNodeSets = new NodeSets();
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, ScanMode.PARTITIONS))
+        {
+            ScanCheckpoint.Position position = checkpoint.resume(FIRST, resumedNodeSets,
+                (start, end, lastValidation, lastSuccess, outcome, missingNodes) -> replayed.add(start + ":" + end
+                    + ":" + lastValidation + ":" + lastSuccess + ":" + outcome + ":"
+                    + resumedNodeSets.get(missingNodes).size()));
+
+            assertThat(replayed).containsExactly("0:10:1000:900:1:0", "20:30:2000:1900:2:2");
+            assertThat(position.statement).isEqualTo(1);
+            assertThat(position.pagingState).containsExactly(7, 8);
+            assertThat(position.rows).isEqualTo(2);
+
+            // The node set of the replayed rows is not written again
+            checkpoint.page(page(new long[] { 40, 50, 3000, 3000, 0, resumedNodeSets.intern(
+                new HashSet<>(Arrays.asList(InetAddress.getByName("10.0.0.1"), InetAddress.getByName("10.0.0.2"))))
+            }), resumedNodeSets, 2, null);
+        }
+
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, ScanMode.PARTITIONS))
+        {
+            NodeSets lastNodeSets = new NodeSets();
+            List<Integer> missingCounts = new ArrayList<>();
+            ScanCheckpoint.Position position = checkpoint.resume(FIRST, lastNodeSets,
+                (start, end, lastValidation, lastSuccess, outcome, missingNodes) ->
+                    missingCounts.add(lastNodeSets.get(missingNodes).size()));
+            assertThat(missingCounts).containsExactly(0, 2, 2);
+            assertThat(position.statement).isEqualTo(2);
+            assertThat(position.pagingState).isNull();
+        }
+    }
+
+    @Test
+    void should_drop_a_page_cut_short() throws IOException
+    {
+        Path path = directory.resolve("checkpoint");
+        NodeSets nodeSets = new NodeSets();
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, ScanMode.PARTITIONS))
+        {
+            checkpoint.resume(FIRST, nodeSets, rows());
+            checkpoint.page(page(new long[] { 0, 10, 1000, 900, 1, NodeSets.EMPTY }), nodeSets, 1, null);
+            checkpoint.page(page(new long[] { 20, 30, 2000, 1900, 2, NodeSets.EMPTY }), nodeSets, 2, null);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+        {
+            channel.truncate(channel.size() - 3);
+        }
+
+        RecordColumns replayed = new RecordColumns(0);
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, ScanMode.PARTITIONS))
+        {
+            ScanCheckpoint.Position position = checkpoint.resume(FIRST, new NodeSets(), replayed);
+            assertThat(replayed.size()).isEqualTo(1);
+            assertThat(position.statement).isEqualTo(1);
+            checkpoint.page(page(new long[] { 20, 30, 2000, 1900, 2, NodeSets.EMPTY }), nodeSets, 2, null);
+        }
+
+        replayed.clear();
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, ScanMode.PARTITIONS))
+        {
+            assertThat(checkpoint.resume(FIRST, new NodeSets(), replayed).statement).isEqualTo(2);
+            assertThat(replayed.size()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void should_skip_tables_done_and_start_the_others_over()
+    {
+        Path path = directory.resolve("checkpoint");
+        NodeSets nodeSets = new NodeSets();
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, ScanMode.FILTERING))
+        {
+            checkpoint.resume(FIRST, nodeSets, rows());
+            checkpoint.page(page(new long[] { 0, 10, 1000, 900, 1, NodeSets.EMPTY }), nodeSets, 1, null);
+            checkpoint.tableDone(FIRST);
+            checkpoint.resume(SECOND, new NodeSets(), rows());
+        }
+
+        try (ScanCheckpoint checkpoint = ScanCheckpoint.open(path, ScanMode.FILTERING))
+        {
+            assertThat(checkpoint.isDone(FIRST)).isTrue();
+            assertThat(checkpoint.isDone(SECOND)).isFalse();
+            assertThat(checkpoint.getDoneCount()).isEqualTo(1);
+            RecordColumns replayed = new RecordColumns(0);
+            assertThat(checkpoint.resume(SECOND, new NodeSets(), replayed).statement).isEqualTo(0);
+            assertThat(replayed.size()).isEqualTo(0);
+            checkpoint.delete();
+        }
+        assertThat(path).doesNotExist();
+    }
+
+    @Test
+    void should_reject_the_checkpoint_of_another_scan_mode()
+    {
+        Path path = directory.resolve("checkpoint");
+        ScanCheckpoint.open(path, ScanMode.PARTITIONS).close();
+
+        assertThatThrownBy(() -> ScanCheckpoint.open(path, ScanMode.REPLICAS))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("--scan partitions");
+    }
+
+    private static RecordSink rows()
+    {
+        return (start, end, lastValidation, lastSuccess, outcome, missingNodes) -> {
+        };
+    }
+
+    // Single row page: start, end, last validation, last success, outcome, missing nodes
+    private static RecordColumns page(long[] row)
+    {
+        RecordColumns page = new RecordColumns(1);
+        page.accept(row[0], row[1], row[2], row[3], (int) row[4], (int) row[5]);
+        return page;
+    }
+}
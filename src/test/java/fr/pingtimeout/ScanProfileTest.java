@@ -0,0 +1,87 @@
+package fr.pingtimeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScanProfileTest
+{
+    @Test
+    void should_record_pages_phases_and_tables_as_flight_recorder_events() throws IOException
+    {
+        Path file = Files.createTempFile("scan", ".jfr");
+        try (Recording recording = new Recording())
+        {
+            recording.enable("fr.pingtimeout.PageFetch");
+            recording.enable("fr.pingtimeout.ScanPhase");
+            recording.enable("fr.pingtimeout.TableScan");
+            recording.start();
+            ScanProfile.Table table = new ScanProfile(false).table(new QualifiedTable("ks", "tbl"));
+            for (int page = 0; page < 2; page++)
+            {
+                table.begin(ScanProfile.Phase.FETCH);
+                table.end(100, 4096);
+                table.begin(ScanProfile.Phase.DECODE);
+                table.end(100, 0);
+            }
+            table.setRows(200);
+            table.begin(ScanProfile.Phase.MERGE);
+            table.end(200, 0);
+            table.finish();
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertThat(events.stream().map(event -> event.getEventType().getName()).collect(Collectors.toList()))
+                .containsExactly("fr.pingtimeout.PageFetch", "fr.pingtimeout.ScanPhase", "fr.pingtimeout.PageFetch",
+                    "fr.pingtimeout.ScanPhase", "fr.pingtimeout.ScanPhase", "fr.pingtimeout.TableScan");
+            assertThat(events.get(0).getLong("bytes")).isEqualTo(4096);
+            assertThat(events.get(4).getString("phase")).isEqualTo("merge");
+            RecordedEvent tableScan = events.get(5);
+            assertThat(tableScan.getString("table")).isEqualTo("ks.tbl");
+            assertThat(tableScan.getLong("rows")).isEqualTo(200);
+            assertThat(tableScan.getLong("pages")).isEqualTo(2);
+            assertThat(tableScan.getLong("bytes")).isEqualTo(8192);
+        }
+        finally
+        {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void should_print_time_per_phase()
+    {
+        ScanProfile profile = new ScanProfile(true);
+        ScanProfile.Table table = profile.table(new QualifiedTable("ks", "tbl"));
+        table.begin(ScanProfile.Phase.DECODE);
+        table.end(10, 0);
+        table.setRows(10);
+        table.finish();
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(output));
+        try
+        {
+            profile.print();
+        }
+        finally
+        {
+            System.setOut(out);
+        }
+        assertThat(output.toString()).contains("  ks.tbl: 10 rows in ", ", fetch 0.000 s, decode ",
+            "  all tables: 10 rows in ");
+    }
+}
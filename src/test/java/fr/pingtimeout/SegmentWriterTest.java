@@ -0,0 +1,78 @@
+package fr.pingtimeout;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentWriterTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_write_json_lines() throws IOException
+    {
+        Path path = directory.resolve("segments.jsonl");
+        NodeSets nodeSets = new NodeSets();
+        try (SegmentWriter writer = SegmentWriter.open(path, null))
+        {
+            RecordSink sink = writer.forTable("ks", "weird\"table", nodeSets);
+            sink.accept(Long.MIN_VALUE, -42, 2000, 1000, 2, NodeSets.EMPTY);
+            // Node set interned after the sink was created, like during a streaming scan
+            int missing = nodeSets.intern(new HashSet<>(Arrays.asList(InetAddress.getByName("10.0.0.1"))));
+            sink.accept(-42, Long.MAX_VALUE, 3000, 0, 4, missing);
+        }
+
+        assertThat(Files.readAllLines(path)).containsExactly(
+            "{\"keyspace\":\"ks\",\"table\":\"weird\\\"table\",\"start_token\":-9223372036854775808,"
+                + "\"end_token\":-42,\"last_validation\":2000,\"last_success\":1000,\"outcome\":2,"
+                + "\"missing_nodes\":[]}",
+            "{\"keyspace\":\"ks\",\"table\":\"weird\\\"table\",\"start_token\":-42,"
+                + "\"end_token\":9223372036854775807,\"last_validation\":3000,\"last_success\":0,\"outcome\":4,"
+                + "\"missing_nodes\":[\"10.0.0.1\"]}");
+    }
+
+    @Test
+    void should_write_gzipped_csv_larger_than_its_buffer() throws IOException
+    {
+        Path path = directory.resolve("segments.csv.gz");
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        for (int i = 0; i < 10_000; i++)
+        {
+            coverage.accept(i * 1000L, (i + 1) * 1000L, i, -i, i % 6, NodeSets.EMPTY);
+        }
+        try (SegmentWriter writer = SegmentWriter.open(path, null))
+        {
+            coverage.forEach(writer.forTable("ks", "tbl", coverage.getNodeSets()));
+        }
+
+        List<String> lines;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+            new GZIPInputStream(Files.newInputStream(path)), StandardCharsets.UTF_8)))
+        {
+            lines = reader.lines().collect(Collectors.toList());
+        }
+        assertThat(lines).hasSize(10_001);
+        assertThat(lines.get(0))
+            .isEqualTo("keyspace,table,start_token,end_token,last_validation,last_success,outcome,missing_nodes");
+        for (int i = 0; i < 10_000; i++)
+        {
+            assertThat(lines.get(i + 1)).isEqualTo(String.format("ks,tbl,%d,%d,%d,%d,%d,", i * 1000L,
+                (i + 1) * 1000L, i, -i, i % 6));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package fr.pingtimeout;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotTest
+{
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_read_back_the_rows_it_wrote() throws UnknownHostException
+    {
+        Random random = new Random(11);
+        NodeSets nodeSets = new NodeSets();
+        RecordColumns first = randomRows(random, nodeSets, 5000);
+        RecordColumns second = randomRows(random, nodeSets, 0);
+        Path path = directory.resolve("status.snapshot");
+        try (SnapshotWriter writer = new SnapshotWriter(path))
+        {
+            writer.writeTable("ks", "first", first, nodeSets);
+            writer.writeTable("other_ks", "second", second, nodeSets);
+        }
+
+        try (SnapshotReader reader = new SnapshotReader(path))
+        {
+            assertThat(reader.getTables()).containsExactly(
+                new QualifiedTable("ks", "first"),
+                new QualifiedTable("other_ks", "second"));
+
+            NodeSets readNodeSets = new NodeSets();
+            RecordColumns readRows = new RecordColumns(0);
+            reader.read(new QualifiedTable("ks", "first"), readNodeSets, readRows);
+            assertThat(readRows.size()).isEqualTo(first.size());
+            for (int i = 0; i < first.size(); i++)
+            {
+                assertThat(readRows.startToken(i)).isEqualTo(first.startToken(i));
+                assertThat(readRows.endToken(i)).isEqualTo(first.endToken(i));
+                assertThat(readRows.lastValidation(i)).isEqualTo(first.lastValidation(i));
+                assertThat(readRows.lastSuccess(i)).isEqualTo(first.lastSuccess(i));
+                assertThat(readRows.outcome(i)).isEqualTo(first.outcome(i));
+                assertThat(readNodeSets.get(readRows.missingNodes(i))).isEqualTo(nodeSets.get(first.missingNodes(i)));
+            }
+
+            CoverageEngine engine = new CoverageEngine("ks", "first");
+            reader.read(new QualifiedTable("ks", "first"), engine.getNodeSets(), engine);
+            CoverageEngine expected = new CoverageEngine("ks", "first", nodeSets);
+            first.forEach(expected);
+            assertThat(CoverageEngineTest.describe(engine.merge().toRecords()))
+                .isEqualTo(CoverageEngineTest.describe(expected.merge().toRecords()));
+
+            RecordColumns empty = new RecordColumns(0);
+            reader.read(new QualifiedTable("other_ks", "second"), readNodeSets, empty);
+            assertThat(empty.size()).isZero();
+        }
+    }
+
+    @Test
+    void should_reject_files_that_are_not_snapshots() throws IOException
+    {
+        Path path = directory.resolve("not-a.snapshot");
+        Files.write(path, "keyspace_name,table_name,start_token,end_token\n".getBytes());
+        assertThatThrownBy(() -> new SnapshotReader(path))
+            .hasMessage(path + " is not a snapshot")
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static RecordColumns randomRows(Random random, NodeSets nodeSets, int count) throws UnknownHostException
+    {
+        RecordColumns rows = new RecordColumns(count);
+        for (int i = 0; i < count; i++)
+        {
+            rows.accept(random.nextLong(), random.nextLong(), random.nextInt(1 << 30) * 1000L,
+                random.nextInt(1 << 30) * 1000L, random.nextInt(6),
+                nodeSets.intern(CoverageEngineTest.randomNodes(random)));
+        }
+        return rows;
+    }
+}
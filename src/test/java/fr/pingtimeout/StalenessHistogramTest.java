@@ -0,0 +1,77 @@
+package fr.pingtimeout;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class StalenessHistogramTest
+{
+    private static final long NOW = 100L * 24 * 3600 * 1000;
+    private static final long QUARTER = Long.MIN_VALUE / -2;
+
+    @Test
+    void should_weight_ages_by_tokens()
+    {
+        StalenessHistogram histogram = new StalenessHistogram(NOW);
+        // Half of the ring validated 10 minutes ago, a quarter 2 days ago, a quarter never
+        histogram.accept(Long.MIN_VALUE, 0, NOW, NOW - minutes(10), 0, NodeSets.EMPTY);
+        histogram.accept(0, QUARTER, NOW, NOW - minutes(2 * 24 * 60), 1, NodeSets.EMPTY);
+        histogram.accept(QUARTER, Long.MAX_VALUE, NOW, 0, 4, NodeSets.EMPTY);
+
+        assertThat(histogram.fractionWithin(Duration.ofMinutes(1))).isZero();
+        assertThat(histogram.fractionWithin(Duration.ofHours(1))).isCloseTo(0.5, within(1e-9));
+        assertThat(histogram.fractionWithin(Duration.ofDays(1))).isCloseTo(0.5, within(1e-9));
+        assertThat(histogram.fractionWithin(Duration.ofDays(7))).isCloseTo(0.75, within(1e-9));
+        assertThat(histogram.neverValidatedFraction()).isCloseTo(0.25, within(1e-9));
+        assertThat(histogram.toString())
+            .isEqualTo("within 1h: 50.0%, within 1d: 50.0%, within 7d: 75.0%, within 10d: 75.0%, never: 25.0%");
+    }
+
+    @Test
+    void should_count_the_tokens_of_wrap_around_ranges()
+    {
+        StalenessHistogram histogram = new StalenessHistogram(NOW);
+        // A quarter of the ring, wrapping around, and the rest
+        long eighth = Long.MIN_VALUE / -4;
+        histogram.accept(Long.MAX_VALUE - eighth, Long.MIN_VALUE + eighth, NOW, NOW - minutes(5), 0, NodeSets.EMPTY);
+        histogram.accept(Long.MIN_VALUE + eighth, Long.MAX_VALUE - eighth, NOW, NOW - minutes(5 * 24 * 60), 0,
+            NodeSets.EMPTY);
+
+        assertThat(histogram.fractionWithin(Duration.ofHours(1))).isCloseTo(0.25, within(1e-9));
+    }
+
+    @Test
+    void should_merge_histograms()
+    {
+        StalenessHistogram first = new StalenessHistogram(NOW);
+        first.accept(Long.MIN_VALUE, Long.MAX_VALUE, NOW, NOW - minutes(30), 0, NodeSets.EMPTY);
+        StalenessHistogram second = new StalenessHistogram(NOW);
+        second.accept(Long.MIN_VALUE, Long.MAX_VALUE, NOW, NOW - minutes(3 * 24 * 60), 0, NodeSets.EMPTY);
+        second.accept(Long.MIN_VALUE, Long.MAX_VALUE, NOW, 0, 4, NodeSets.EMPTY);
+
+        first.merge(second);
+        assertThat(first.fractionWithin(Duration.ofHours(1))).isCloseTo(1 / 3.0, within(1e-9));
+        assertThat(first.fractionWithin(Duration.ofDays(7))).isCloseTo(2 / 3.0, within(1e-9));
+        assertThat(first.neverValidatedFraction()).isCloseTo(1 / 3.0, within(1e-9));
+    }
+
+    @Test
+    void should_interpolate_within_a_bucket()
+    {
+        StalenessHistogram histogram = new StalenessHistogram(NOW);
+        histogram.accept(Long.MIN_VALUE, Long.MAX_VALUE, NOW, NOW - minutes(60), 0, NodeSets.EMPTY);
+
+        // Buckets are 19% wide, an age is never off by more than that
+        assertThat(histogram.fractionWithin(Duration.ofMinutes(50))).isZero();
+        assertThat(histogram.fractionWithin(Duration.ofMinutes(72))).isEqualTo(1.0);
+        assertThat(histogram.fractionWithin(Duration.ofMinutes(60))).isBetween(0.0, 1.0);
+    }
+
+    private static long minutes(long minutes)
+    {
+        return minutes * 60 * 1000;
+    }
+}
@@ -0,0 +1,112 @@
+package fr.pingtimeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class SyntheticSourceTest
+{
+    private static final long NOW = 100L * 24 * 3600 * 1000;
+
+    @Test
+    void should_give_the_same_rows_for_the_same_seed()
+    {
+        SyntheticSource.Workload workload = new SyntheticSource.Workload();
+        workload.tables = 2;
+        SyntheticSource source = new SyntheticSource(workload, NOW);
+        QualifiedTable table = source.getTables().get(1);
+
+        List<String> rows = rowStrings(source, table);
+        assertThat(rowStrings(new SyntheticSource(workload, NOW), table)).isEqualTo(rows);
+        assertThat(rowStrings(source, source.getTables().get(0))).isNotEqualTo(rows);
+        workload.seed++;
+        assertThat(rowStrings(new SyntheticSource(workload, NOW), table)).isNotEqualTo(rows);
+    }
+
+    @Test
+    void should_send_rows_one_range_group_at_a_time()
+    {
+        SyntheticSource.Workload workload = new SyntheticSource.Workload();
+        workload.holes = 0;
+        workload.overlaps = 0;
+        SyntheticSource source = new SyntheticSource(workload, NOW);
+
+        List<long[]> rows = rows(source, source.getTables().get(0));
+        assertThat(source.getSegmentCount()).isEqualTo(12 * 256 * 4);
+        assertThat(rows).hasSize(source.getSegmentCount());
+        // Sorted within a group, every group read once and not in token order
+        List<Integer> groups = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++)
+        {
+            int group = (int) (rows.get(i)[0] >>> 56);
+            if (groups.isEmpty() || groups.get(groups.size() - 1) != group)
+            {
+                assertThat(groups).doesNotContain(group);
+                groups.add(group);
+            }
+            else
+            {
+                assertThat(rows.get(i)[0]).isGreaterThan(rows.get(i - 1)[0]);
+            }
+        }
+        assertThat(groups).hasSize(256).isNotEqualTo(groups.stream().sorted().collect(Collectors.toList()));
+        // Contiguous segments covering the ring, only one of them wraps around
+        assertThat(rows.stream().filter(row -> row[0] > row[1])).hasSize(1);
+        assertThat(rows.stream().mapToDouble(row -> TokenRange.tokenCount(row[0], row[1])).sum())
+            .isCloseTo(TokenRange.RING_SIZE, within(1e9));
+    }
+
+    @Test
+    void should_mix_outcomes_and_missing_nodes()
+    {
+        SyntheticSource.Workload workload = new SyntheticSource.Workload();
+        workload.outcomeWeights = new int[] { 1, 0, 1, 0, 1, 0 };
+        workload.unvalidated = 0;
+        SyntheticSource source = new SyntheticSource(workload, NOW);
+        NodeSets nodeSets = new NodeSets();
+        int[] counts = new int[6];
+        source.read(source.getTables().get(0), nodeSets,
+            (startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) -> {
+                counts[outcome]++;
+                assertThat(lastValidation).isBetween(NOW - 2 * workload.maxAge.toMillis(), NOW);
+                // Partial validations miss one replica, uncompleted ones all but one
+                assertThat(nodeSets.get(missingNodes)).hasSize(outcome == 2 ? 1 : outcome == 4 ? 2 : 0);
+                if (outcome == 0)
+                {
+                    assertThat(lastSuccess).isEqualTo(lastValidation);
+                }
+            });
+        assertThat(counts[1]).isZero();
+        assertThat(counts[0]).isBetween(counts[2] / 2, counts[2] * 2);
+        assertThat(counts[4]).isBetween(counts[2] / 2, counts[2] * 2);
+    }
+
+    @Test
+    void should_reject_impossible_workloads()
+    {
+        SyntheticSource.Workload workload = new SyntheticSource.Workload();
+        workload.replicationFactor = 13;
+        assertThatThrownBy(() -> new SyntheticSource(workload, NOW)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<long[]> rows(SyntheticSource source, QualifiedTable table)
+    {
+        List<long[]> rows = new ArrayList<>();
+        source.read(table, new NodeSets(),
+            (startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes) -> rows.add(
+                new long[] { startToken, endToken, lastValidation, lastSuccess, outcome, missingNodes }));
+        return rows;
+    }
+
+    private static List<String> rowStrings(SyntheticSource source, QualifiedTable table)
+    {
+        return rows(source, table).stream().map(Arrays::toString).collect(Collectors.toList());
+    }
+}
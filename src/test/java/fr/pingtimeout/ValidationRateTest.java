@@ -0,0 +1,88 @@
+package fr.pingtimeout;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class ValidationRateTest
+{
+    private static final long NOW = 100L * 24 * 3600 * 1000;
+    private static final long HOUR = 3600 * 1000;
+    private static final long QUARTER = Long.MIN_VALUE / -2;
+
+    @Test
+    void should_estimate_the_rate_from_the_most_recent_hours()
+    {
+        ValidationRate rate = rate(
+            new long[] { Long.MIN_VALUE, -QUARTER, NOW - HOUR / 2, NOW - HOUR / 2, 0 },
+            new long[] { -QUARTER, 0, NOW - 3 * HOUR / 2, NOW - 3 * HOUR / 2, 0 },
+            new long[] { 0, QUARTER, NOW - 5 * HOUR, NOW - 5 * HOUR, 1 },
+            // Failed two days ago, last successful validation nine days ago
+            new long[] { QUARTER, Long.MAX_VALUE, NOW - 48 * HOUR, NOW - 9 * 24 * HOUR, 5 });
+
+        // Half of the ring in the last two hours, older hours are not used
+        assertThat(rate.getTokensPerHour()).isCloseTo(TokenRange.RING_SIZE / 4, within(1e6));
+        assertThat(rate.cycleHours()).isCloseTo(4, within(1e-9));
+        assertThat(rate.getOldestSuccess()).isEqualTo(NOW - 9 * 24 * HOUR);
+        // Last attempted two days ago, more than a cycle ago: due now
+        assertThat(rate.nextValidationOfOldest()).isEqualTo(NOW);
+        assertThat(rate.describe(Duration.ofDays(10))).endsWith("OK, 1d0h to spare");
+        assertThat(rate.describe(Duration.ofDays(7))).endsWith("OVERDUE by 2d0h");
+    }
+
+    @Test
+    void should_use_the_validation_times_of_rows_merged_together()
+    {
+        // Both halves in sync, merged into a single segment with the success of an hour ago
+        ValidationRate rate = rate(
+            new long[] { Long.MIN_VALUE, 0, NOW - 9 * 24 * HOUR, NOW - 9 * 24 * HOUR, 0 },
+            new long[] { 0, Long.MAX_VALUE, NOW - HOUR / 2, NOW - HOUR / 2, 0 });
+
+        assertThat(rate.getTokensPerHour()).isCloseTo(TokenRange.RING_SIZE / 2, within(1e6));
+        assertThat(rate.getOldestSuccess()).isEqualTo(NOW - 9 * 24 * HOUR);
+        assertThat(rate.describe(Duration.ofDays(7))).endsWith("OVERDUE by 2d0h");
+    }
+
+    @Test
+    void should_flag_tables_whose_cycle_exceeds_gc_grace()
+    {
+        // A hundredth of the ring in the last day, the rest validated a long time ago
+        long hundredth = (long) (TokenRange.RING_SIZE / 100);
+        ValidationRate rate = rate(
+            new long[] { Long.MIN_VALUE, Long.MIN_VALUE + hundredth, NOW - HOUR / 2, NOW - HOUR / 2, 0 },
+            new long[] { Long.MIN_VALUE + hundredth, Long.MAX_VALUE, NOW - 50 * 24 * HOUR, NOW - 50 * 24 * HOUR, 0 });
+
+        assertThat(rate.cycleHours()).isCloseTo(100 * 24, within(1e-6));
+        // Next validation in 50 days, gc_grace runs out in 10
+        assertThat(rate.describe(Duration.ofDays(60))).endsWith("AT RISK, late by 40d0h");
+    }
+
+    @Test
+    void should_report_holes_as_never_validated()
+    {
+        // Nothing before -1000
+        ValidationRate rate = rate(
+            new long[] { -1000, 0, NOW, NOW, 0 },
+            new long[] { 0, Long.MAX_VALUE, NOW, NOW, 0 });
+
+        assertThat(rate.getOldestSuccess()).isZero();
+        assertThat(rate.describe(Duration.ofDays(10))).endsWith("OVERDUE");
+        assertThat(rate().describe(Duration.ofDays(10))).startsWith("no validation in the window");
+    }
+
+    // Rows are start token, end token, last validation, last success and outcome, sent to the merge and the counter
+    private static ValidationRate rate(long[]... rows)
+    {
+        CoverageEngine engine = new CoverageEngine("ks", "tbl");
+        ValidationRate.Counter counter = new ValidationRate.Counter(NOW, Duration.ofDays(1));
+        RecordSink sink = engine.andThen(counter);
+        for (long[] row : rows)
+        {
+            sink.accept(row[0], row[1], row[2], row[3], (int) row[4], NodeSets.EMPTY);
+        }
+        return counter.rate(engine.merge());
+    }
+}
@@ -0,0 +1,126 @@
+package fr.pingtimeout;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class VnodeOwnershipTest
+{
+    @Test
+    void should_assign_segments_to_the_vnodes_they_overlap() throws UnknownHostException
+    {
+        Random random = new Random(7);
+        for (int round = 0; round < 100; round++)
+        {
+            long[] endTokens = random.longs(1 + random.nextInt(round < 10 ? 3 : 300)).sorted().distinct().toArray();
+            VnodeOwnership ownership = ownership(endTokens);
+            Coverage coverage = randomCoverage(random, 1 + random.nextInt(200));
+            double[] validated = new double[ownership.vnodeCount()];
+            ownership.addValidated(coverage, validated);
+
+            double owned = 0;
+            for (int vnode = 0; vnode < ownership.vnodeCount(); vnode++)
+            {
+                owned += ownership.ownedTokens(vnode);
+                assertThat(validated[vnode]).isCloseTo(expectedValidated(endTokens, vnode, coverage),
+                    within(ownership.ownedTokens(vnode) * 1e-9));
+                assertThat(validated[vnode]).isLessThanOrEqualTo(ownership.ownedTokens(vnode) * (1 + 1e-12));
+            }
+            assertThat(owned).isCloseTo(TokenRange.RING_SIZE, within(TokenRange.RING_SIZE * 1e-12));
+        }
+    }
+
+    @Test
+    void should_wrap_the_first_vnode_around_the_ring() throws UnknownHostException
+    {
+        NodeSets nodeSets = new NodeSets();
+        int first = nodeSets.intern(new HashSet<>(Arrays.asList(node(1), node(2))));
+        int second = nodeSets.intern(new HashSet<>(Arrays.asList(node(2), node(3))));
+        VnodeOwnership ownership = new VnodeOwnership(new long[] { -100, 100 }, new int[] { first, second },
+            nodeSets);
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        coverage.accept(Long.MIN_VALUE, -150, 1000, 1000, 0, NodeSets.EMPTY);
+        coverage.accept(-150, 50, 1000, 1000, 1, NodeSets.EMPTY);
+        coverage.accept(50, 150, 1000, 1000, 2, NodeSets.EMPTY);
+        coverage.accept(150, Long.MAX_VALUE, 1000, 1000, 0, NodeSets.EMPTY);
+
+        double[] validated = new double[2];
+        ownership.addValidated(coverage, validated);
+        assertThat(ownership.ownedTokens(1)).isEqualTo(200);
+        assertThat(validated[1]).isEqualTo(150);
+        assertThat(validated[0]).isEqualTo(TokenRange.RING_SIZE - 200 - 50);
+        assertThat(ownership.replicaSet(1)).isEqualTo(second);
+    }
+
+    private static double expectedValidated(long[] endTokens, int vnode, Coverage coverage)
+    {
+        double validated = 0;
+        for (int i = 0; i < coverage.size(); i++)
+        {
+            if (coverage.outcome(i) <= 1)
+            {
+                for (long[] piece : pieces(endTokens, vnode))
+                {
+                    long start = Math.max(coverage.lowerBound(i), piece[0]);
+                    long end = Math.min(coverage.upperBound(i), piece[1]);
+                    validated += start < end ? TokenRange.tokenCount(start, end) : 0;
+                }
+            }
+        }
+        return validated;
+    }
+
+    // Non-wrapping parts of a vnode
+    private static long[][] pieces(long[] endTokens, int vnode)
+    {
+        if (vnode > 0)
+        {
+            return new long[][] { { endTokens[vnode - 1], endTokens[vnode] } };
+        }
+        return new long[][] {
+            { Long.MIN_VALUE, endTokens[0] },
+            { endTokens[endTokens.length - 1], Long.MAX_VALUE }
+        };
+    }
+
+    private static VnodeOwnership ownership(long[] endTokens) throws UnknownHostException
+    {
+        NodeSets nodeSets = new NodeSets();
+        int[] replicaSets = new int[endTokens.length];
+        for (int i = 0; i < replicaSets.length; i++)
+        {
+            replicaSets[i] = nodeSets.intern(new HashSet<>(Arrays.asList(node(i % 5), node((i + 1) % 5))));
+        }
+        return new VnodeOwnership(endTokens, replicaSets, nodeSets);
+    }
+
+    // Sorted segments from the minimum to the maximum token, with holes
+    private static Coverage randomCoverage(Random random, int segments)
+    {
+        Coverage coverage = new Coverage("ks", "tbl", new NodeSets());
+        long[] bounds = random.longs(segments).sorted().distinct().toArray();
+        long lowerBound = Long.MIN_VALUE;
+        for (int i = 0; i <= bounds.length; i++)
+        {
+            long upperBound = i == bounds.length ? Long.MAX_VALUE : bounds[i];
+            if (random.nextInt(5) > 0)
+            {
+                coverage.accept(lowerBound, upperBound, 1000, 1000, random.nextInt(6), NodeSets.EMPTY);
+            }
+            lowerBound = upperBound;
+        }
+        return coverage;
+    }
+
+    private static InetAddress node(int i) throws UnknownHostException
+    {
+        return InetAddress.getByAddress(new byte[] { 10, 0, 0, (byte) i });
+    }
+}